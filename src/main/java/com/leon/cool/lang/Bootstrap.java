@@ -1,19 +1,45 @@
 package com.leon.cool.lang;
 
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.cache.CompileCache;
+import com.leon.cool.lang.c.NativeCompiler;
 import com.leon.cool.lang.factory.TreeFactory;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.jvm.CoolClassLoader;
+import com.leon.cool.lang.jvm.JavaSourceCompiler;
 import com.leon.cool.lang.parser.CoolParser;
 import com.leon.cool.lang.support.TreeSupport;
 import com.leon.cool.lang.support.infrastructure.Context;
 import com.leon.cool.lang.tokenizer.CoolScanner;
 import com.leon.cool.lang.tokenizer.CoolTokenizer;
+import com.leon.cool.lang.tokenizer.Symbols;
 import com.leon.cool.lang.tree.compile.impl.AttrDefTreeScanner;
 import com.leon.cool.lang.tree.compile.impl.ClassGraphTreeScanner;
+import com.leon.cool.lang.tree.compile.impl.JavaSourceTreeScanner;
+import com.leon.cool.lang.tree.compile.impl.JvmCodeGenTreeScanner;
+import com.leon.cool.lang.tree.compile.impl.LexicalAddressTreeScanner;
 import com.leon.cool.lang.tree.compile.impl.MethodDefTreeScanner;
 import com.leon.cool.lang.tree.compile.impl.ParentAttrDefTreeScanner;
 import com.leon.cool.lang.tree.compile.impl.ParentMethodDefTreeScanner;
 import com.leon.cool.lang.tree.compile.impl.TypeCheckTreeScanner;
+import com.leon.cool.lang.tree.compile.impl.VmCodeGenTreeScanner;
+import com.leon.cool.lang.tree.runtime.impl.ClosureTreeScanner;
 import com.leon.cool.lang.tree.runtime.impl.EvalTreeScanner;
+import com.leon.cool.lang.tree.runtime.impl.TieredCompiler;
+import com.leon.cool.lang.tree.runtime.node.MethodCache;
+import com.leon.cool.lang.vm.ProgramImage;
+import com.leon.cool.lang.vm.VirtualMachine;
+import com.leon.cool.lang.vm.VmProgram;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static com.leon.cool.lang.support.ErrorSupport.error;
 import static com.leon.cool.lang.util.FileUtil.readFile;
 
 /**
@@ -36,34 +62,267 @@ import static com.leon.cool.lang.util.FileUtil.readFile;
 public class Bootstrap {
 
     public static void run(String str) {
+        run(str, Backend.INTERPRETER);
+    }
+
+    public static void run(String str, Backend backend) {
+        var configuration = new Configuration();
+        configuration.backend = backend;
+        run(str, configuration);
+    }
+
+    public static void run(String str, Configuration configuration) {
         try (var treeSupport = new TreeSupport()) {
-            //compile
-            var tokenizer = new CoolTokenizer(str.toCharArray());
-            var scanner = new CoolScanner(tokenizer);
-            var parser = new CoolParser(scanner, new TreeFactory());
-            var expr = parser.parseProgram();
-            if (!parser.errMsgs.isEmpty()) {
-                parser.errMsgs.forEach(System.err::println);
-                return;
+            var expr = compile(str, treeSupport, configuration);
+            if (expr == null) return;
+            //runtime
+            switch (configuration.backend) {
+                case CLOSURE:
+                    var closureTreeScanner = new ClosureTreeScanner(treeSupport);
+                    expr.accept(closureTreeScanner);
+                    closureTreeScanner.run();
+                    break;
+                case JVM:
+                    var codeGen = new JvmCodeGenTreeScanner(treeSupport);
+                    expr.accept(codeGen);
+                    new CoolClassLoader(codeGen.classes).run(JvmCodeGenTreeScanner.internalName(Constant.MAIN_CLASS));
+                    break;
+                case JAVA:
+                    var sourceGen = new JavaSourceTreeScanner(treeSupport);
+                    expr.accept(sourceGen);
+                    var classes = new JavaSourceCompiler().compile(sourceGen.sources);
+                    new CoolClassLoader(classes).run(JvmCodeGenTreeScanner.internalName(Constant.MAIN_CLASS));
+                    break;
+                case VM:
+                    var vmCodeGen = new VmCodeGenTreeScanner(treeSupport);
+                    expr.accept(vmCodeGen);
+                    try (var vm = new VirtualMachine(vmCodeGen.program)) {
+                        vm.run();
+                    }
+                    break;
+                case C:
+                    var nativeCodeGen = new VmCodeGenTreeScanner(treeSupport);
+                    expr.accept(nativeCodeGen);
+                    runNative(nativeCodeGen.program);
+                    break;
+                default:
+                    if (configuration.tiered) {
+                        try (var tieredCompiler = new TieredCompiler(treeSupport, configuration)) {
+                            expr.accept(new EvalTreeScanner(treeSupport, tieredCompiler), new Context(null, null));
+                        }
+                    } else {
+                        expr.accept(new EvalTreeScanner(treeSupport), new Context(null, null));
+                    }
+                    break;
             }
-            expr.accept(new ClassGraphTreeScanner(treeSupport));
-            expr.accept(new MethodDefTreeScanner(treeSupport));
-            expr.accept(new ParentMethodDefTreeScanner(treeSupport));
-            expr.accept(new AttrDefTreeScanner(treeSupport));
-            expr.accept(new ParentAttrDefTreeScanner(treeSupport));
-            var typeCheckTreeScanner = new TypeCheckTreeScanner(treeSupport);
-            expr.accept(typeCheckTreeScanner);
-            if (!typeCheckTreeScanner.errMsgs.isEmpty()) {
-                typeCheckTreeScanner.errMsgs.forEach(System.err::println);
-                return;
+            if (configuration.inlineCacheStatistics) {
+                System.err.println(MethodCache.statistics(treeSupport.inlineCaches));
             }
-            //runtime
-            expr.accept(new EvalTreeScanner(treeSupport), new Context(null, null));
         }
     }
 
+    /**
+     * 编译成寄存器字节码并写入.coolc文件
+     */
+    public static void compile(String str, String output) {
+        try (var treeSupport = new TreeSupport()) {
+            var expr = compile(str, treeSupport);
+            if (expr == null) return;
+            var codeGen = new VmCodeGenTreeScanner(treeSupport);
+            expr.accept(codeGen);
+            ProgramImage.write(codeGen.program, Paths.get(output));
+        }
+    }
+
+    /**
+     * 生成C源码并编译成本地可执行文件
+     */
+    public static void compileNative(String str, String output) {
+        try (var treeSupport = new TreeSupport()) {
+            var expr = compile(str, treeSupport);
+            if (expr == null) return;
+            var codeGen = new VmCodeGenTreeScanner(treeSupport);
+            expr.accept(codeGen);
+            new NativeCompiler().build(codeGen.program, Paths.get(output));
+        }
+    }
+
+    /**
+     * 生成Java源码，类的binary name -> 源码，有编译错误时返回null
+     */
+    public static Map<String, String> javaSource(String str) {
+        try (var treeSupport = new TreeSupport()) {
+            var expr = compile(str, treeSupport);
+            if (expr == null) return null;
+            var sourceGen = new JavaSourceTreeScanner(treeSupport);
+            expr.accept(sourceGen);
+            return sourceGen.sources;
+        }
+    }
+
+    /**
+     * 把生成的Java源码按包目录写到output下
+     */
+    public static void writeJavaSource(String str, String output) {
+        var sources = javaSource(str);
+        if (sources == null) return;
+        try {
+            for (var entry : sources.entrySet()) {
+                var file = Paths.get(output, entry.getKey().replace('.', File.separatorChar) + ".java");
+                Files.createDirectories(file.getParent());
+                Files.write(file, entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            error("unexpected.error");
+        }
+    }
+
+    private static void runNative(VmProgram program) {
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("cool-native");
+            var executable = dir.resolve(Constant.MAIN_CLASS.toLowerCase());
+            var compiler = new NativeCompiler();
+            compiler.build(program, executable);
+            compiler.run(executable);
+        } catch (IOException e) {
+            error("unexpected.error");
+        } finally {
+            if (dir != null) delete(dir.toFile());
+        }
+    }
+
+    private static void delete(File file) {
+        var files = file.listFiles();
+        if (files != null) {
+            for (var child : files) delete(child);
+        }
+        file.delete();
+    }
+
+    /**
+     * 直接加载.coolc文件执行
+     */
+    public static void runImage(String image) {
+        try (var vm = new VirtualMachine(ProgramImage.read(Paths.get(image)))) {
+            vm.run();
+        }
+    }
+
+    /**
+     * 配置了缓存目录的话先查编译缓存，命中时跳过词法分析，语法分析和类型检查
+     */
+    private static Program compile(String str, TreeSupport treeSupport, Configuration configuration) {
+        if (configuration.cacheDirectory == null) return compile(str, treeSupport);
+        var cache = new CompileCache(configuration.cacheDirectory);
+        var expr = cache.load(str, treeSupport);
+        if (expr != null) return expr;
+        expr = compile(str, treeSupport);
+        if (expr != null) cache.store(str, expr, treeSupport);
+        return expr;
+    }
+
+    /**
+     * 词法分析，语法分析和类型检查，有错误时打印错误并返回null
+     */
+    private static Program compile(String str, TreeSupport treeSupport) {
+        var expr = parse(str);
+        if (expr == null || !check(expr, treeSupport)) return null;
+        return expr;
+    }
+
+    /**
+     * 词法分析和语法分析，有错误时打印错误并返回null
+     */
+    public static Program parse(String str) {
+        return parse(str, new Symbols());
+    }
+
+    /**
+     * 用symbols做符号表解析，同一个symbols解析出来的同名标识符和类型名是同一个引用
+     */
+    public static Program parse(String str, Symbols symbols) {
+        var tokenizer = new CoolTokenizer(str.toCharArray(), symbols);
+        var scanner = new CoolScanner(tokenizer);
+        var parser = new CoolParser(scanner, new TreeFactory());
+        var expr = parser.parseProgram();
+        if (!parser.errMsgs.isEmpty()) {
+            parser.errMsgs.forEach(System.err::println);
+            return null;
+        }
+        return expr;
+    }
+
+    /**
+     * 对expr里的类建立classGraph，methodGraph，attrGraph并做类型检查，通过后给局部变量分配frame槽位，有类型错误时打印错误并返回false
+     */
+    public static boolean check(Program expr, TreeSupport treeSupport) {
+        expr.accept(new ClassGraphTreeScanner(treeSupport));
+        expr.accept(new MethodDefTreeScanner(treeSupport));
+        expr.accept(new ParentMethodDefTreeScanner(treeSupport));
+        expr.accept(new AttrDefTreeScanner(treeSupport));
+        expr.accept(new ParentAttrDefTreeScanner(treeSupport));
+        var typeCheckTreeScanner = new TypeCheckTreeScanner(treeSupport);
+        expr.accept(typeCheckTreeScanner);
+        if (!typeCheckTreeScanner.errMsgs.isEmpty()) {
+            typeCheckTreeScanner.errMsgs.forEach(System.err::println);
+            return false;
+        }
+        expr.accept(new LexicalAddressTreeScanner(treeSupport));
+        return true;
+    }
+
     public static void main(String[] args) {
-        var str = readFile(args[0]);
-        Bootstrap.run(str);
+        if (args.length > 1 && args[0].equals("compile")) {
+            var output = args.length > 2 ? args[2] : args[1].replaceAll("\\.cl$", "") + ".coolc";
+            compile(readFile(args[1]), output);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("native")) {
+            var output = args.length > 2 ? args[2] : args[1].replaceAll("\\.cl$", "");
+            compileNative(readFile(args[1]), output);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("source")) {
+            writeJavaSource(readFile(args[1]), args.length > 2 ? args[2] : ".");
+            return;
+        }
+        if (args.length > 1 && args[0].equals("run")) {
+            runImage(args[1]);
+            return;
+        }
+        var configuration = new Configuration();
+        //拿不到编译器的构建版本的话无法判断缓存是否过期，默认不用缓存
+        if (CompileCache.buildVersion() != null) configuration.cacheDirectory = CompileCache.defaultDirectory();
+        var index = 0;
+        for (; index < args.length - 1; index++) {
+            switch (args[index]) {
+                case "-backend":
+                    configuration.backend = Backend.valueOf(args[++index].toUpperCase());
+                    break;
+                case "-tiered":
+                    configuration.tiered = true;
+                    break;
+                case "-invocationThreshold":
+                    configuration.invocationThreshold = Integer.parseInt(args[++index]);
+                    break;
+                case "-backEdgeThreshold":
+                    configuration.backEdgeThreshold = Integer.parseInt(args[++index]);
+                    break;
+                case "-cacheDir":
+                    configuration.cacheDirectory = Paths.get(args[++index]);
+                    break;
+                case "-noCache":
+                    configuration.cacheDirectory = null;
+                    break;
+                case "-inlineCacheStatistics":
+                    configuration.inlineCacheStatistics = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException(args[index]);
+            }
+        }
+        var str = readFile(args[index]);
+        Bootstrap.run(str, configuration);
     }
 }
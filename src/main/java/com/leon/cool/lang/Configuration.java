@@ -0,0 +1,51 @@
+package com.leon.cool.lang;
+
+import com.leon.cool.lang.glossary.Backend;
+
+import java.nio.file.Path;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class Configuration {
+
+    public Backend backend = Backend.INTERPRETER;
+
+    /**
+     * 分层执行：先解释执行，热点方法和循环在后台编译
+     */
+    public boolean tiered = false;
+
+    /**
+     * false的话在解释器线程同步编译，便于测试
+     */
+    public boolean backgroundCompilation = true;
+
+    public int invocationThreshold = 1000;
+
+    public int backEdgeThreshold = 10000;
+
+    /**
+     * 编译缓存目录，null的话每次都重新做词法分析，语法分析和类型检查
+     */
+    public Path cacheDirectory = null;
+
+    /**
+     * 运行结束后在stderr打印调用点inline cache的统计
+     */
+    public boolean inlineCacheStatistics = false;
+}
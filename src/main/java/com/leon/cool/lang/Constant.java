@@ -37,4 +37,13 @@ public class Constant {
     public static final String MAIN_METHOD = "main";
 
     public static final int GC_HEAP_SIZE = 10;
+
+    public static final String JVM_PACKAGE = "cool";
+
+    /**
+     * JVM和Java后端生成的合成成员，带$$前缀，和COOL标识符生成的Owner$m，m不会冲突
+     */
+    public static final String JVM_INIT = "$$init";
+    public static final String JVM_NEW = "$$new";
+    public static final String JVM_NEW_SELF_TYPE = "$$new$SELF_TYPE";
 }
@@ -44,6 +44,7 @@ public class BoolConst extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyBoolConst(this, context);
     }
 }
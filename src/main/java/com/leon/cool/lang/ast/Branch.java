@@ -24,6 +24,12 @@ import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
  * @author leon on 15-10-31
  */
 public class Branch extends Expression {
+
+    /**
+     * 绑定的变量在frame中的槽位
+     */
+    public int slot;
+
     public final Token id;
     public final Token type;
     public final Expression expr;
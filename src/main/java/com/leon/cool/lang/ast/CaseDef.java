@@ -48,6 +48,7 @@ public class CaseDef extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyCaseDef(this, context);
     }
 
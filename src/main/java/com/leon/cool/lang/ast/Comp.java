@@ -46,6 +46,7 @@ public class Comp extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyComp(this, context);
     }
 
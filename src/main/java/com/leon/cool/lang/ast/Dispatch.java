@@ -26,6 +26,12 @@ import java.util.List;
  * @author leon on 15-10-31
  */
 public class Dispatch extends Expression {
+
+    /**
+     * 类型检查时按实参的静态类型选出的重载方法的vtable槽位，运行时只按receiver类型取槽位里的方法
+     */
+    public int slot = -1;
+
     public final Token id;
     public final List<Expression> params;
 
@@ -49,6 +55,7 @@ public class Dispatch extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyDispatch(this, context);
     }
 
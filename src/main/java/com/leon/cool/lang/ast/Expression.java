@@ -1,8 +1,11 @@
 package com.leon.cool.lang.ast;
 
+import com.leon.cool.lang.object.CoolBool;
+import com.leon.cool.lang.object.CoolInt;
 import com.leon.cool.lang.object.CoolObject;
 import com.leon.cool.lang.support.infrastructure.Context;
 import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+import com.leon.cool.lang.tree.runtime.node.SpecializedNode;
 
 /**
  * Copyright leon
@@ -23,8 +26,29 @@ import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
  */
 public abstract class Expression extends TreeNode {
 
+    /**
+     * 运行时特化后的节点，不为null时accept直接执行特化版本
+     */
+    public SpecializedNode specialized;
+
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
         throw new UnsupportedOperationException("Must override this method.");
     }
+
+    /**
+     * 类型检查保证结果是Int时使用，特化过的节点不装箱
+     */
+    public int acceptInt(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.executeInt(visitor, context);
+        return ((CoolInt) accept(visitor, context)).val;
+    }
+
+    /**
+     * 类型检查保证结果是Bool时使用，特化过的节点不装箱
+     */
+    public boolean acceptBool(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.executeBool(visitor, context);
+        return ((CoolBool) accept(visitor, context)).val;
+    }
 }
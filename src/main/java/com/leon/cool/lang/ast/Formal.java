@@ -21,6 +21,12 @@ import com.leon.cool.lang.tree.compile.TreeVisitor;
  * @author leon on 15-10-31
  */
 public class Formal extends TreeNode {
+
+    /**
+     * 绑定的变量在frame中的槽位
+     */
+    public int slot;
+
     public final Token id;
     public final Token type;
 
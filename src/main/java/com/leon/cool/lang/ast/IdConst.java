@@ -24,6 +24,17 @@ import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
  * @author leon on 15-10-31
  */
 public class IdConst extends Expression {
+
+    /**
+     * 局部变量在frame中的槽位，-1表示self或者属性
+     */
+    public int slot = -1;
+
+    /**
+     * 属性在self的fields中的槽位，-1表示self或者局部变量
+     */
+    public int field = -1;
+
     public final Token tok;
 
     public IdConst(Token tok) {
@@ -44,6 +55,7 @@ public class IdConst extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyIdConst(this, context);
     }
 
@@ -47,6 +47,7 @@ public class IntConst extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyIntConst(this, context);
     }
 
@@ -26,6 +26,12 @@ import java.util.Optional;
  * @author leon on 15-10-31
  */
 public class LetAttrDef extends Expression {
+
+    /**
+     * 绑定的变量在frame中的槽位
+     */
+    public int slot;
+
     public final Token id;
     public final Token type;
     public final Optional<Expression> expr;
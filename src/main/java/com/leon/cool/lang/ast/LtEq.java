@@ -46,6 +46,7 @@ public class LtEq extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyLtEq(this, context);
     }
 
@@ -23,6 +23,12 @@ import java.util.List;
  * @author leon on 15-10-31
  */
 public class MethodDef extends Feature {
+
+    /**
+     * 形参和方法体中let，case绑定的变量需要的frame大小
+     */
+    public int frameSize;
+
     public final Token id;
     public final List<Formal> formals;
     public final Token type;
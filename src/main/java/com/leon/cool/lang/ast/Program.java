@@ -2,6 +2,7 @@ package com.leon.cool.lang.ast;
 
 import com.leon.cool.lang.glossary.TokenKind;
 import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.TreeSupport;
 import com.leon.cool.lang.support.infrastructure.Context;
 import com.leon.cool.lang.tokenizer.Token;
 import com.leon.cool.lang.tree.compile.TreeVisitor;
@@ -53,6 +54,7 @@ public class Program extends TreeNode {
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
         var staticDispatch = new StaticDispatch(new NewDef(new Token(MAIN_CLASS, TokenKind.TYPE)), Optional.empty(), new StaticDispatchBody(new Token(MAIN_METHOD, TokenKind.ID), new ArrayList<>()));
+        staticDispatch.slot = TreeSupport.MAIN_SLOT;
         return staticDispatch.accept(visitor, context);
     }
 }
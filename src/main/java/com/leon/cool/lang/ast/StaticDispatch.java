@@ -26,6 +26,12 @@ import java.util.Optional;
  * @author leon on 15-10-31
  */
 public class StaticDispatch extends Expression {
+
+    /**
+     * 类型检查时按实参的静态类型选出的重载方法的vtable槽位，运行时只按receiver类型取槽位里的方法
+     */
+    public int slot = -1;
+
     public final Expression expr;
     public final Optional<Token> type;
     public final StaticDispatchBody dispatch;
@@ -52,6 +58,7 @@ public class StaticDispatch extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyStaticDispatch(this, context);
     }
 
@@ -50,6 +50,7 @@ public class StringConst extends Expression {
 
     @Override
     public CoolObject accept(EvalTreeVisitor visitor, Context context) {
+        if (specialized != null) return specialized.execute(visitor, context);
         return visitor.applyStringConst(this, context);
     }
 
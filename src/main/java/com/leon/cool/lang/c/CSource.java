@@ -0,0 +1,344 @@
+package com.leon.cool.lang.c;
+
+import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.vm.Opcodes;
+import com.leon.cool.lang.vm.VmMethod;
+import com.leon.cool.lang.vm.VmProgram;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static com.leon.cool.lang.support.ErrorSupport.errorMsg;
+import static com.leon.cool.lang.vm.Opcodes.*;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CSource {
+
+    private final VmProgram program;
+    private final StringBuilder out = new StringBuilder();
+
+    public CSource(VmProgram program) {
+        this.program = program;
+    }
+
+    /**
+     * 每个方法翻译成一个C函数，寄存器翻译成局部变量，ref寄存器放在数组里登记为GC根
+     */
+    public String emit() {
+        out.append("#include \"cool_runtime.h\"\n\n");
+        out.append("static Obj *k[").append(Math.max(1, program.constants.size())).append("];\n\n");
+        for (var method : program.methods) {
+            if (method.nativeId == VmMethod.NATIVE_NONE) out.append("static ").append(signature(method)).append(";\n");
+        }
+        out.append('\n');
+        for (var clazz : program.classes) {
+            out.append("static Class class").append(clazz.id).append(";\n");
+        }
+        out.append('\n');
+        for (var clazz : program.classes) {
+            var chain = clazz.initChain();
+            if (!chain.isEmpty()) {
+                out.append("static void ctor").append(clazz.id).append("(Obj *self) {\n");
+                for (var init : chain) out.append("    ").append(function(init)).append("(self);\n");
+                out.append("}\n\n");
+            }
+            out.append("static const Method vt").append(clazz.id).append("[] = {");
+            for (var i = 0; i < clazz.vtable.length; i++) {
+                out.append(i == 0 ? "" : ", ").append("(Method) ").append(function(clazz.vtable[i]));
+            }
+            if (clazz.vtable.length == 0) out.append('0');
+            out.append("};\n");
+            var defaults = new StringBuilder();
+            for (var refDefault : clazz.refDefaults) defaults.append(refDefault == null ? "\\000" : "\\001");
+            out.append("static Class class").append(clazz.id).append(" = {");
+            out.append(literal(clazz.name)).append(", ").append(clazz.id).append(", ");
+            out.append(clazz.parent == null ? "0" : "&class" + clazz.parent.id).append(", ");
+            out.append(clazz.intFields.size()).append(", ").append(clazz.refFields.size()).append(", ");
+            out.append('"').append(defaults).append("\", vt").append(clazz.id).append(", ");
+            out.append(chain.isEmpty() ? "0" : "ctor" + clazz.id).append("};\n\n");
+        }
+        for (var method : program.methods) {
+            if (method.nativeId == VmMethod.NATIVE_NONE) method(method);
+        }
+        out.append("int main(void) {\n");
+        out.append("    cool_init(&class").append(program.lookupClass(Constant.INT).id);
+        out.append(", &class").append(program.lookupClass(Constant.BOOL).id);
+        out.append(", &class").append(program.lookupClass(Constant.STRING).id).append(");\n");
+        for (var i = 0; i < program.constants.size(); i++) {
+            if (program.constants.get(i) instanceof String) {
+                var str = (String) program.constants.get(i);
+                out.append("    k[").append(i).append("] = cool_string_const(").append(literal(str)).append(", ");
+                out.append(str.getBytes(StandardCharsets.UTF_8).length).append(");\n");
+            }
+        }
+        if (program.mainMethod != null) {
+            out.append("    ").append(function(program.mainMethod)).append("(cool_new(&class").append(program.mainClass.id).append("));\n");
+        }
+        out.append("    return 0;\n}\n");
+        return out.toString();
+    }
+
+    private void method(VmMethod method) {
+        var code = method.code;
+        out.append("/* ").append(method).append(" */\n");
+        out.append("static ").append(signature(method)).append(" {\n");
+        out.append("    Obj *r[").append(method.refRegisters).append("] = {0};\n");
+        if (method.intRegisters > 0) {
+            out.append("    int ");
+            for (var i = 0; i < method.intRegisters; i++) out.append(i == 0 ? "" : ", ").append('i').append(i).append(" = 0");
+            out.append(";\n");
+        }
+        out.append("    COOL_ENTER(r, ").append(method.refRegisters).append(");\n");
+        out.append("    r[0] = self;\n");
+        var ip = 0;
+        var rp = 1;
+        for (var i = 0; i < method.intParams.length; i++) {
+            if (method.intParams[i]) {
+                out.append("    i").append(ip++).append(" = p").append(i).append(";\n");
+            } else {
+                out.append("    r[").append(rp++).append("] = p").append(i).append(";\n");
+            }
+        }
+        var labels = labels(code);
+        var pc = 0;
+        while (pc < code.length) {
+            if (labels.contains(pc)) out.append("L").append(pc).append(":\n");
+            out.append("    ");
+            instruction(code, pc);
+            out.append('\n');
+            pc += Opcodes.length(code, pc);
+        }
+        out.append("}\n\n");
+    }
+
+    private void instruction(int[] code, int pc) {
+        var a = code.length > pc + 1 ? code[pc + 1] : 0;
+        var b = code.length > pc + 2 ? code[pc + 2] : 0;
+        var c = code.length > pc + 3 ? code[pc + 3] : 0;
+        switch (code[pc]) {
+            case NOP:
+                out.append(';');
+                break;
+            case ICONST:
+                out.append(i(a)).append(" = ").append(b == Integer.MIN_VALUE ? "(-2147483647 - 1)" : String.valueOf(b)).append(';');
+                break;
+            case IMOVE:
+                out.append(i(a)).append(" = ").append(i(b)).append(';');
+                break;
+            case MOVE:
+                out.append(r(a)).append(" = ").append(r(b)).append(';');
+                break;
+            case LDC:
+                out.append(r(a)).append(" = k[").append(b).append("];");
+                break;
+            case NULL:
+                out.append(r(a)).append(" = 0;");
+                break;
+            case IADD:
+                out.append(i(a)).append(" = (int) ((unsigned) ").append(i(b)).append(" + (unsigned) ").append(i(c)).append(");");
+                break;
+            case ISUB:
+                out.append(i(a)).append(" = (int) ((unsigned) ").append(i(b)).append(" - (unsigned) ").append(i(c)).append(");");
+                break;
+            case IMUL:
+                out.append(i(a)).append(" = (int) ((unsigned) ").append(i(b)).append(" * (unsigned) ").append(i(c)).append(");");
+                break;
+            case IDIV:
+                out.append(i(a)).append(" = cool_div(").append(i(b)).append(", ").append(i(c)).append(", ");
+                out.append(message("runtime.error.divide.zero", code[pc + 4])).append(");");
+                break;
+            case INEG:
+                out.append(i(a)).append(" = (int) (0u - (unsigned) ").append(i(b)).append(");");
+                break;
+            case ILT:
+                out.append(i(a)).append(" = ").append(i(b)).append(" < ").append(i(c)).append(';');
+                break;
+            case ILE:
+                out.append(i(a)).append(" = ").append(i(b)).append(" <= ").append(i(c)).append(';');
+                break;
+            case IEQ:
+                out.append(i(a)).append(" = ").append(i(b)).append(" == ").append(i(c)).append(';');
+                break;
+            case INOT:
+                out.append(i(a)).append(" = ").append(i(b)).append(" ^ 1;");
+                break;
+            case REQ:
+                out.append(i(a)).append(" = cool_eq(").append(r(b)).append(", ").append(r(c)).append(");");
+                break;
+            case ISVOID:
+                out.append(i(a)).append(" = ").append(r(b)).append(" == 0;");
+                break;
+            case BOXI:
+                out.append(r(a)).append(" = cool_box_int(").append(i(b)).append(");");
+                break;
+            case BOXB:
+                out.append(r(a)).append(" = cool_box_bool(").append(i(b)).append(");");
+                break;
+            case UNBOXI:
+            case UNBOXB:
+                out.append(i(a)).append(" = ").append(r(b)).append("->ival;");
+                break;
+            case GETI:
+                out.append(i(a)).append(" = r[0]->ints[").append(b).append("];");
+                break;
+            case GETR:
+                out.append(r(a)).append(" = r[0]->refs[").append(b).append("];");
+                break;
+            case PUTI:
+                out.append("r[0]->ints[").append(a).append("] = ").append(i(b)).append(';');
+                break;
+            case PUTR:
+                out.append("r[0]->refs[").append(a).append("] = ").append(r(b)).append(';');
+                break;
+            case NEW:
+                out.append(r(a)).append(" = cool_new(&class").append(b).append(");");
+                break;
+            case NEWSELF:
+                out.append(r(a)).append(" = cool_new(r[0]->cls);");
+                break;
+            case JMP:
+                out.append("goto L").append(a).append(';');
+                break;
+            case JF:
+                out.append("if (!").append(i(a)).append(") goto L").append(b).append(';');
+                break;
+            case INVOKEVIRTUAL:
+            case INVOKESPECIAL:
+                invoke(code, pc);
+                break;
+            case CASE: {
+                var msg = message("runtime.error.case", code[pc + 3]);
+                out.append("if (!").append(r(a)).append(") cool_fail(").append(msg).append(");\n");
+                out.append("    switch (").append(r(a)).append("->cls->id) {\n");
+                var table = (int[]) program.constants.get(b);
+                var targets = new LinkedHashMap<Integer, List<Integer>>();
+                for (var id = 0; id < table.length; id++) {
+                    if (table[id] >= 0) targets.computeIfAbsent(table[id], e -> new ArrayList<>()).add(id);
+                }
+                for (Map.Entry<Integer, List<Integer>> entry : targets.entrySet()) {
+                    out.append("        ");
+                    for (var id : entry.getValue()) out.append("case ").append(id).append(": ");
+                    out.append("goto L").append(entry.getKey()).append(";\n");
+                }
+                out.append("        default: cool_fail(").append(msg).append(");\n    }");
+                break;
+            }
+            case CHECKVOID:
+                out.append("if (!").append(r(a)).append(") cool_fail(").append(message("runtime.error.void", b)).append(");");
+                break;
+            case IRET:
+                out.append("COOL_LEAVE(); return ").append(i(a)).append(';');
+                break;
+            case RET:
+                out.append("COOL_LEAVE(); return ").append(r(a)).append(';');
+                break;
+            default:
+                throw new AssertionError("opcode " + code[pc]);
+        }
+    }
+
+    /**
+     * 虚调用通过vtable里的函数指针，强转成静态解析到的方法的签名
+     */
+    private void invoke(int[] code, int pc) {
+        var method = program.methods.get(code[pc + 2]);
+        var receiver = r(code[pc + 3]);
+        var n = code[pc + 6];
+        out.append("if (!").append(receiver).append(") cool_fail(").append(message("runtime.error.dispatch.void", code[pc + 4])).append(");\n    ");
+        if (method.owner.equals(Constant.STRING) && method.name.equals("substr")) {
+            out.append("cool_range_error = ").append(message("runtime.error.range", code[pc + 5])).append(";\n    ");
+        }
+        out.append(method.intReturn ? i(code[pc + 1]) : r(code[pc + 1])).append(" = ");
+        if (code[pc] == INVOKESPECIAL) {
+            out.append(function(method));
+        } else {
+            out.append("((").append(method.intReturn ? "int" : "Obj *").append(" (*)(Obj *");
+            for (var intParam : method.intParams) out.append(intParam ? ", int" : ", Obj *");
+            out.append(")) ").append(receiver).append("->cls->vtable[").append(method.slot).append("])");
+        }
+        out.append('(').append(receiver);
+        for (var i = 0; i < n; i++) {
+            var arg = code[pc + 7 + i];
+            out.append(", ").append(method.intParams[i] ? i(arg) : r(arg));
+        }
+        out.append(");");
+    }
+
+    private TreeSet<Integer> labels(int[] code) {
+        var labels = new TreeSet<Integer>();
+        var pc = 0;
+        while (pc < code.length) {
+            if (code[pc] == JMP) labels.add(code[pc + 1]);
+            if (code[pc] == JF) labels.add(code[pc + 2]);
+            if (code[pc] == CASE) {
+                for (var target : (int[]) program.constants.get(code[pc + 2])) {
+                    if (target >= 0) labels.add(target);
+                }
+            }
+            pc += Opcodes.length(code, pc);
+        }
+        return labels;
+    }
+
+    private String message(String key, int constant) {
+        return literal(errorMsg(key, program.constants.get(constant)));
+    }
+
+    private static String signature(VmMethod method) {
+        var builder = new StringBuilder(method.intReturn ? "int " : "Obj *");
+        builder.append(function(method)).append("(Obj *self");
+        for (var i = 0; i < method.intParams.length; i++) {
+            builder.append(method.intParams[i] ? ", int p" : ", Obj *p").append(i);
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String function(VmMethod method) {
+        if (method.nativeId != VmMethod.NATIVE_NONE) return "cool_" + method.owner + "_" + method.name;
+        return "m" + method.id;
+    }
+
+    private static String i(int register) {
+        return "i" + register;
+    }
+
+    private static String r(int register) {
+        return "r[" + register + "]";
+    }
+
+    /**
+     * 可打印ASCII原样输出，其他字节用八进制转义
+     */
+    private static String literal(String str) {
+        var builder = new StringBuilder("\"");
+        for (var b : str.getBytes(StandardCharsets.UTF_8)) {
+            var c = b & 0xFF;
+            if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\' && c != '?') {
+                builder.append((char) c);
+            } else {
+                builder.append(String.format("\\%03o", c));
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.leon.cool.lang.c;
+
+import com.leon.cool.lang.vm.VmProgram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static com.leon.cool.lang.support.ErrorSupport.error;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class NativeCompiler {
+
+    public static final String RUNTIME_HEADER = "cool_runtime.h";
+    public static final String RUNTIME_SOURCE = "cool_runtime.c";
+
+    private final String cc;
+
+    public NativeCompiler() {
+        this(System.getenv().getOrDefault("CC", "cc"));
+    }
+
+    public NativeCompiler(String cc) {
+        this.cc = cc;
+    }
+
+    /**
+     * 在可执行文件所在目录写出生成的C源码和运行时，再用cc编译
+     */
+    public void build(VmProgram program, Path executable) {
+        var dir = executable.toAbsolutePath().getParent();
+        var source = dir.resolve(executable.getFileName() + ".c");
+        try {
+            Files.write(source, new CSource(program).emit().getBytes(StandardCharsets.UTF_8));
+            copyResource(RUNTIME_HEADER, dir.resolve(RUNTIME_HEADER));
+            copyResource(RUNTIME_SOURCE, dir.resolve(RUNTIME_SOURCE));
+            var command = new ArrayList<String>();
+            command.add(cc);
+            command.add("-O2");
+            command.add("-o");
+            command.add(executable.toAbsolutePath().toString());
+            command.add(source.toString());
+            command.add(dir.resolve(RUNTIME_SOURCE).toString());
+            var process = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+            var log = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (process.waitFor() != 0) {
+                System.err.print(log);
+                error("native.error.cc", cc, executable);
+            }
+        } catch (IOException e) {
+            error("native.error.cc", cc, executable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error("unexpected.error");
+        }
+    }
+
+    /**
+     * 运行可执行文件，标准输入输出转接到当前进程，运行时错误以RuntimeException抛出
+     */
+    public void run(Path executable) {
+        try {
+            var process = new ProcessBuilder(executable.toAbsolutePath().toString()).start();
+            var input = new Thread(() -> {
+                try (var stdin = process.getOutputStream()) {
+                    transfer(System.in, stdin);
+                } catch (IOException ignore) {
+                }
+            }, "cool-native-stdin");
+            input.setDaemon(true);
+            input.start();
+            var stderr = new ByteArrayOutputStream();
+            var errors = new Thread(() -> {
+                try {
+                    process.getErrorStream().transferTo(stderr);
+                } catch (IOException ignore) {
+                }
+            }, "cool-native-stderr");
+            errors.start();
+            transfer(process.getInputStream(), System.out);
+            var exit = process.waitFor();
+            errors.join();
+            if (exit != 0) throw new RuntimeException(stderr.toString(StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            error("native.error.run", executable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error("unexpected.error");
+        }
+    }
+
+    private static void transfer(InputStream in, OutputStream out) throws IOException {
+        var buffer = new byte[8192];
+        int length;
+        while ((length = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, length);
+            out.flush();
+        }
+    }
+
+    private static void copyResource(String name, Path target) throws IOException {
+        try (var in = NativeCompiler.class.getClassLoader().getResourceAsStream("c/" + name)) {
+            Files.write(target, in.readAllBytes());
+        }
+    }
+}
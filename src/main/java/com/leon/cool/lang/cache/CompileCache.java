@@ -0,0 +1,233 @@
+package com.leon.cool.lang.cache;
+
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.tree.compile.impl.LexicalAddressTreeScanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Properties;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CompileCache {
+
+    /**
+     * 缓存文件格式:
+     * magic(4) version(2)
+     * 语法树: 节点前序写出，(tag typeInfo starPos endPos 字段 子节点)
+     * classGraph methodGraph attrGraph symbolTables signatures，对语法树节点的引用写成后序编号，
+     * 调用点上写的是vtable槽位，signatures按槽位顺序写出方法签名
+     */
+    public static final int MAGIC = 0x434F4F41;
+    public static final int VERSION = 3;
+
+    private static final String SUFFIX = ".ast";
+    private static final String BUILD_PROPERTIES = "build.properties";
+
+    /**
+     * 缓存目录的默认大小上限
+     */
+    public static final long DEFAULT_LIMIT = 64L << 20;
+
+    private final Path directory;
+    private final long limit;
+
+    public CompileCache(Path directory) {
+        this(directory, DEFAULT_LIMIT);
+    }
+
+    public CompileCache(Path directory, long limit) {
+        this.directory = directory;
+        this.limit = limit;
+    }
+
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".cool", "cache");
+    }
+
+    /**
+     * 读取类型检查过的语法树，并填充treeSupport里的各个graph
+     *
+     * @return 没有缓存或者缓存损坏时返回null，treeSupport保持不变
+     */
+    public Program load(String source, TreeSupport treeSupport) {
+        var path = path(source);
+        if (!Files.isRegularFile(path)) return null;
+        Program program;
+        //先读到临时的TreeSupport里，完整读完才拷贝过去，读到一半失败时treeSupport不受影响
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ); var scratch = new TreeSupport()) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) throw new IllegalStateException();
+            program = new ProgramReader(buffer).read(scratch);
+            //frame槽位只依赖语法树，不写进缓存
+            program.accept(new LexicalAddressTreeScanner(scratch));
+            treeSupport.copyFrom(scratch);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignore) {
+            }
+            return null;
+        }
+        //命中时更新修改时间，淘汰时按修改时间删除最久没用过的缓存
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignore) {
+        }
+        return program;
+    }
+
+    /**
+     * 必须在执行之前调用，写失败的话只是没有缓存
+     */
+    public void store(String source, Program program, TreeSupport treeSupport) {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            new ProgramWriter(treeSupport, out).write(program);
+        } catch (IOException | UncheckedIOException e) {
+            return;
+        }
+        //先写临时文件再改名，并发执行同一个程序时不会读到写了一半的缓存
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "cool", ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path(source), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignore) {
+            }
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * 缓存总大小超过limit时按修改时间从旧到新删除，刚写入的缓存最后才会被删
+     */
+    private void evict() {
+        var entries = new ArrayList<Path>();
+        var attributes = new HashMap<Path, BasicFileAttributes>();
+        var total = 0L;
+        try (var stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (var path : stream) {
+                try {
+                    var attribute = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(path);
+                    attributes.put(path, attribute);
+                    total += attribute.size();
+                } catch (IOException ignore) {
+                    //并发执行时可能已经被别的进程删掉
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+        if (total <= limit) return;
+        entries.sort(Comparator.comparing(e -> attributes.get(e).lastModifiedTime()));
+        for (var path : entries) {
+            if (total <= limit) break;
+            try {
+                Files.deleteIfExists(path);
+                total -= attributes.get(path).size();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    public Path path(String source) {
+        return directory.resolve(key(source) + SUFFIX);
+    }
+
+    /**
+     * 源码和编译器版本的SHA-256
+     */
+    public static String key(String source) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerVersion().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * 缓存格式版本加上构建时写进build.properties的版本号和构建时间，重新构建编译器后旧的缓存都不会命中
+     */
+    public static String compilerVersion() {
+        return VERSION + "/" + buildVersion();
+    }
+
+    /**
+     * 只在第一次调用时读一个很小的资源文件，不再在启动时读取编译器的class文件
+     *
+     * @return 构建时生成的编译器版本，拿不到时返回null，这时不应该使用缓存
+     */
+    public static String buildVersion() {
+        return BuildVersion.VALUE;
+    }
+
+    private static class BuildVersion {
+        private static final String VALUE = load();
+
+        private static String load() {
+            try (var stream = CompileCache.class.getClassLoader().getResourceAsStream(BUILD_PROPERTIES)) {
+                if (stream == null) return null;
+                var properties = new Properties();
+                properties.load(stream);
+                var version = properties.getProperty("version");
+                var timestamp = properties.getProperty("timestamp");
+                //没有经过maven的资源过滤时占位符原样保留
+                if (version == null || timestamp == null || version.startsWith("${") || timestamp.startsWith("${")) return null;
+                return version + "-" + timestamp;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        var builder = new StringBuilder();
+        for (var b : bytes) builder.append(String.format("%02x", b));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,321 @@
+package com.leon.cool.lang.cache;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.TreeNode;
+import com.leon.cool.lang.glossary.TokenKind;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.AttrDeclaration;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.SymbolTable;
+import com.leon.cool.lang.tokenizer.Symbols;
+import com.leon.cool.lang.tokenizer.Token;
+import com.leon.cool.lang.tree.compile.impl.LexicalAddressTreeScanner;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class IncrementalCompiler implements Closeable {
+
+    /**
+     * 上一次编译成功的结果，编译失败时保持不变
+     */
+    private Program program;
+    private TreeSupport treeSupport;
+    private Map<String, Unit> units = new HashMap<>();
+
+    /**
+     * 每次都用同一个符号表解析，复用的MethodDeclaration和新语法树里的名字是同一个引用
+     */
+    private final Symbols symbols = new Symbols();
+
+    /**
+     * 上一次编译重新检查过的类
+     */
+    public final Set<String> recompiled = new LinkedHashSet<>();
+
+    /**
+     * 整个源码重新做词法分析和语法分析，只对改动过的类和依赖它们的类重新建graph和做类型检查，
+     * 其他类的graph和typeInfo从上一次的结果复制到新的语法树上
+     *
+     * @return 有错误时打印错误并返回null
+     */
+    public Program compile(String str) {
+        var expr = Bootstrap.parse(str, symbols);
+        if (expr == null) return null;
+        var next = new HashMap<String, Unit>();
+        var duplicated = new HashSet<String>();
+        for (var classDef : expr.classDef) {
+            if (next.put(classDef.type.name, new Unit(classDef)) != null) duplicated.add(classDef.type.name);
+        }
+
+        //重复定义的类交给ClassGraphTreeScanner报错
+        var dirty = dirty(next);
+        dirty.addAll(duplicated);
+        var support = new TreeSupport();
+        //复用的调用点上的槽位是按上一次的签名表分配的，新的签名接在后面
+        if (treeSupport != null) treeSupport.signatures().forEach(support::addSignature);
+        var checked = new ArrayList<ClassDef>();
+        var nodes = new IdentityHashMap<TreeNode, TreeNode>();
+        for (var classDef : expr.classDef) {
+            var name = classDef.type.name;
+            if (dirty.contains(name)) {
+                checked.add(classDef);
+            } else {
+                map(units.get(name), next.get(name), nodes, support);
+            }
+        }
+        var unresolved = new ArrayList<MethodDeclaration>();
+        for (var classDef : expr.classDef) {
+            if (!dirty.contains(classDef.type.name)) reuse(classDef.type.name, support, nodes, unresolved);
+        }
+        try {
+            if (!Bootstrap.check(new Program(checked), support)) {
+                support.close();
+                return null;
+            }
+        } catch (RuntimeException e) {
+            support.close();
+            throw e;
+        }
+        //从只改了方法体的父类继承来的方法，指向父类重新检查后的MethodDef
+        for (var declaration : unresolved) {
+            support.methodGraph.get(declaration.owner).stream().filter(e -> e.equals(declaration)).findFirst().ifPresent(e -> declaration.declaration = e.declaration);
+        }
+        //复用的类也要按新的语法树分配frame槽位
+        expr.accept(new LexicalAddressTreeScanner(support));
+        if (treeSupport != null) treeSupport.close();
+        program = expr;
+        treeSupport = support;
+        units = next;
+        units.values().forEach(Unit::collectTypes);
+        recompiled.clear();
+        checked.forEach(e -> recompiled.add(e.type.name));
+        return program;
+    }
+
+    public Program program() {
+        return program;
+    }
+
+    public TreeSupport treeSupport() {
+        return treeSupport;
+    }
+
+    @Override
+    public void close() {
+        if (treeSupport != null) treeSupport.close();
+    }
+
+    /**
+     * 形状改变的类要重新检查；新增，删除和接口改变的类连同它们的子类，还会让用到它们的类重新检查。
+     * 只改了方法体的话接口不变，其他类不受影响
+     */
+    private Set<String> dirty(Map<String, Unit> next) {
+        var changed = new HashSet<String>();
+        var interfaces = new HashSet<String>();
+        for (var entry : next.entrySet()) {
+            var previous = units.get(entry.getKey());
+            if (previous == null) {
+                interfaces.add(entry.getKey());
+            } else if (!Arrays.equals(previous.shape, entry.getValue().shape)) {
+                changed.add(entry.getKey());
+                if (!Arrays.equals(previous.signature, entry.getValue().signature)) interfaces.add(entry.getKey());
+            }
+        }
+        for (var name : units.keySet()) {
+            if (!next.containsKey(name)) interfaces.add(name);
+        }
+        var grown = true;
+        while (grown) {
+            grown = false;
+            for (var entry : next.entrySet()) {
+                if (!interfaces.contains(entry.getKey()) && parents(entry.getKey(), next).stream().anyMatch(interfaces::contains)) {
+                    interfaces.add(entry.getKey());
+                    grown = true;
+                }
+            }
+        }
+        var dirty = new HashSet<>(changed);
+        dirty.addAll(interfaces);
+        for (var entry : next.entrySet()) {
+            var dependencies = new HashSet<>(entry.getValue().dependencies);
+            var previous = units.get(entry.getKey());
+            if (previous != null) dependencies.addAll(previous.dependencies);
+            if (dependencies.stream().anyMatch(interfaces::contains)) dirty.add(entry.getKey());
+        }
+        dirty.retainAll(next.keySet());
+        return dirty;
+    }
+
+    private Set<String> parents(String name, Map<String, Unit> next) {
+        var parents = new HashSet<String>();
+        next.get(name).classDef.inheritsType.ifPresent(e -> parents.add(e.name));
+        var previous = units.get(name);
+        if (previous != null) previous.classDef.inheritsType.ifPresent(e -> parents.add(e.name));
+        return parents;
+    }
+
+    /**
+     * 没改动的类：形状相同的两棵树按后序一一对应，typeInfo换成support里的同名类型后复制到新树的节点上
+     */
+    private static void map(Unit previous, Unit next, Map<TreeNode, TreeNode> nodes, TreeSupport support) {
+        for (var i = 0; i < previous.nodes.size(); i++) {
+            var from = previous.nodes.get(i);
+            var to = next.nodes.get(i);
+            to.typeInfo = support.types.of(from.typeInfo);
+            if (from instanceof IntConst) ((IntConst) to).index = ((IntConst) from).index;
+            if (from instanceof StringConst) ((StringConst) to).index = ((StringConst) from).index;
+            if (from instanceof Dispatch) ((Dispatch) to).slot = ((Dispatch) from).slot;
+            if (from instanceof StaticDispatch) ((StaticDispatch) to).slot = ((StaticDispatch) from).slot;
+            nodes.put(from, to);
+        }
+        next.classDef.typeInfo = support.types.of(previous.classDef.typeInfo);
+    }
+
+    /**
+     * 复制没改动的类在TreeSupport里的内容，对语法树节点的引用换成新树的节点，
+     * 继承来的方法如果属于重新检查的祖先类，先放进unresolved
+     */
+    private void reuse(String name, TreeSupport support, Map<TreeNode, TreeNode> nodes, List<MethodDeclaration> unresolved) {
+        support.classGraph.put(name, treeSupport.classGraph.get(name));
+        var declarations = new LinkedHashSet<MethodDeclaration>();
+        for (var declaration : treeSupport.methodGraph.get(name)) {
+            var copy = new MethodDeclaration();
+            copy.methodName = declaration.methodName;
+            copy.paramTypes = new ArrayList<>(declaration.paramTypes);
+            copy.returnType = declaration.returnType;
+            copy.owner = declaration.owner;
+            copy.declaration = (MethodDef) nodes.get(declaration.declaration);
+            if (copy.declaration == null) unresolved.add(copy);
+            declarations.add(copy);
+        }
+        support.methodGraph.put(name, declarations);
+        var attrs = new LinkedHashMap<String, AttrDeclaration>();
+        for (var entry : treeSupport.attrGraph.get(name).entrySet()) {
+            var copy = new AttrDeclaration();
+            copy.id = entry.getValue().id;
+            copy.type = entry.getValue().type;
+            copy.expr = entry.getValue().expr.map(e -> (Expression) nodes.get(e));
+            attrs.put(entry.getKey(), copy);
+        }
+        support.attrGraph.put(name, attrs);
+        var symbolTable = new SymbolTable<String>();
+        var previous = treeSupport.symbolTables.get(name);
+        for (var i = previous.size() - 1; i >= 0; i--) {
+            symbolTable.enterScope();
+            previous.elementAt(i).forEach(symbolTable::addId);
+        }
+        support.symbolTables.put(name, symbolTable);
+    }
+
+    private static Set<String> typeNames(Type type, Set<String> names) {
+        if (type == null) return names;
+        if (type.type() == TypeEnum.OBJECT) {
+            names.add(type.className());
+        } else if (type.type() == TypeEnum.SELF_TYPE) {
+            names.add(type.replace().className());
+        }
+        return names;
+    }
+
+    private static class Unit {
+        private final ClassDef classDef;
+        private final byte[] shape;
+
+        /**
+         * 父类，属性类型和方法签名
+         */
+        private final byte[] signature;
+        private final List<TreeNode> nodes;
+
+        /**
+         * 父类，类里出现的类型名和表达式的静态类型
+         */
+        private final Set<String> dependencies = new HashSet<>();
+
+        private Unit(ClassDef classDef) {
+            this.classDef = classDef;
+            var bytes = new ByteArrayOutputStream();
+            var writer = new ProgramWriter(null, new DataOutputStream(bytes), true);
+            writer.applyClassDef(classDef);
+            this.shape = bytes.toByteArray();
+            this.nodes = writer.nodes;
+            this.signature = signature(classDef);
+            classDef.inheritsType.ifPresent(e -> dependencies.add(e.name));
+            for (var node : nodes) {
+                if (node instanceof Token && ((Token) node).kind == TokenKind.TYPE) dependencies.add(((Token) node).name);
+            }
+            dependencies.remove(classDef.type.name);
+        }
+
+        private static byte[] signature(ClassDef classDef) {
+            var bytes = new ByteArrayOutputStream();
+            try (var out = new DataOutputStream(bytes)) {
+                out.writeUTF(classDef.inheritsType.map(e -> e.name).orElse(""));
+                for (var feature : classDef.features) {
+                    if (feature instanceof AttrDef) {
+                        var attrDef = (AttrDef) feature;
+                        out.writeUTF(attrDef.id.name + ":" + attrDef.type.name);
+                    } else {
+                        var methodDef = (MethodDef) feature;
+                        var params = methodDef.formals.stream().map(e -> e.id.name + ":" + e.type.name).collect(Collectors.joining(","));
+                        out.writeUTF(methodDef.id.name + "(" + params + "):" + methodDef.type.name);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * 类型检查之后再收集静态类型
+         */
+        private void collectTypes() {
+            for (var node : nodes) typeNames(node.typeInfo, dependencies);
+            dependencies.remove(classDef.type.name);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.leon.cool.lang.cache;
+
+import com.leon.cool.lang.ast.Assign;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.BoolConst;
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.ast.Cond;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.Formal;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.IsVoid;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.LetAttrDef;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.Lt;
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Mul;
+import com.leon.cool.lang.ast.Neg;
+import com.leon.cool.lang.ast.NewDef;
+import com.leon.cool.lang.ast.NoExpression;
+import com.leon.cool.lang.ast.Not;
+import com.leon.cool.lang.ast.Paren;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StaticDispatchBody;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.Sub;
+import com.leon.cool.lang.ast.TreeNode;
+import com.leon.cool.lang.factory.TypeFactory;
+import com.leon.cool.lang.glossary.Pos;
+import com.leon.cool.lang.glossary.TokenKind;
+import com.leon.cool.lang.glossary.TokenTag;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.AttrDeclaration;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.SymbolTable;
+import com.leon.cool.lang.tokenizer.Symbols;
+import com.leon.cool.lang.tokenizer.Token;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+
+import static com.leon.cool.lang.factory.TypeFactory.booleanType;
+import static com.leon.cool.lang.factory.TypeFactory.integerType;
+import static com.leon.cool.lang.factory.TypeFactory.noType;
+import static com.leon.cool.lang.factory.TypeFactory.stringType;
+import static com.leon.cool.lang.factory.TypeFactory.voidType;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+class ProgramReader {
+
+    private static final TypeEnum[] TYPES = TypeEnum.values();
+
+    private final ByteBuffer buffer;
+
+    /**
+     * 和ProgramWriter一样按后序编号
+     */
+    private final List<TreeNode> nodes = new ArrayList<>();
+
+    /**
+     * 读出的类型intern到treeSupport里
+     */
+    private TypeFactory types;
+
+    /**
+     * 调用点上最大的槽位，读完签名后检查
+     */
+    private int maxSlot = -1;
+
+    /**
+     * 这次读缓存用的符号表
+     */
+    private final Symbols symbols = new Symbols();
+
+    ProgramReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * 读出语法树并填充treeSupport里的classGraph，methodGraph，attrGraph，symbolTables和方法签名的槽位
+     */
+    Program read(TreeSupport treeSupport) {
+        types = treeSupport.types;
+        Program program = node();
+        var classes = buffer.getInt();
+        for (var i = 0; i < classes; i++) {
+            treeSupport.classGraph.put(readSymbol(), readSymbol());
+        }
+        classes = buffer.getInt();
+        for (var i = 0; i < classes; i++) {
+            var className = readSymbol();
+            var declarations = new LinkedHashSet<MethodDeclaration>();
+            var size = buffer.getInt();
+            for (var j = 0; j < size; j++) {
+                var declaration = new MethodDeclaration();
+                declaration.methodName = readSymbol();
+                var params = buffer.getInt();
+                for (var k = 0; k < params; k++) declaration.paramTypes.add(readSymbol());
+                declaration.returnType = readSymbol();
+                declaration.owner = readSymbol();
+                declaration.declaration = (MethodDef) reference(buffer.getInt());
+                declarations.add(declaration);
+            }
+            treeSupport.methodGraph.put(className, declarations);
+        }
+        classes = buffer.getInt();
+        for (var i = 0; i < classes; i++) {
+            var className = readSymbol();
+            var attrs = new LinkedHashMap<String, AttrDeclaration>();
+            var size = buffer.getInt();
+            for (var j = 0; j < size; j++) {
+                var key = readSymbol();
+                var attr = new AttrDeclaration();
+                attr.id = readSymbol();
+                attr.type = readSymbol();
+                var id = buffer.getInt();
+                if (id != -2) attr.expr = Optional.ofNullable((Expression) reference(id));
+                attrs.put(key, attr);
+            }
+            treeSupport.attrGraph.put(className, attrs);
+        }
+        classes = buffer.getInt();
+        for (var i = 0; i < classes; i++) {
+            var className = readSymbol();
+            var symbolTable = new SymbolTable<String>();
+            var scopes = buffer.getInt();
+            for (var j = 0; j < scopes; j++) {
+                symbolTable.enterScope();
+                var size = buffer.getInt();
+                for (var k = 0; k < size; k++) symbolTable.addId(readSymbol(), readSymbol());
+            }
+            treeSupport.symbolTables.put(className, symbolTable);
+        }
+        var signatures = buffer.getInt();
+        for (var i = 0; i < signatures; i++) {
+            //槽位必须和写缓存时一样，调用点上的槽位才有效
+            if (treeSupport.addSignature(readString()) != i) throw new IllegalStateException();
+        }
+        if (maxSlot >= signatures) throw new IllegalStateException();
+        if (buffer.hasRemaining()) throw new IllegalStateException();
+        return program;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends TreeNode> T node() {
+        var tag = buffer.get();
+        var typeInfo = readType();
+        var starPos = readPos();
+        var endPos = readPos();
+        TreeNode node;
+        switch (tag) {
+            case ProgramWriter.PROGRAM:
+                node = new Program(nodes());
+                break;
+            case ProgramWriter.CLASS_DEF:
+                var classType = readType();
+                var classDef = new ClassDef(node(), optional(), nodes());
+                classDef.typeInfo = classType;
+                node = classDef;
+                break;
+            case ProgramWriter.METHOD_DEF:
+                node = new MethodDef(node(), nodes(), node(), node());
+                break;
+            case ProgramWriter.ATTR_DEF:
+                node = new AttrDef(node(), node(), optional());
+                break;
+            case ProgramWriter.LET_ATTR_DEF:
+                node = new LetAttrDef(node(), node(), optional());
+                break;
+            case ProgramWriter.FORMAL:
+                node = new Formal(node(), node());
+                break;
+            case ProgramWriter.ASSIGN:
+                node = new Assign(node(), node());
+                break;
+            case ProgramWriter.DISPATCH:
+                var dispatchSlot = readSlot();
+                var dispatch = new Dispatch(node(), nodes());
+                dispatch.slot = dispatchSlot;
+                node = dispatch;
+                break;
+            case ProgramWriter.STATIC_DISPATCH_BODY:
+                node = new StaticDispatchBody(node(), nodes());
+                break;
+            case ProgramWriter.STATIC_DISPATCH:
+                var staticDispatchSlot = readSlot();
+                var staticDispatch = new StaticDispatch(node(), optional(), node());
+                staticDispatch.slot = staticDispatchSlot;
+                node = staticDispatch;
+                break;
+            case ProgramWriter.COND:
+                node = new Cond(node(), node(), node());
+                break;
+            case ProgramWriter.LOOP:
+                node = new Loop(node(), node());
+                break;
+            case ProgramWriter.BLOCKS:
+                node = new Blocks(nodes());
+                break;
+            case ProgramWriter.LET:
+                node = new Let(nodes(), node());
+                break;
+            case ProgramWriter.CASE_DEF:
+                node = new CaseDef(node(), nodes());
+                break;
+            case ProgramWriter.BRANCH:
+                node = new Branch(node(), node(), node());
+                break;
+            case ProgramWriter.NEW_DEF:
+                node = new NewDef(node());
+                break;
+            case ProgramWriter.IS_VOID:
+                node = new IsVoid(node());
+                break;
+            case ProgramWriter.PLUS:
+                node = new Plus(node(), node());
+                break;
+            case ProgramWriter.SUB:
+                node = new Sub(node(), node());
+                break;
+            case ProgramWriter.MUL:
+                node = new Mul(node(), node());
+                break;
+            case ProgramWriter.DIVIDE:
+                node = new Divide(node(), node());
+                break;
+            case ProgramWriter.NEG:
+                node = new Neg(node());
+                break;
+            case ProgramWriter.LT:
+                node = new Lt(node(), node());
+                break;
+            case ProgramWriter.LT_EQ:
+                node = new LtEq(node(), node());
+                break;
+            case ProgramWriter.COMP:
+                node = new Comp(node(), node());
+                break;
+            case ProgramWriter.NOT:
+                node = new Not(node());
+                break;
+            case ProgramWriter.ID_CONST:
+                node = new IdConst(node());
+                break;
+            case ProgramWriter.STRING_CONST:
+                var stringIndex = buffer.getInt();
+                var stringConst = new StringConst(node());
+                stringConst.index = stringIndex;
+                node = stringConst;
+                break;
+            case ProgramWriter.BOOL_CONST:
+                node = new BoolConst(buffer.get() != 0);
+                break;
+            case ProgramWriter.INT_CONST:
+                var intIndex = buffer.getInt();
+                var intConst = new IntConst(node());
+                intConst.index = intIndex;
+                node = intConst;
+                break;
+            case ProgramWriter.TOKEN:
+                var name = readString();
+                var kind = TokenKind.valueOf(readString());
+                //字符串和数字字面量不放进符号表
+                var token = new Token(kind.tag == TokenTag.STR || kind.tag == TokenTag.NUM ? name : symbols.symbol(name), kind);
+                token.startPos = readPos();
+                token.endPos = readPos();
+                node = token;
+                break;
+            case ProgramWriter.PAREN:
+                node = new Paren(node());
+                break;
+            case ProgramWriter.NO_EXPRESSION:
+                node = new NoExpression();
+                break;
+            default:
+                throw new IllegalStateException("tag " + tag);
+        }
+        node.typeInfo = typeInfo;
+        node.starPos = starPos;
+        node.endPos = endPos;
+        nodes.add(node);
+        return (T) node;
+    }
+
+    private <T extends TreeNode> List<T> nodes() {
+        var size = buffer.getInt();
+        var list = new ArrayList<T>(size);
+        for (var i = 0; i < size; i++) list.add(node());
+        return list;
+    }
+
+    private <T extends TreeNode> Optional<T> optional() {
+        if (buffer.get() == 0) return Optional.empty();
+        return Optional.of(node());
+    }
+
+    private int readSlot() {
+        var slot = buffer.getInt();
+        if (slot < -1) throw new IllegalStateException();
+        maxSlot = Math.max(maxSlot, slot);
+        return slot;
+    }
+
+    private TreeNode reference(int id) {
+        return id < 0 ? null : nodes.get(id);
+    }
+
+    private Type readType() {
+        var tag = buffer.get();
+        if (tag == 0) return null;
+        switch (TYPES[tag - 1]) {
+            case STRING:
+                return stringType();
+            case INT:
+                return integerType();
+            case BOOL:
+                return booleanType();
+            case OBJECT:
+                return types.objectType(readSymbol());
+            case SELF_TYPE:
+                return types.selfType(readSymbol());
+            case NO_TYPE:
+                return noType();
+            default:
+                return voidType();
+        }
+    }
+
+    private Pos readPos() {
+        if (buffer.get() == 0) return null;
+        var column = buffer.getInt();
+        var row = buffer.getInt();
+        return new Pos(column, row);
+    }
+
+    private String readString() {
+        var length = buffer.getInt();
+        if (length < 0) return null;
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 类名，方法名和变量名和CoolTokenizer一样放进符号表，读出来的程序里同名的符号是同一个引用
+     */
+    private String readSymbol() {
+        return symbols.symbol(readString());
+    }
+}
@@ -0,0 +1,543 @@
+package com.leon.cool.lang.cache;
+
+import com.leon.cool.lang.ast.Assign;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.BoolConst;
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.ast.Cond;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.ast.Formal;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.IsVoid;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.LetAttrDef;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.Lt;
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Mul;
+import com.leon.cool.lang.ast.Neg;
+import com.leon.cool.lang.ast.NewDef;
+import com.leon.cool.lang.ast.NoExpression;
+import com.leon.cool.lang.ast.Not;
+import com.leon.cool.lang.ast.Paren;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StaticDispatchBody;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.Sub;
+import com.leon.cool.lang.ast.TreeNode;
+import com.leon.cool.lang.glossary.Pos;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.tokenizer.Token;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+class ProgramWriter extends TreeScanner {
+
+    static final byte PROGRAM = 1;
+    static final byte CLASS_DEF = 2;
+    static final byte METHOD_DEF = 3;
+    static final byte ATTR_DEF = 4;
+    static final byte LET_ATTR_DEF = 5;
+    static final byte FORMAL = 6;
+    static final byte ASSIGN = 7;
+    static final byte DISPATCH = 8;
+    static final byte STATIC_DISPATCH_BODY = 9;
+    static final byte STATIC_DISPATCH = 10;
+    static final byte COND = 11;
+    static final byte LOOP = 12;
+    static final byte BLOCKS = 13;
+    static final byte LET = 14;
+    static final byte CASE_DEF = 15;
+    static final byte BRANCH = 16;
+    static final byte NEW_DEF = 17;
+    static final byte IS_VOID = 18;
+    static final byte PLUS = 19;
+    static final byte SUB = 20;
+    static final byte MUL = 21;
+    static final byte DIVIDE = 22;
+    static final byte NEG = 23;
+    static final byte LT = 24;
+    static final byte LT_EQ = 25;
+    static final byte COMP = 26;
+    static final byte NOT = 27;
+    static final byte ID_CONST = 28;
+    static final byte STRING_CONST = 29;
+    static final byte BOOL_CONST = 30;
+    static final byte INT_CONST = 31;
+    static final byte TOKEN = 32;
+    static final byte PAREN = 33;
+    static final byte NO_EXPRESSION = 34;
+
+    private final DataOutputStream out;
+
+    /**
+     * true的话只写语法树的形状，不写typeInfo和位置，用来比较类有没有改动
+     */
+    private final boolean shape;
+
+    /**
+     * 节点按后序编号，TreeSupport里对MethodDef和属性初始化表达式的引用写成编号
+     */
+    private final Map<TreeNode, Integer> ids = new IdentityHashMap<>();
+
+    final List<TreeNode> nodes = new ArrayList<>();
+
+    ProgramWriter(TreeSupport treeSupport, DataOutputStream out) {
+        this(treeSupport, out, false);
+    }
+
+    ProgramWriter(TreeSupport treeSupport, DataOutputStream out, boolean shape) {
+        super(treeSupport);
+        this.out = out;
+        this.shape = shape;
+    }
+
+    /**
+     * 先写语法树，再写classGraph，methodGraph，attrGraph，symbolTables和按槽位排列的方法签名
+     */
+    void write(Program program) {
+        scan(program);
+        writeInt(treeSupport.classGraph.size());
+        for (var entry : treeSupport.classGraph.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+        writeInt(treeSupport.methodGraph.size());
+        for (var entry : treeSupport.methodGraph.entrySet()) {
+            writeString(entry.getKey());
+            writeInt(entry.getValue().size());
+            for (var declaration : entry.getValue()) {
+                writeString(declaration.methodName);
+                writeInt(declaration.paramTypes.size());
+                for (var paramType : declaration.paramTypes) writeString(paramType);
+                writeString(declaration.returnType);
+                writeString(declaration.owner);
+                writeInt(id(declaration.declaration));
+            }
+        }
+        writeInt(treeSupport.attrGraph.size());
+        for (var entry : treeSupport.attrGraph.entrySet()) {
+            writeString(entry.getKey());
+            writeInt(entry.getValue().size());
+            for (var attr : entry.getValue().entrySet()) {
+                writeString(attr.getKey());
+                writeString(attr.getValue().id);
+                writeString(attr.getValue().type);
+                writeInt(attr.getValue().expr == null ? -2 : id(attr.getValue().expr.orElse(null)));
+            }
+        }
+        writeInt(treeSupport.symbolTables.size());
+        for (var entry : treeSupport.symbolTables.entrySet()) {
+            writeString(entry.getKey());
+            var symbolTable = entry.getValue();
+            writeInt(symbolTable.size());
+            //从最外层的作用域开始写
+            for (var i = symbolTable.size() - 1; i >= 0; i--) {
+                var scope = symbolTable.elementAt(i);
+                writeInt(scope.size());
+                for (var symbol : scope.entrySet()) {
+                    writeString(symbol.getKey());
+                    writeString(symbol.getValue());
+                }
+            }
+        }
+        var signatures = treeSupport.signatures();
+        writeInt(signatures.size());
+        for (var signature : signatures) writeString(signature);
+    }
+
+    @Override
+    public void applyProgram(Program program) {
+        begin(PROGRAM, program);
+        nodes(program.classDef);
+        end(program);
+    }
+
+    @Override
+    public void applyClassDef(ClassDef classDef) {
+        begin(CLASS_DEF, classDef);
+        if (!shape) writeType(classDef.typeInfo);
+        scan(classDef.type);
+        node(classDef.inheritsType);
+        nodes(classDef.features);
+        end(classDef);
+    }
+
+    @Override
+    public void applyMethodDef(MethodDef methodDef) {
+        begin(METHOD_DEF, methodDef);
+        scan(methodDef.id);
+        nodes(methodDef.formals);
+        scan(methodDef.type);
+        scan(methodDef.expr);
+        end(methodDef);
+    }
+
+    @Override
+    public void applyAttrDef(AttrDef attrDef) {
+        begin(ATTR_DEF, attrDef);
+        scan(attrDef.id);
+        scan(attrDef.type);
+        node(attrDef.expr);
+        end(attrDef);
+    }
+
+    @Override
+    public void applyLetAttrDef(LetAttrDef letAttrDef) {
+        begin(LET_ATTR_DEF, letAttrDef);
+        scan(letAttrDef.id);
+        scan(letAttrDef.type);
+        node(letAttrDef.expr);
+        end(letAttrDef);
+    }
+
+    @Override
+    public void applyFormal(Formal formal) {
+        begin(FORMAL, formal);
+        scan(formal.id);
+        scan(formal.type);
+        end(formal);
+    }
+
+    @Override
+    public void applyAssign(Assign assign) {
+        begin(ASSIGN, assign);
+        scan(assign.id);
+        scan(assign.expr);
+        end(assign);
+    }
+
+    @Override
+    public void applyDispatch(Dispatch dispatch) {
+        begin(DISPATCH, dispatch);
+        writeSlot(dispatch.slot);
+        scan(dispatch.id);
+        nodes(dispatch.params);
+        end(dispatch);
+    }
+
+    @Override
+    public void applyStaticDispatchBody(StaticDispatchBody staticDispatchBody) {
+        begin(STATIC_DISPATCH_BODY, staticDispatchBody);
+        scan(staticDispatchBody.id);
+        nodes(staticDispatchBody.params);
+        end(staticDispatchBody);
+    }
+
+    @Override
+    public void applyStaticDispatch(StaticDispatch staticDispatch) {
+        begin(STATIC_DISPATCH, staticDispatch);
+        writeSlot(staticDispatch.slot);
+        scan(staticDispatch.expr);
+        node(staticDispatch.type);
+        scan(staticDispatch.dispatch);
+        end(staticDispatch);
+    }
+
+    @Override
+    public void applyCond(Cond cond) {
+        begin(COND, cond);
+        scan(cond.condExpr);
+        scan(cond.thenExpr);
+        scan(cond.elseExpr);
+        end(cond);
+    }
+
+    @Override
+    public void applyLoop(Loop loop) {
+        begin(LOOP, loop);
+        scan(loop.condExpr);
+        scan(loop.loopExpr);
+        end(loop);
+    }
+
+    @Override
+    public void applyBlocks(Blocks blocks) {
+        begin(BLOCKS, blocks);
+        nodes(blocks.exprs);
+        end(blocks);
+    }
+
+    @Override
+    public void applyLet(Let let) {
+        begin(LET, let);
+        nodes(let.attrDefs);
+        scan(let.expr);
+        end(let);
+    }
+
+    @Override
+    public void applyCaseDef(CaseDef caseDef) {
+        begin(CASE_DEF, caseDef);
+        scan(caseDef.caseExpr);
+        nodes(caseDef.branchList);
+        end(caseDef);
+    }
+
+    @Override
+    public void applyBranch(Branch branch) {
+        begin(BRANCH, branch);
+        scan(branch.id);
+        scan(branch.type);
+        scan(branch.expr);
+        end(branch);
+    }
+
+    @Override
+    public void applyNewDef(NewDef newDef) {
+        begin(NEW_DEF, newDef);
+        scan(newDef.type);
+        end(newDef);
+    }
+
+    @Override
+    public void applyIsVoid(IsVoid isVoid) {
+        unary(IS_VOID, isVoid, isVoid.expr);
+    }
+
+    @Override
+    public void applyPlus(Plus plus) {
+        binary(PLUS, plus, plus.left, plus.right);
+    }
+
+    @Override
+    public void applySub(Sub sub) {
+        binary(SUB, sub, sub.left, sub.right);
+    }
+
+    @Override
+    public void applyMul(Mul mul) {
+        binary(MUL, mul, mul.left, mul.right);
+    }
+
+    @Override
+    public void applyDivide(Divide divide) {
+        binary(DIVIDE, divide, divide.left, divide.right);
+    }
+
+    @Override
+    public void applyNeg(Neg neg) {
+        unary(NEG, neg, neg.expr);
+    }
+
+    @Override
+    public void applyLt(Lt lt) {
+        binary(LT, lt, lt.left, lt.right);
+    }
+
+    @Override
+    public void applyLtEq(LtEq ltEq) {
+        binary(LT_EQ, ltEq, ltEq.left, ltEq.right);
+    }
+
+    @Override
+    public void applyComp(Comp comp) {
+        binary(COMP, comp, comp.left, comp.right);
+    }
+
+    @Override
+    public void applyNot(Not not) {
+        unary(NOT, not, not.expr);
+    }
+
+    @Override
+    public void applyIdConst(IdConst idConst) {
+        begin(ID_CONST, idConst);
+        scan(idConst.tok);
+        end(idConst);
+    }
+
+    @Override
+    public void applyStringConst(StringConst stringConst) {
+        begin(STRING_CONST, stringConst);
+        writeInt(stringConst.index);
+        scan(stringConst.tok);
+        end(stringConst);
+    }
+
+    @Override
+    public void applyBoolConst(BoolConst boolConst) {
+        begin(BOOL_CONST, boolConst);
+        writeBoolean(boolConst.bool);
+        end(boolConst);
+    }
+
+    @Override
+    public void applyIntConst(IntConst intConst) {
+        begin(INT_CONST, intConst);
+        writeInt(intConst.index);
+        scan(intConst.tok);
+        end(intConst);
+    }
+
+    @Override
+    public void applyToken(Token token) {
+        begin(TOKEN, token);
+        writeString(token.name);
+        writeString(token.kind.name());
+        if (!shape) {
+            writePos(token.startPos);
+            writePos(token.endPos);
+        }
+        end(token);
+    }
+
+    @Override
+    public void applyParen(Paren paren) {
+        unary(PAREN, paren, paren.expr);
+    }
+
+    @Override
+    public void applyNoExpression(NoExpression expr) {
+        begin(NO_EXPRESSION, expr);
+        end(expr);
+    }
+
+    private void unary(byte tag, TreeNode node, TreeNode expr) {
+        begin(tag, node);
+        scan(expr);
+        end(node);
+    }
+
+    private void binary(byte tag, TreeNode node, TreeNode left, TreeNode right) {
+        begin(tag, node);
+        scan(left);
+        scan(right);
+        end(node);
+    }
+
+    /**
+     * 节点头: tag typeInfo starPos endPos，
+     * Token和ClassDef里的同名字段会遮住TreeNode的字段，它们另外写
+     */
+    private void begin(byte tag, TreeNode node) {
+        writeByte(tag);
+        if (shape) return;
+        writeType(node.typeInfo);
+        writePos(node.starPos);
+        writePos(node.endPos);
+    }
+
+    private void end(TreeNode node) {
+        ids.put(node, ids.size());
+        nodes.add(node);
+    }
+
+    private int id(TreeNode node) {
+        if (node == null) return -1;
+        return ids.getOrDefault(node, -1);
+    }
+
+    private void nodes(List<? extends TreeNode> nodes) {
+        writeInt(nodes.size());
+        scan(nodes);
+    }
+
+    private void node(Optional<? extends TreeNode> node) {
+        writeBoolean(node.isPresent());
+        scan(node);
+    }
+
+    /**
+     * null写成0，其他写成TypeEnum序号加1，OBJECT和SELF_TYPE后面跟类名
+     */
+    private void writeType(Type type) {
+        if (type == null) {
+            writeByte(0);
+            return;
+        }
+        writeByte(type.type().ordinal() + 1);
+        if (type.type() == TypeEnum.OBJECT) {
+            writeString(type.className());
+        } else if (type.type() == TypeEnum.SELF_TYPE) {
+            writeString(type.replace().className());
+        }
+    }
+
+    /**
+     * 类型检查选出的重载方法的vtable槽位，没有类型检查过时是-1
+     */
+    private void writeSlot(int slot) {
+        if (shape) return;
+        writeInt(slot);
+    }
+
+    private void writePos(Pos pos) {
+        writeBoolean(pos != null);
+        if (pos != null) {
+            writeInt(pos.column);
+            writeInt(pos.row);
+        }
+    }
+
+    private void writeString(String str) {
+        if (str == null) {
+            writeInt(-1);
+            return;
+        }
+        var bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeByte(int value) {
+        try {
+            out.writeByte(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    private void writeInt(int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
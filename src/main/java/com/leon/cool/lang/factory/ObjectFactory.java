@@ -3,6 +3,7 @@ package com.leon.cool.lang.factory;
 import com.leon.cool.lang.glossary.Nullable;
 import com.leon.cool.lang.object.*;
 
+
 /**
  * Copyright leon
  * <p>
@@ -22,32 +23,64 @@ import com.leon.cool.lang.object.*;
  */
 public class ObjectFactory {
 
+    /**
+     * Int和Bool不可变，小整数，true，false和void都共用同一个对象
+     */
+    private static final int LOW = -128;
+    private static final int HIGH = 1024;
+    private static final CoolInt[] INTS = new CoolInt[HIGH - LOW + 1];
+    private static final CoolBool TRUE = new CoolBool(true);
+    private static final CoolBool FALSE = new CoolBool(false);
+    private static final CoolVoid VOID = new CoolVoid();
+
+    /**
+     * 空串和单个字符共用同一个对象，字面量和类名驻留在TreeSupport的字符串表里
+     */
+    private static final CoolString EMPTY = new CoolString("", 0);
+    private static final CoolString[] CHARS = new CoolString[256];
+
+    static {
+        for (var i = 0; i < INTS.length; i++) {
+            INTS[i] = new CoolInt(i + LOW);
+        }
+        for (var i = 0; i < CHARS.length; i++) {
+            CHARS[i] = new CoolString(String.valueOf((char) i), 1);
+        }
+    }
+
     private ObjectFactory() {
     }
 
     public static CoolInt coolInt(int i) {
+        if (i >= LOW && i <= HIGH) return INTS[i - LOW];
         return new CoolInt(i);
     }
 
     public static CoolInt coolIntDefault() {
-        return new CoolInt();
+        return INTS[-LOW];
     }
 
     public static CoolString coolString(@Nullable String i) {
-        if (i == null) return new CoolString();
+        if (i == null || i.isEmpty()) return EMPTY;
+        if (i.length() == 1) return coolString(i.charAt(0));
         return new CoolString(i, i.length());
     }
 
+    public static CoolString coolString(char c) {
+        if (c < CHARS.length) return CHARS[c];
+        return new CoolString(String.valueOf(c), 1);
+    }
+
     public static CoolString coolStringDefault() {
-        return new CoolString();
+        return EMPTY;
     }
 
     public static CoolBool coolBool(boolean i) {
-        return new CoolBool(i);
+        return i ? TRUE : FALSE;
     }
 
     public static CoolBool coolBoolDefault() {
-        return new CoolBool();
+        return FALSE;
     }
 
     public static CoolObject coolObject() {
@@ -55,6 +88,6 @@ public class ObjectFactory {
     }
 
     public static CoolVoid coolVoid() {
-        return new CoolVoid();
+        return VOID;
     }
 }
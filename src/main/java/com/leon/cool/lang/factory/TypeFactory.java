@@ -3,6 +3,10 @@ package com.leon.cool.lang.factory;
 import com.leon.cool.lang.Constant;
 import com.leon.cool.lang.type.*;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.leon.cool.lang.support.ErrorSupport.error;
 
 /**
@@ -24,37 +28,57 @@ import static com.leon.cool.lang.support.ErrorSupport.error;
  */
 public class TypeFactory {
 
-    private TypeFactory() {
-    }
+    /**
+     * 内置类型在所有程序中共用，编号固定；其他类型按程序intern，每个TreeSupport一份，编号接在内置类型后面。
+     * 同一个程序里同一个类型只有一个实例，可以用==比较
+     */
+    private static final Type STRING_TYPE = new StringType(0);
+    private static final Type BOOL_TYPE = new BoolType(1);
+    private static final Type INT_TYPE = new IntType(2);
+    private static final Type NO_TYPE = new NoType(3);
+    private static final Type VOID_TYPE = new VoidType(4);
+    private static final Type OBJECT_TYPE = new ObjectType(Constant.OBJECT, 5);
+    private static final Type IO_TYPE = new ObjectType(Constant.IO, 6);
+    private static final int BUILT_IN_COUNT = 7;
+
+    private final AtomicInteger ids = new AtomicInteger(BUILT_IN_COUNT);
+    private final Map<String, Type> objectTypes = new ConcurrentHashMap<>();
+    private final Map<String, Type> selfTypes = new ConcurrentHashMap<>();
 
     public static Type stringType() {
-        return new StringType();
+        return STRING_TYPE;
     }
 
     public static Type booleanType() {
-        return new BoolType();
+        return BOOL_TYPE;
     }
 
     public static Type integerType() {
-        return new IntType();
+        return INT_TYPE;
     }
 
-    public static Type objectType(String type, String className) {
-        switch (type) {
-            case Constant.STRING:
-                return stringType();
-            case Constant.INT:
-                return integerType();
-            case Constant.BOOL:
-                return booleanType();
-            case Constant.SELF_TYPE:
-                return selfType(className);
-            default:
-                return new ObjectType(type);
-        }
+    public static Type rootType() {
+        return OBJECT_TYPE;
     }
 
-    public static Type objectType(String type) {
+    public static Type ioType() {
+        return IO_TYPE;
+    }
+
+    public static Type noType() {
+        return NO_TYPE;
+    }
+
+    public static Type voidType() {
+        return VOID_TYPE;
+    }
+
+    public Type objectType(String type, String className) {
+        if (type.equals(Constant.SELF_TYPE)) return selfType(className);
+        return objectType(type);
+    }
+
+    public Type objectType(String type) {
         switch (type) {
             case Constant.STRING:
                 return stringType();
@@ -62,22 +86,41 @@ public class TypeFactory {
                 return integerType();
             case Constant.BOOL:
                 return booleanType();
+            case Constant.OBJECT:
+                return rootType();
+            case Constant.IO:
+                return ioType();
             case Constant.SELF_TYPE:
                 error("unexpected.error");
             default:
-                return new ObjectType(type);
+                return objectTypes.computeIfAbsent(type, k -> new ObjectType(k, ids.getAndIncrement()));
         }
     }
 
-    public static Type selfType(String className) {
-        return new SelfType(className);
+    public Type selfType(String className) {
+        var replace = objectType(className);
+        return selfTypes.computeIfAbsent(className, k -> new SelfType(k, ids.getAndIncrement(), replace));
     }
 
-    public static Type noType() {
-        return new NoType();
+    /**
+     * 把别的程序里的类型换成这个程序里同名的类型
+     */
+    public Type of(Type type) {
+        if (type == null) return null;
+        switch (type.type()) {
+            case OBJECT:
+                return objectType(type.className());
+            case SELF_TYPE:
+                return selfType(type.replace().className());
+            default:
+                return type;
+        }
     }
 
-    public static Type voidType() {
-        return new VoidType();
+    /**
+     * @return 这个程序目前分配过的类型编号个数(包括内置类型)，用来确定按类型编号索引的数组大小
+     */
+    public int count() {
+        return ids.get();
     }
 }
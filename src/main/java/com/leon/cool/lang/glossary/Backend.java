@@ -0,0 +1,45 @@
+package com.leon.cool.lang.glossary;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public enum Backend {
+    /**
+     * 遍历AST解释执行
+     */
+    INTERPRETER,
+    /**
+     * 执行前把所有方法体编译成closure树
+     */
+    CLOSURE,
+    /**
+     * 生成JVM字节码，由CoolClassLoader加载执行
+     */
+    JVM,
+    /**
+     * 生成Java源码，用javax.tools在内存中编译后由CoolClassLoader加载执行
+     */
+    JAVA,
+    /**
+     * 编译成寄存器字节码，由VirtualMachine解释执行
+     */
+    VM,
+    /**
+     * 生成C源码，用系统的cc编译成本地可执行文件运行
+     */
+    C
+}
@@ -0,0 +1,114 @@
+package com.leon.cool.lang.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.leon.cool.lang.jvm.Opcodes.ACC_PUBLIC;
+import static com.leon.cool.lang.jvm.Opcodes.ACC_SUPER;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ClassFile {
+
+    /**
+     * 49(java 5)的class文件不需要StackMapTable，由虚拟机的类型推导校验器校验
+     */
+    private static final int MAJOR_VERSION = 49;
+
+    public final String name;
+    public final String superName;
+    public final ConstantPool pool = new ConstantPool();
+
+    private final List<Member> fields = new ArrayList<>();
+    private final List<Member> methods = new ArrayList<>();
+
+    public ClassFile(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    public void field(int access, String name, String desc) {
+        fields.add(new Member(access, pool.utf8(name), pool.utf8(desc), null));
+    }
+
+    public Code method(int access, String name, String desc) {
+        var argSlots = Code.argSlots(desc.substring(1, desc.indexOf(')'))) + ((access & Opcodes.ACC_STATIC) != 0 ? 0 : 1);
+        var code = new Code(pool, argSlots);
+        methods.add(new Member(access, pool.utf8(name), pool.utf8(desc), code));
+        return code;
+    }
+
+    public byte[] toByteArray() {
+        var body = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(body)) {
+            var thisIndex = pool.clazz(name);
+            var superIndex = pool.clazz(superName);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (var field : fields) {
+                out.writeShort(field.access);
+                out.writeShort(field.name);
+                out.writeShort(field.desc);
+                out.writeShort(0);
+            }
+            out.writeShort(methods.size());
+            for (var method : methods) {
+                out.writeShort(method.access);
+                out.writeShort(method.name);
+                out.writeShort(method.desc);
+                out.writeShort(1);
+                out.write(method.code.toByteArray());
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(pool.size());
+            out.write(pool.toByteArray());
+            out.write(body.toByteArray());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class Member {
+        private final int access;
+        private final int name;
+        private final int desc;
+        private final Code code;
+
+        private Member(int access, int name, int desc, Code code) {
+            this.access = access;
+            this.name = name;
+            this.desc = desc;
+            this.code = code;
+        }
+    }
+}
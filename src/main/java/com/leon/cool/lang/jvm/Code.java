@@ -0,0 +1,270 @@
+package com.leon.cool.lang.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.leon.cool.lang.jvm.Opcodes.*;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class Code {
+
+    private final ConstantPool pool;
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final List<Label> labels = new ArrayList<>();
+    private int stack = 0;
+    private int maxStack = 0;
+    private int maxLocals;
+    private boolean reachable = true;
+
+    public Code(ConstantPool pool, int argSlots) {
+        this.pool = pool;
+        this.maxLocals = argSlots;
+    }
+
+    public int newLocal() {
+        return maxLocals++;
+    }
+
+    public void insn(int opcode) {
+        switch (opcode) {
+            case ACONST_NULL:
+            case DUP:
+                push(1);
+                break;
+            case POP:
+            case IADD:
+            case ISUB:
+            case IMUL:
+            case IDIV:
+            case IXOR:
+                push(-1);
+                break;
+            case SWAP:
+            case INEG:
+                break;
+            case IRETURN:
+            case ARETURN:
+                push(-1);
+                reachable = false;
+                break;
+            case ATHROW:
+                push(-1);
+                reachable = false;
+                break;
+            case RETURN:
+                reachable = false;
+                break;
+            default:
+                if (opcode >= ICONST_M1 && opcode <= ICONST_M1 + 6) {
+                    push(1);
+                    break;
+                }
+                throw new IllegalArgumentException("opcode " + opcode);
+        }
+        code.write(opcode);
+    }
+
+    public void iconst(int value) {
+        if (value >= -1 && value <= 5) {
+            insn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(value);
+            push(1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.write(SIPUSH);
+            u2(value);
+            push(1);
+        } else {
+            constant(pool.integer(value));
+        }
+    }
+
+    public void ldc(String value) {
+        constant(pool.string(value));
+    }
+
+    public void var(int opcode, int index) {
+        if (index > 0xFF) {
+            code.write(WIDE);
+            code.write(opcode);
+            u2(index);
+        } else {
+            code.write(opcode);
+            code.write(index);
+        }
+        maxLocals = Math.max(maxLocals, index + 1);
+        push(opcode == ILOAD || opcode == ALOAD ? 1 : -1);
+    }
+
+    public void type(int opcode, String internalName) {
+        code.write(opcode);
+        u2(pool.clazz(internalName));
+        if (opcode == NEW) push(1);
+    }
+
+    public void field(int opcode, String owner, String name, String desc) {
+        code.write(opcode);
+        u2(pool.field(owner, name, desc));
+        switch (opcode) {
+            case GETSTATIC:
+                push(1);
+                break;
+            case PUTSTATIC:
+                push(-1);
+                break;
+            case PUTFIELD:
+                push(-2);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void invoke(int opcode, String owner, String name, String desc) {
+        code.write(opcode);
+        u2(pool.method(owner, name, desc));
+        var args = desc.substring(1, desc.indexOf(')'));
+        push(-argSlots(args) - (opcode == INVOKESTATIC ? 0 : 1) + (desc.endsWith(")V") ? 0 : 1));
+    }
+
+    public void jump(int opcode, Label label) {
+        switch (opcode) {
+            case GOTO:
+                break;
+            case IFEQ:
+            case IFNE:
+            case IFNULL:
+            case IFNONNULL:
+                push(-1);
+                break;
+            default:
+                push(-2);
+                break;
+        }
+        label.stack(stack);
+        label.fixups.add(code.size());
+        code.write(opcode);
+        u2(0);
+        if (opcode == GOTO) reachable = false;
+    }
+
+    public void mark(Label label) {
+        if (label.pos >= 0) throw new IllegalStateException("label already marked.");
+        label.pos = code.size();
+        if (reachable) {
+            label.stack(stack);
+        } else if (label.stack >= 0) {
+            stack = label.stack;
+        } else {
+            stack = 0;
+        }
+        reachable = true;
+    }
+
+    public boolean reachable() {
+        return reachable;
+    }
+
+    public byte[] toByteArray() {
+        var bytes = code.toByteArray();
+        for (var label : labels) {
+            for (var fixup : label.fixups) {
+                var offset = label.pos - fixup;
+                if (label.pos < 0 || offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                    throw new IllegalStateException("branch offset out of range.");
+                }
+                bytes[fixup + 1] = (byte) (offset >> 8);
+                bytes[fixup + 2] = (byte) offset;
+            }
+        }
+        var out = new ByteArrayOutputStream();
+        try (var data = new DataOutputStream(out)) {
+            data.writeShort(pool.utf8("Code"));
+            data.writeInt(12 + bytes.length);
+            data.writeShort(maxStack);
+            data.writeShort(maxLocals);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+            data.writeShort(0);
+            data.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    public Label newLabel() {
+        var label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    private void constant(int index) {
+        if (index > 0xFF) {
+            code.write(LDC_W);
+            u2(index);
+        } else {
+            code.write(LDC);
+            code.write(index);
+        }
+        push(1);
+    }
+
+    private void push(int delta) {
+        stack += delta;
+        if (stack < 0) throw new IllegalStateException("operand stack underflow.");
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u2(int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    static int argSlots(String args) {
+        var slots = 0;
+        for (var i = 0; i < args.length(); i++) {
+            var c = args.charAt(i);
+            if (c == 'L') {
+                i = args.indexOf(';', i);
+            } else if (c == '[') {
+                continue;
+            }
+            slots++;
+        }
+        return slots;
+    }
+
+    public static class Label {
+        private int pos = -1;
+        private int stack = -1;
+        private final List<Integer> fixups = new ArrayList<>();
+
+        private void stack(int depth) {
+            if (stack >= 0 && stack != depth) {
+                throw new IllegalStateException("inconsistent stack depth at label.");
+            }
+            stack = depth;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.leon.cool.lang.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int size = 1;
+
+    public int utf8(String value) {
+        var key = UTF8 + ":" + value;
+        var index = entries.get(key);
+        if (index != null) return index;
+        try {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return put(key, 1);
+    }
+
+    public int integer(int value) {
+        var key = INTEGER + ":" + value;
+        var index = entries.get(key);
+        if (index != null) return index;
+        try {
+            out.writeByte(INTEGER);
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return put(key, 1);
+    }
+
+    public int string(String value) {
+        return ref(STRING, value, utf8(value));
+    }
+
+    public int clazz(String internalName) {
+        return ref(CLASS, internalName, utf8(internalName));
+    }
+
+    public int field(String owner, String name, String desc) {
+        return ref(FIELD_REF, owner + "." + name + ":" + desc, clazz(owner), nameAndType(name, desc));
+    }
+
+    public int method(String owner, String name, String desc) {
+        return ref(METHOD_REF, owner + "." + name + desc, clazz(owner), nameAndType(name, desc));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    private int nameAndType(String name, String desc) {
+        return ref(NAME_AND_TYPE, name + ":" + desc, utf8(name), utf8(desc));
+    }
+
+    private int ref(int tag, String value, int... indexes) {
+        var key = tag + ":" + value;
+        var index = entries.get(key);
+        if (index != null) return index;
+        try {
+            out.writeByte(tag);
+            for (var i : indexes) out.writeShort(i);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return put(key, 1);
+    }
+
+    private int put(String key, int slots) {
+        var index = size;
+        entries.put(key, index);
+        size += slots;
+        if (size > 0xFFFF) {
+            throw new IllegalStateException("constant pool overflow.");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,66 @@
+package com.leon.cool.lang.jvm;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+import static com.leon.cool.lang.support.ErrorSupport.error;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CoolClassLoader extends ClassLoader {
+
+    /**
+     * internal name -> class文件
+     */
+    private final Map<String, byte[]> classes;
+
+    public CoolClassLoader(Map<String, byte[]> classes) {
+        super(CoolClassLoader.class.getClassLoader());
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        var bytes = classes.get(name.replace('.', '/'));
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
+    /**
+     * 调用生成类的static main方法，COOL运行时错误原样抛出
+     *
+     * @param className 生成类的internal name
+     */
+    public void run(String className) {
+        try {
+            var clazz = loadClass(className.replace('/', '.'));
+            clazz.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        } catch (ReflectiveOperationException e) {
+            error("unexpected.error");
+        } finally {
+            JvmRuntime.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.leon.cool.lang.jvm;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.leon.cool.lang.support.ErrorSupport.error;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class JavaSourceCompiler {
+
+    /**
+     * 在内存中用javac编译生成的源码
+     *
+     * @param sources 类的binary name -> Java源码
+     * @return internal name -> class文件，交给CoolClassLoader加载
+     */
+    public Map<String, byte[]> compile(Map<String, String> sources) {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) error("java.error.compiler");
+        var units = new ArrayList<JavaFileObject>();
+        for (var entry : sources.entrySet()) {
+            units.add(new SourceFile(entry.getKey(), entry.getValue()));
+        }
+        var classes = new HashMap<String, byte[]>();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null), classes)) {
+            var options = List.of("-classpath", classpath(), "-proc:none", "-g:none", "-nowarn");
+            var success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            if (!success) {
+                for (var diagnostic : diagnostics.getDiagnostics()) System.err.println(diagnostic);
+                error("java.error.compile");
+            }
+        } catch (IOException e) {
+            error("java.error.compile");
+        }
+        return classes;
+    }
+
+    /**
+     * 当前classpath加上运行时类所在的位置，从jar或者测试框架启动时也能找到JvmObject
+     */
+    private static String classpath() {
+        var classpath = System.getProperty("java.class.path");
+        try {
+            var location = Paths.get(JvmObject.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+            return classpath == null || classpath.isEmpty() ? location : location + File.pathSeparator + classpath;
+        } catch (URISyntaxException | NullPointerException e) {
+            return classpath;
+        }
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        private SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final String internalName;
+        private final Map<String, byte[]> classes;
+
+        private ClassFile(String className, Map<String, byte[]> classes) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.internalName = className.replace('.', '/');
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    classes.put(internalName, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        private MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassFile(className, classes);
+        }
+    }
+}
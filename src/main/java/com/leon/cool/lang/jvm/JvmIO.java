@@ -0,0 +1,61 @@
+package com.leon.cool.lang.jvm;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class JvmIO extends JvmObject {
+
+    @Override
+    public Object $$new$SELF_TYPE() {
+        return new JvmIO();
+    }
+
+    public Object out_string(String x) {
+        return IO$out_string(x);
+    }
+
+    public Object out_int(int x) {
+        return IO$out_int(x);
+    }
+
+    public String in_string() {
+        return IO$in_string();
+    }
+
+    public int in_int() {
+        return IO$in_int();
+    }
+
+    //static dispatch
+    public Object IO$out_string(String x) {
+        System.out.print(x);
+        return this;
+    }
+
+    public Object IO$out_int(int x) {
+        System.out.print(x);
+        return this;
+    }
+
+    public String IO$in_string() {
+        return JvmRuntime.in_string();
+    }
+
+    public int IO$in_int() {
+        return JvmRuntime.in_int();
+    }
+}
@@ -0,0 +1,54 @@
+package com.leon.cool.lang.jvm;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class JvmObject implements Cloneable {
+
+    public Object $$new$SELF_TYPE() {
+        return new JvmObject();
+    }
+
+    public Object abort() {
+        return Object$abort();
+    }
+
+    public String type_name() {
+        return Object$type_name();
+    }
+
+    public Object copy() {
+        return Object$copy();
+    }
+
+    //static dispatch
+    public Object Object$abort() {
+        return JvmRuntime.Object$abort(this);
+    }
+
+    public String Object$type_name() {
+        return JvmRuntime.Object$type_name(this);
+    }
+
+    public Object Object$copy() {
+        try {
+            return super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.leon.cool.lang.jvm;
+
+import com.leon.cool.lang.Constant;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolObject;
+import static com.leon.cool.lang.support.ErrorSupport.error;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class JvmRuntime {
+
+    private static BufferedReader reader;
+
+    private JvmRuntime() {
+    }
+
+    /**
+     * Object方法的动态分派，receiver可能是Int，Bool，String的装箱值
+     */
+    public static Object abort(Object obj) {
+        if (obj instanceof JvmObject) return ((JvmObject) obj).abort();
+        return Object$abort(obj);
+    }
+
+    public static String type_name(Object obj) {
+        if (obj instanceof JvmObject) return ((JvmObject) obj).type_name();
+        return Object$type_name(obj);
+    }
+
+    public static Object copy(Object obj) {
+        if (obj instanceof JvmObject) return ((JvmObject) obj).copy();
+        return Object$copy(obj);
+    }
+
+    //static dispatch
+    public static Object Object$abort(Object obj) {
+        return coolObject().abort();
+    }
+
+    public static String Object$type_name(Object obj) {
+        if (obj instanceof Integer) {
+            return Constant.INT;
+        } else if (obj instanceof Boolean) {
+            return Constant.BOOL;
+        } else if (obj instanceof String) {
+            return Constant.STRING;
+        } else if (obj.getClass() == JvmObject.class) {
+            return Constant.OBJECT;
+        } else if (obj.getClass() == JvmIO.class) {
+            return Constant.IO;
+        } else {
+            return obj.getClass().getName().substring(Constant.JVM_PACKAGE.length() + 1);
+        }
+    }
+
+    public static Object Object$copy(Object obj) {
+        if (obj instanceof JvmObject) return ((JvmObject) obj).Object$copy();
+        return obj;
+    }
+
+    public static String substr(String str, int i, int l, String pos) {
+        try {
+            return str.substring(i, i + l);
+        } catch (StringIndexOutOfBoundsException e) {
+            error("runtime.error.range", pos);
+        }
+        return "";
+    }
+
+    public static String in_string() {
+        try {
+            var str = reader().readLine();
+            return str == null ? "" : str;
+        } catch (Exception e) {
+            e.printStackTrace();
+            error("unexpected.error");
+        }
+        return "";
+    }
+
+    public static int in_int() {
+        try {
+            var str = reader().readLine();
+            return Integer.parseInt(str);
+        } catch (Exception e) {
+            error("unexpected.error");
+        }
+        return 0;
+    }
+
+    /**
+     * 两边都是基本类型的话比较值，否则比较引用
+     */
+    public static boolean eq(Object l, Object r) {
+        if (l instanceof Integer || l instanceof Boolean || l instanceof String) {
+            return l.equals(r);
+        }
+        return l == r;
+    }
+
+    /**
+     * 生成的Java源码用的表达式形式
+     */
+    public static <T> T nonVoid(T obj, String pos) {
+        if (obj == null) dispatchVoid(pos);
+        return obj;
+    }
+
+    public static int divide(int l, int r, String pos) {
+        if (r == 0) divideByZero(pos);
+        return l / r;
+    }
+
+    public static void dispatchVoid(String pos) {
+        error("runtime.error.dispatch.void", pos);
+    }
+
+    public static void divideByZero(String pos) {
+        error("runtime.error.divide.zero", pos);
+    }
+
+    public static void caseVoid(String pos) {
+        error("runtime.error.void", pos);
+    }
+
+    public static void caseMismatch(String pos) {
+        error("runtime.error.case", pos);
+    }
+
+    public static void close() {
+        try {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static BufferedReader reader() {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(System.in));
+        }
+        return reader;
+    }
+}
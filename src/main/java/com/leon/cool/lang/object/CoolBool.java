@@ -1,6 +1,5 @@
 package com.leon.cool.lang.object;
 
-import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
 import static com.leon.cool.lang.factory.TypeFactory.booleanType;
 
 /**
@@ -21,15 +20,15 @@ import static com.leon.cool.lang.factory.TypeFactory.booleanType;
  * @author leon on 15-10-21
  */
 public class CoolBool extends CoolObject {
-    public boolean val = false;
+    public final boolean val;
 
     public CoolBool(boolean val) {
-        this();
+        this.type = booleanType();
         this.val = val;
     }
 
     public CoolBool() {
-        this.type = booleanType();
+        this(false);
     }
 
     @Override
@@ -49,6 +48,7 @@ public class CoolBool extends CoolObject {
 
     @Override
     public CoolBool copy() {
-        return coolBool(this.val);
+        //不可变，copy返回自己
+        return this;
     }
 }
@@ -7,7 +7,7 @@ import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
 import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
 import static com.leon.cool.lang.factory.ObjectFactory.coolString;
 import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
+import static com.leon.cool.lang.factory.TypeFactory.ioType;
 import static com.leon.cool.lang.support.ErrorSupport.error;
 
 /**
@@ -29,7 +29,7 @@ import static com.leon.cool.lang.support.ErrorSupport.error;
  */
 public class CoolIO extends CoolObject {
     public CoolIO() {
-        this.type = objectType("IO");
+        this.type = ioType();
     }
 
     public CoolObject out_string(CoolString x) {
@@ -1,6 +1,5 @@
 package com.leon.cool.lang.object;
 
-import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
 import static com.leon.cool.lang.factory.TypeFactory.integerType;
 
 /**
@@ -21,15 +20,15 @@ import static com.leon.cool.lang.factory.TypeFactory.integerType;
  * @author leon on 15-10-21
  */
 public class CoolInt extends CoolObject {
-    public int val = 0;
+    public final int val;
 
     public CoolInt(int val) {
-        this();
+        this.type = integerType();
         this.val = val;
     }
 
     public CoolInt() {
-        this.type = integerType();
+        this(0);
     }
 
     @Override
@@ -49,6 +48,7 @@ public class CoolInt extends CoolObject {
 
     @Override
     public CoolInt copy() {
-        return coolInt(this.val);
+        //不可变，copy返回自己
+        return this;
     }
 }
@@ -1,11 +1,9 @@
 package com.leon.cool.lang.object;
 
-import com.leon.cool.lang.Constant;
-import com.leon.cool.lang.support.infrastructure.SymbolTable;
 import com.leon.cool.lang.type.Type;
 
 import static com.leon.cool.lang.factory.ObjectFactory.coolObject;
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
+import static com.leon.cool.lang.factory.TypeFactory.rootType;
 
 /**
  * Copyright leon
@@ -25,12 +23,14 @@ import static com.leon.cool.lang.factory.TypeFactory.objectType;
  * @author leon on 15-10-21
  */
 public class CoolObject {
-    public Type type = objectType(Constant.OBJECT);
+    public Type type = rootType();
+
+    private static final CoolObject[] NO_FIELDS = new CoolObject[0];
 
     /**
-     * 对象内变量
+     * 对象的属性，下标是TreeSupport.layout里的槽位
      */
-    public SymbolTable<CoolObject> variables = new SymbolTable<>();
+    public CoolObject[] fields = NO_FIELDS;
 
     public CoolObject() {
     }
@@ -44,7 +44,7 @@ public class CoolObject {
     public CoolObject copy() {
         var object = coolObject();
         object.type = this.type;
-        object.variables = this.variables;
+        object.fields = this.fields.clone();
         return object;
     }
 }
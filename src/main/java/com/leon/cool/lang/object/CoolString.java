@@ -1,5 +1,7 @@
 package com.leon.cool.lang.object;
 
+import java.util.ArrayDeque;
+
 import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
 import static com.leon.cool.lang.factory.ObjectFactory.coolString;
 import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
@@ -24,12 +26,29 @@ import static com.leon.cool.lang.support.ErrorSupport.error;
  * @author leon on 15-10-21
  */
 public class CoolString extends CoolObject {
-    public String str = "";
+
+    /**
+     * 拼接结果短于这个长度时直接复制，不建concat节点
+     */
+    private static final int ROPE_THRESHOLD = 64;
+
+    /**
+     * 叶子节点是source[offset, offset + length)的视图，concat节点的left和right不为null
+     */
+    private String source = "";
+    private int offset = 0;
     private int length = 0;
+    private CoolString left;
+    private CoolString right;
+
+    /**
+     * 内容的hash，0表示还没算过
+     */
+    private int hash;
 
     public CoolString(String str, int length) {
         this();
-        this.str = str;
+        this.source = str;
         this.length = length;
     }
 
@@ -37,51 +56,121 @@ public class CoolString extends CoolObject {
         this.type = stringType();
     }
 
+    private CoolString(String source, int offset, int length) {
+        this();
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private CoolString(CoolString left, CoolString right) {
+        this();
+        this.source = null;
+        this.left = left;
+        this.right = right;
+        this.length = left.length + right.length;
+    }
+
     public CoolInt length() {
         return coolInt(length);
     }
 
+    /**
+     * 不复制内容，只建concat节点，直到输出或比较时才展开
+     */
     public CoolString concat(CoolString s) {
-        return coolString(this.str.concat(s.str));
+        if (s.length == 0) return this;
+        if (length == 0) return s;
+        if (length + s.length < ROPE_THRESHOLD) return coolString(str().concat(s.str()));
+        return new CoolString(this, s);
     }
 
+    /**
+     * 返回共享同一个source的视图
+     */
     public CoolString substr(CoolInt i, CoolInt l, String pos) {
-        try {
-            var str = this.str.substring(i.val, i.val + l.val);
-            return coolString(str);
-        } catch (StringIndexOutOfBoundsException e) {
+        if (i.val < 0 || l.val < 0 || i.val > length - l.val) {
             error("runtime.error.range", pos);
+            return coolStringDefault();
         }
-        return coolStringDefault();
+        if (left != null) flatten();
+        if (l.val <= 1) return l.val == 0 ? coolStringDefault() : coolString(source.charAt(offset + i.val));
+        return new CoolString(source, offset + i.val, l.val);
+    }
+
+    /**
+     * 连续的内容，第一次调用时展开concat树或者视图，之后直接返回
+     */
+    public String str() {
+        if (left != null) flatten();
+        if (offset != 0 || length != source.length()) {
+            source = source.substring(offset, offset + length);
+            offset = 0;
+        }
+        return source;
+    }
+
+    /**
+     * 驻留的字符串相等时引用相同，hash都算过并且不同时不用比较内容
+     */
+    public boolean contentEquals(CoolString that) {
+        if (this == that) return true;
+        if (length != that.length) return false;
+        if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
+        return str().equals(that.str());
+    }
+
+    /**
+     * 反复拼接得到的是左深的concat树，用栈代替递归
+     */
+    private void flatten() {
+        var builder = new StringBuilder(length);
+        var stack = new ArrayDeque<CoolString>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            var node = stack.pop();
+            if (node.left != null) {
+                stack.push(node.right);
+                stack.push(node.left);
+            } else {
+                builder.append(node.source, node.offset, node.offset + node.length);
+            }
+        }
+        source = builder.toString();
+        offset = 0;
+        left = null;
+        right = null;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof CoolString)) return false;
-
-        CoolString that = (CoolString) o;
-
-        return length == that.length && !(str != null ? !str.equals(that.str) : that.str != null);
-
+        return contentEquals((CoolString) o);
     }
 
     @Override
     public int hashCode() {
-        int result = str != null ? str.hashCode() : 0;
-        result = 31 * result + length;
-        return result;
+        var h = hash;
+        if (h == 0) {
+            h = str().hashCode();
+            hash = h;
+        }
+        return h;
     }
 
+    /**
+     * String不可变，copy返回自己
+     */
     @Override
     public CoolString copy() {
-        return coolString(this.str);
+        return this;
     }
 
     @Override
     public String toString() {
         return "CoolString{" +
-                "str='" + str + '\'' +
+                "str='" + str() + '\'' +
                 ", length=" + length +
                 '}';
     }
@@ -113,7 +113,7 @@ public class CoolParser {
             syntaxError(token.kind, token.startPos);
         } else {
             var startPos = token.startPos;
-            classDefs.addAll(new ClassTable().builtInClasses());
+            classDefs.addAll(new ClassTable(scanner.symbols()).builtInClasses());
             while (true) {
                 if (token.kind == EOF) {
                     accept(EOF);
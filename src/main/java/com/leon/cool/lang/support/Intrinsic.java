@@ -0,0 +1,140 @@
+package com.leon.cool.lang.support;
+
+import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.object.CoolInt;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.object.CoolString;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
+import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolObject;
+import static com.leon.cool.lang.factory.ObjectFactory.coolString;
+import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
+import static com.leon.cool.lang.support.ErrorSupport.error;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public enum Intrinsic {
+    /**
+     * 不是内置方法，执行方法体
+     */
+    NONE(null, null) {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return null;
+        }
+    },
+    OBJECT_ABORT(Constant.OBJECT, "abort") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return coolObject().abort();
+        }
+    },
+    OBJECT_TYPE_NAME(Constant.OBJECT, "type_name") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return treeSupport.internString(obj.type.className());
+        }
+    },
+    OBJECT_COPY(Constant.OBJECT, "copy") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return obj.copy();
+        }
+    },
+    IO_OUT_STRING(Constant.IO, "out_string") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            System.out.print(((CoolString) arg0).str());
+            return obj;
+        }
+    },
+    IO_OUT_INT(Constant.IO, "out_int") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            System.out.print(((CoolInt) arg0).val);
+            return obj;
+        }
+    },
+    IO_IN_STRING(Constant.IO, "in_string") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            try {
+                return coolString(treeSupport.readLine());
+            } catch (Exception e) {
+                e.printStackTrace();
+                error("unexpected.error");
+            }
+            return coolStringDefault();
+        }
+    },
+    IO_IN_INT(Constant.IO, "in_int") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            try {
+                return coolInt(Integer.parseInt(treeSupport.readLine()));
+            } catch (Exception e) {
+                error("unexpected.error");
+            }
+            return coolIntDefault();
+        }
+    },
+    STRING_LENGTH(Constant.STRING, "length") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return ((CoolString) obj).length();
+        }
+    },
+    STRING_CONCAT(Constant.STRING, "concat") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return ((CoolString) obj).concat((CoolString) arg0);
+        }
+    },
+    STRING_SUBSTR(Constant.STRING, "substr") {
+        @Override
+        public CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos) {
+            return ((CoolString) obj).substr((CoolInt) arg0, (CoolInt) arg1, pos);
+        }
+    };
+
+    private final String owner;
+    private final String methodName;
+
+    Intrinsic(String owner, String methodName) {
+        this.owner = owner;
+        this.methodName = methodName;
+    }
+
+    /**
+     * 内置方法最多两个参数，按位置传入，不用的参数为null
+     *
+     * @return 内置方法的返回值，NONE返回null
+     */
+    public abstract CoolObject apply(TreeSupport treeSupport, CoolObject obj, CoolObject arg0, CoolObject arg1, String pos);
+
+    /**
+     * 按方法所属的类和方法名查表，用户定义的方法返回NONE
+     */
+    public static Intrinsic lookup(String owner, String methodName) {
+        for (var intrinsic : values()) {
+            if (intrinsic != NONE && intrinsic.owner.equals(owner) && intrinsic.methodName.equals(methodName)) return intrinsic;
+        }
+        return NONE;
+    }
+}
@@ -1,16 +1,20 @@
 package com.leon.cool.lang.support;
 
 import com.leon.cool.lang.Constant;
-import com.leon.cool.lang.object.CoolInt;
+import com.leon.cool.lang.factory.TypeFactory;
+import com.leon.cool.lang.ast.Expression;
 import com.leon.cool.lang.object.CoolObject;
 import com.leon.cool.lang.object.CoolString;
 import com.leon.cool.lang.support.declaration.AttrDeclaration;
 import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.ClassHierarchy;
+import com.leon.cool.lang.support.infrastructure.ConstructorPlan;
 import com.leon.cool.lang.support.infrastructure.Context;
 import com.leon.cool.lang.support.infrastructure.ObjectHeap;
 import com.leon.cool.lang.support.infrastructure.SymbolTable;
 import com.leon.cool.lang.tree.compile.impl.TypeCheckTreeScanner;
 import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+import com.leon.cool.lang.tree.runtime.node.MethodCache;
 import com.leon.cool.lang.type.Type;
 import com.leon.cool.lang.type.TypeEnum;
 import com.leon.cool.lang.util.StringUtil;
@@ -28,25 +32,19 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
-import static com.leon.cool.lang.factory.ObjectFactory.coolBoolDefault;
-import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
-import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
 import static com.leon.cool.lang.factory.ObjectFactory.coolObject;
 import static com.leon.cool.lang.factory.ObjectFactory.coolString;
-import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
-import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
 import static com.leon.cool.lang.factory.TypeFactory.noType;
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
-import static com.leon.cool.lang.factory.TypeFactory.selfType;
 import static com.leon.cool.lang.support.ErrorSupport.error;
-import static com.leon.cool.lang.support.TypeSupport.isBoolType;
-import static com.leon.cool.lang.support.TypeSupport.isIntType;
 import static com.leon.cool.lang.support.TypeSupport.isObjectType;
 import static com.leon.cool.lang.support.TypeSupport.isParent;
-import static com.leon.cool.lang.support.TypeSupport.isStringType;
 import static com.leon.cool.lang.util.StringUtil.constructMethod;
 import static com.leon.cool.lang.util.StringUtil.mkString;
 
@@ -69,6 +67,9 @@ import static com.leon.cool.lang.util.StringUtil.mkString;
  */
 public class TreeSupport implements Closeable {
 
+    private static final AttrDeclaration[] NO_ATTRS = new AttrDeclaration[0];
+    private static final ConstructorPlan EMPTY_PLAN = ConstructorPlan.of(NO_ATTRS);
+
     public ObjectHeap heap;
     public BufferedReader reader;
     public Map<String, String> classGraph = new HashMap<>();
@@ -76,9 +77,76 @@ public class TreeSupport implements Closeable {
     public Map<String, Set<MethodDeclaration>> methodGraph = new HashMap<>();
     public Map<String, Map<String, AttrDeclaration>> attrGraph = new HashMap<>();
 
+    /**
+     * 这个程序里intern的类型，类型编号只在同一个TreeSupport里有效
+     */
+    public TypeFactory types = new TypeFactory();
+
+    /**
+     * classGraph的先序编号，classGraph里的类只增不减，类的个数变化时重新建立
+     */
+    private volatile ClassHierarchy hierarchy;
+    private int hierarchySize = -1;
+
+    /**
+     * 方法签名(方法名和形参类型) -> vtable槽位，所有类共用同一套槽位。
+     * 槽位只增不减，类型检查时写到调用点上，所以要写进编译缓存，增量编译时从上一次的结果继承
+     */
+    private Map<String, Integer> signatureSlots = new HashMap<>();
+    private List<String> signatures = new ArrayList<>();
+
+    /**
+     * 类型编号(Type.id) -> vtable，下标是槽位，槽位里是这个类里签名相同的方法(自己定义的或者继承来的)，没有这个签名时为null
+     */
+    private volatile MethodDeclaration[][] vtables;
+
+    /**
+     * 类型编号(Type.id) -> 对象布局，父类的属性在前，下标是属性在对象fields中的槽位
+     */
+    private volatile AttrDeclaration[][] layouts;
+
+    /**
+     * 类型编号(Type.id) -> new的执行计划，和layouts一起建立
+     */
+    private volatile ConstructorPlan[] plans;
+
+    /**
+     * 解释器和closure里所有调用点的inline cache，用于统计
+     */
+    public final Queue<MethodCache> inlineCaches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 字面量和类名的驻留字符串，只在这次执行中共用，close时释放
+     */
+    private final Map<String, CoolString> strings = new ConcurrentHashMap<>();
+
+    /**
+     * 程序入口main()固定在0号槽位，执行时不用再查签名
+     */
+    public static final int MAIN_SLOT = 0;
+
     public TreeSupport() {
         this.heap = new ObjectHeap();
+        addSignature(constructMethod(Constant.MAIN_METHOD, Collections.emptyList()));
     }
+    /**
+     * 用other的各个graph替换当前的，并丢弃按旧graph建立的hierarchy，vtable和对象布局
+     */
+    public synchronized void copyFrom(TreeSupport other) {
+        classGraph = other.classGraph;
+        symbolTables = other.symbolTables;
+        methodGraph = other.methodGraph;
+        attrGraph = other.attrGraph;
+        types = other.types;
+        signatureSlots = other.signatureSlots;
+        signatures = other.signatures;
+        hierarchy = null;
+        hierarchySize = -1;
+        vtables = null;
+        plans = null;
+        layouts = null;
+    }
+
     public void createSymbolTable(String className) {
         symbolTables.putIfAbsent(className, new SymbolTable<>());
     }
@@ -108,6 +176,22 @@ public class TreeSupport implements Closeable {
         }
     }
 
+    public ClassHierarchy hierarchy() {
+        var hierarchy = this.hierarchy;
+        if (hierarchy == null || hierarchySize != classGraph.size()) {
+            hierarchy = buildHierarchy();
+        }
+        return hierarchy;
+    }
+
+    private synchronized ClassHierarchy buildHierarchy() {
+        if (hierarchy == null || hierarchySize != classGraph.size()) {
+            hierarchySize = classGraph.size();
+            hierarchy = new ClassHierarchy(classGraph, types);
+        }
+        return hierarchy;
+    }
+
     public void putToMethodGraph(String className, MethodDeclaration methodDeclaration) {
         var methodDeclarations = methodGraph.get(className);
         if (methodDeclarations.contains(methodDeclaration)) {
@@ -185,6 +269,136 @@ public class TreeSupport implements Closeable {
         return methodGraph.get(className).stream().filter(e -> e.methodName.equals(methodName)).findFirst();
     }
 
+    /**
+     * 只在类型检查时为调用点调用一次，运行时直接用调用点上的槽位
+     *
+     * @param paramTypes 类型检查时选出的重载方法的形参类型
+     * @return 方法签名的vtable槽位，没有这个签名时返回-1
+     */
+    public int signatureSlot(String methodName, List<String> paramTypes) {
+        if (vtables == null) buildVTables();
+        synchronized (this) {
+            return signatureSlots.getOrDefault(constructMethod(methodName, paramTypes), -1);
+        }
+    }
+
+    /**
+     * 按槽位顺序排列的方法签名
+     */
+    public synchronized List<String> signatures() {
+        return new ArrayList<>(signatures);
+    }
+
+    /**
+     * 读编译缓存或者增量编译继承槽位时按槽位顺序加入，已有的签名保持原来的槽位
+     *
+     * @return 签名的槽位
+     */
+    public synchronized int addSignature(String signature) {
+        var slot = signatureSlots.get(signature);
+        if (slot != null) return slot;
+        signatureSlots.put(signature, signatures.size());
+        signatures.add(signature);
+        vtables = null;
+        return signatures.size() - 1;
+    }
+
+    public MethodDeclaration[] vtable(String className) {
+        return vtable(types.objectType(className));
+    }
+
+    public MethodDeclaration[] vtable(Type type) {
+        if (vtables == null) buildVTables();
+        var id = type.id();
+        return id < vtables.length ? vtables[id] : null;
+    }
+
+    /**
+     * 重载已经在类型检查时选好，运行时只按receiver类型取槽位里的方法
+     */
+    public MethodDeclaration lookupVirtual(String className, int slot) {
+        return vtable(className)[slot];
+    }
+
+    public MethodDeclaration lookupVirtual(Type type, int slot) {
+        return vtable(type)[slot];
+    }
+
+    /**
+     * mergeMethodGraph之后第一次用到时按methodGraph建立所有类的vtable
+     */
+    private synchronized void buildVTables() {
+        if (vtables != null) return;
+        for (var declarations : methodGraph.values()) {
+            for (var declaration : declarations) addSignature(constructMethod(declaration));
+        }
+        var byType = new HashMap<Type, MethodDeclaration[]>();
+        for (var entry : methodGraph.entrySet()) {
+            var vtable = new MethodDeclaration[signatures.size()];
+            for (var declaration : entry.getValue()) {
+                vtable[signatureSlots.get(constructMethod(declaration))] = declaration;
+            }
+            byType.put(types.objectType(entry.getKey()), vtable);
+        }
+        var tables = new MethodDeclaration[types.count()][];
+        for (var entry : byType.entrySet()) tables[entry.getKey().id()] = entry.getValue();
+        vtables = tables;
+    }
+
+    public AttrDeclaration[] layout(Type type) {
+        if (layouts == null) buildLayouts();
+        var id = type.id();
+        return id < layouts.length && layouts[id] != null ? layouts[id] : NO_ATTRS;
+    }
+
+    public ConstructorPlan plan(Type type) {
+        if (layouts == null) buildLayouts();
+        var id = type.id();
+        return id < plans.length && plans[id] != null ? plans[id] : EMPTY_PLAN;
+    }
+
+    /**
+     * 子类的布局以父类的布局为前缀，所以属性的槽位在定义它的类和所有子类中都相同
+     *
+     * @return 属性的槽位，没有这个属性时返回-1
+     */
+    public int fieldSlot(String className, String attrName) {
+        var layout = layout(types.objectType(className));
+        for (var i = 0; i < layout.length; i++) {
+            if (layout[i].id.equals(attrName)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * mergeAttrGraph之后第一次用到时按attrGraph建立所有类的对象布局
+     */
+    private synchronized void buildLayouts() {
+        if (layouts != null) return;
+        var byType = new HashMap<Type, AttrDeclaration[]>();
+        for (var className : classGraph.keySet()) {
+            var inheritsLinks = new LinkedList<String>();
+            var temp = className;
+            while (temp != null) {
+                inheritsLinks.push(temp);
+                temp = classGraph.get(temp);
+            }
+            var layout = new ArrayList<AttrDeclaration>();
+            while (!inheritsLinks.isEmpty()) {
+                layout.addAll(attrGraph.getOrDefault(inheritsLinks.poll(), Collections.emptyMap()).values());
+            }
+            byType.put(types.objectType(className), layout.toArray(NO_ATTRS));
+        }
+        var tables = new AttrDeclaration[types.count()][];
+        var constructors = new ConstructorPlan[tables.length];
+        for (var entry : byType.entrySet()) {
+            tables[entry.getKey().id()] = entry.getValue();
+            constructors[entry.getKey().id()] = ConstructorPlan.of(entry.getValue());
+        }
+        plans = constructors;
+        layouts = tables;
+    }
+
     public SymbolTable<String> lookupSymbolTable(String className) {
         return symbolTables.get(className);
     }
@@ -200,8 +414,21 @@ public class TreeSupport implements Closeable {
         });
     }
 
+    /**
+     * 驻留的字符串，只用于字面量和类名这种数量有限的字符串，hash预先算好
+     */
+    public CoolString internString(String str) {
+        if (str.length() <= 1) return coolString(str);
+        return strings.computeIfAbsent(str, k -> {
+            var value = coolString(k);
+            value.hashCode();
+            return value;
+        });
+    }
+
     @Override
     public void close() {
+        strings.clear();
         try {
             if (reader != null) {
                 reader.close();
@@ -218,107 +445,28 @@ public class TreeSupport implements Closeable {
      * @return
      */
     public CoolObject newDef(EvalTreeVisitor visitor, Type type, Context context) {
+        return newDef((expr, ctx) -> expr.accept(visitor, ctx), type, context);
+    }
+
+    /**
+     * @param evaluator 属性初始化表达式的求值方式
+     * @param type
+     * @param context
+     * @return
+     */
+    public CoolObject newDef(BiFunction<Expression, Context, CoolObject> evaluator, Type type, Context context) {
         var object = coolObject();
         object.type = type;
-
-        object.variables.enterScope();
-
-        var inheritsLinks = new LinkedList<String>();
-        var temp = type.className();
-        while (temp != null) {
-            inheritsLinks.push(temp);
-            temp = classGraph.get(temp);
-        }
-        /**
-         * 遍历继承树，找到父类中的属性。
-         * 如果父类中的属性是String,Bool,Int类型，则对属性赋默认值.
-         * 如果不是上述类型，则赋值void
-         * String  = ""
-         * Bool = false
-         * Int = 0
-         * Object = void
-         */
-        while (!inheritsLinks.isEmpty()) {
-            var parentClassName = inheritsLinks.poll();
-            var attrs = attrGraph.getOrDefault(parentClassName, Collections.emptyMap());
-            for (var attr : attrs.entrySet()) {
-                if (isStringType(attr.getValue().type)) {
-                    object.variables.addId(attr.getKey(), coolStringDefault());
-                } else if (isBoolType(attr.getValue().type)) {
-                    object.variables.addId(attr.getKey(), coolBoolDefault());
-                } else if (isIntType(attr.getValue().type)) {
-                    object.variables.addId(attr.getKey(), coolIntDefault());
-                } else {
-                    object.variables.addId(attr.getKey(), coolVoid());
-                }
-            }
-        }
-        initializer(visitor, object);
+        //属性默认值和初始化表达式在ConstructorPlan里按类只算一次
+        var plan = plan(type);
+        object.fields = plan.defaults.length == 0 ? plan.defaults : plan.defaults.clone();
+        initializer(evaluator, object, plan);
         //垃圾回收
         gc(context);
         heap.add(object);
         return object;
     }
 
-    /**
-     * build-in方法求值
-     *
-     * @param paramObjects
-     * @param obj
-     * @param methodDeclaration
-     * @param pos
-     * @return CoolObject
-     */
-    public CoolObject buildIn(List<CoolObject> paramObjects, CoolObject obj, MethodDeclaration methodDeclaration, String pos) {
-        switch (methodDeclaration.owner) {
-            case "Object":
-                if (methodDeclaration.methodName.equals("type_name")) {
-                    return coolString(obj.type.className());
-                } else if (methodDeclaration.methodName.equals("copy")) {
-                    return obj.copy();
-                } else if (methodDeclaration.methodName.equals("abort")) {
-                    return coolObject().abort();
-                }
-                break;
-            case "IO":
-                if (methodDeclaration.methodName.equals("out_string")) {
-                    System.out.print(((CoolString) paramObjects.get(0)).str);
-                    return obj;
-                } else if (methodDeclaration.methodName.equals("out_int")) {
-                    System.out.print(((CoolInt) paramObjects.get(0)).val);
-                    return obj;
-                } else if (methodDeclaration.methodName.equals("in_string")) {
-                    try {
-                        var str = reader().readLine();
-                        return coolString(str);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        error("unexpected.error");
-                    }
-                    return coolStringDefault();
-                } else if (methodDeclaration.methodName.equals("in_int")) {
-                    try {
-                        var str = reader().readLine();
-                        return coolInt(Integer.parseInt(str));
-                    } catch (Exception e) {
-                        error("unexpected.error");
-                    }
-                    return coolIntDefault();
-                }
-                break;
-            case "String":
-                if (methodDeclaration.methodName.equals("length")) {
-                    return ((CoolString) obj).length();
-                } else if (methodDeclaration.methodName.equals("concat")) {
-                    return ((CoolString) obj).concat((CoolString) paramObjects.get(0));
-                } else if (methodDeclaration.methodName.equals("substr")) {
-                    return ((CoolString) obj).substr((CoolInt) paramObjects.get(0), (CoolInt) paramObjects.get(1), pos);
-                }
-                break;
-        }
-        return null;
-    }
-
     /**
      * 求多个类型的最小公共父类型
      *
@@ -335,7 +483,7 @@ public class TreeSupport implements Closeable {
             } else if (type2.type() == TypeEnum.NO_TYPE) {
                 return type1;
             } else if (type1.type() == TypeEnum.SELF_TYPE && type2.type() == TypeEnum.SELF_TYPE) {
-                return selfType(lub(type1.replace(), type2.replace()).className());
+                return this.types.selfType(lub(type1.replace(), type2.replace()).className());
             } else {
                 return lub(type1.replace(), type2.replace());
             }
@@ -343,21 +491,13 @@ public class TreeSupport implements Closeable {
     }
 
     private Type lub(Type type1, Type type2) {
-        var list1 = new ArrayList<String>();
-        list1.add(type1.className());
-        var temp = type1.className();
-        while (temp != null) {
-            temp = classGraph.get(temp);
-            list1.add(temp);
-        }
-        var list2 = new ArrayList<String>();
-        list2.add(type2.className());
-        temp = type2.className();
-        while (temp != null) {
-            temp = classGraph.get(temp);
-            list2.add(temp);
-        }
-        return objectType(list1.stream().filter(list2::contains).findFirst().get());
+        var lca = hierarchy().lca(type1, type2);
+        if (lca == null) error("unexpected.error");
+        return lca;
+    }
+
+    String readLine() throws IOException {
+        return reader().readLine();
     }
 
     private BufferedReader reader() {
@@ -374,26 +514,23 @@ public class TreeSupport implements Closeable {
      */
     private void gc(Context context) {
         if (heap.size() < Constant.GC_HEAP_SIZE) return;
-        var environment = context.environment;
 
         //Mark
         var rootObjects = new ArrayList<CoolObject>();
-        for (var i = 0; i < environment.size(); i++) {
-            rootObjects.addAll(environment.elementAt(i).values().stream().filter(e -> isObjectType(e.type)).collect(Collectors.toList()));
+        if (context.selfObject != null) rootObjects.add(context.selfObject);
+        if (context.frame != null) {
+            for (var local : context.frame) {
+                if (local != null && isObjectType(local.type)) rootObjects.add(local);
+            }
         }
 
         while (!rootObjects.isEmpty()) {
             var obj = rootObjects.remove(0);
             heap.canReach(obj);
-            var variables = obj.variables;
-            if (variables == null) continue;
-            for (int i = 0; i < variables.size(); i++) {
-                var values = variables.elementAt(i).values();
-                for (var variable : values) {
-                    //防止循环引用
-                    if (isObjectType(variable.type) && !heap.isReach(variable)) {
-                        rootObjects.add(variable);
-                    }
+            for (var field : obj.fields) {
+                //防止循环引用
+                if (isObjectType(field.type) && !heap.isReach(field)) {
+                    rootObjects.add(field);
                 }
             }
         }
@@ -406,24 +543,12 @@ public class TreeSupport implements Closeable {
      * @param object
      * @see this.newDef(Type)
      * <p>
-     * 对有表达式的属性求值，并更新对象变量表，没有表达式的属性会在newDef中赋初值。
+     * 按plan的顺序对有表达式的属性求值，并更新对象的属性槽位，没有表达式的属性会在newDef中赋初值。
      */
-    private void initializer(EvalTreeVisitor visitor, CoolObject object) {
-        var inheritsLinks = new LinkedList<String>();
-        var temp = object.type.className();
-        while (temp != null) {
-            inheritsLinks.push(temp);
-            temp = classGraph.get(temp);
-        }
-        var context = new Context(object, object.variables);
-        while (!inheritsLinks.isEmpty()) {
-            var parentClassName = inheritsLinks.poll();
-            var attrs = attrGraph.getOrDefault(parentClassName, Collections.emptyMap());
-            attrs.entrySet().forEach(attr -> {
-                if (attr.getValue().expr.isPresent()) {
-                    object.variables.addId(attr.getKey(), attr.getValue().expr.get().accept(visitor, context));
-                }
-            });
+    private void initializer(BiFunction<Expression, Context, CoolObject> evaluator, CoolObject object, ConstructorPlan plan) {
+        for (var i = 0; i < plan.slots.length; i++) {
+            var attr = plan.initializers[i];
+            object.fields[plan.slots[i]] = evaluator.apply(attr.expr.get(), new Context(object, new CoolObject[attr.frameSize]));
         }
     }
 
@@ -433,7 +558,7 @@ public class TreeSupport implements Closeable {
         label:
         for (var declaration : list) {
             for (var i = 0; i < declaration.paramTypes.size(); i++) {
-                if (!isParent(classGraph, objectType(declaration.paramTypes.get(i), className), objectType(min.paramTypes.get(i), className))) {
+                if (!isParent(hierarchy(), types.objectType(declaration.paramTypes.get(i), className), types.objectType(min.paramTypes.get(i), className))) {
                     continue label;
                 }
             }
@@ -441,7 +566,7 @@ public class TreeSupport implements Closeable {
         }
         for (var declaration : list) {
             for (var i = 0; i < declaration.paramTypes.size(); i++) {
-                if (!isParent(classGraph, objectType(min.paramTypes.get(i), className), objectType(declaration.paramTypes.get(i), className))) {
+                if (!isParent(hierarchy(), types.objectType(min.paramTypes.get(i), className), types.objectType(declaration.paramTypes.get(i), className))) {
                     error("global.error.overload", className, mkString(list.stream().map(StringUtil::constructMethod).collect(Collectors.toList()), "[", ",", "]"));
                     return Optional.empty();
                 }
@@ -468,7 +593,7 @@ public class TreeSupport implements Closeable {
             return false;
         } else {
             for (var i = 0; i < typeInfos.size(); i++) {
-                if (!isParent(classGraph, typeInfos.get(i), objectType(paramTypes.get(i), className))) {
+                if (!isParent(hierarchy(), typeInfos.get(i), types.objectType(paramTypes.get(i), className))) {
                     return false;
                 }
             }
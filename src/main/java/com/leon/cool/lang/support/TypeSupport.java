@@ -1,13 +1,13 @@
 package com.leon.cool.lang.support;
 
 import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.support.infrastructure.ClassHierarchy;
 import com.leon.cool.lang.tokenizer.Token;
 import com.leon.cool.lang.type.Type;
 import com.leon.cool.lang.type.TypeEnum;
 
 import java.util.Map;
 
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
 import static com.leon.cool.lang.glossary.TokenKind.ID;
 import static com.leon.cool.lang.glossary.TokenKind.TYPE;
 
@@ -79,7 +79,7 @@ public class TypeSupport {
 
 
     public static boolean isSelf(Token token) {
-        return token.kind == ID && token.name.equals(Constant.SELF);
+        return token.kind == ID && token.name == Constant.SELF;
     }
 
     public static boolean isBasicType(Type typeInfo) {
@@ -101,24 +101,17 @@ public class TypeSupport {
      * @param parentTypeInfo 父类型
      * @return true：存在父子关系；false：不存在父子关系
      */
-    public static boolean isParent(Map<String, String> classGraph, Type typeInfo, Type parentTypeInfo) {
+    public static boolean isParent(ClassHierarchy hierarchy, Type typeInfo, Type parentTypeInfo) {
         if (typeInfo.type() == TypeEnum.NO_TYPE) {
             return true;
         } else if (typeInfo.type() == TypeEnum.SELF_TYPE && parentTypeInfo.type() == TypeEnum.SELF_TYPE) {
-            return typeInfo.replace().type() == parentTypeInfo.replace().type();
+            return typeInfo == parentTypeInfo;
         } else if (typeInfo.type() != TypeEnum.SELF_TYPE && parentTypeInfo.type() == TypeEnum.SELF_TYPE) {
             return false;
         } else if (typeInfo.type() == TypeEnum.SELF_TYPE && parentTypeInfo.type() != TypeEnum.SELF_TYPE) {
-            return isParent(classGraph, typeInfo.replace(), parentTypeInfo);
+            return isParent(hierarchy, typeInfo.replace(), parentTypeInfo);
         } else if (typeInfo.type() != TypeEnum.SELF_TYPE && parentTypeInfo.type() != TypeEnum.SELF_TYPE) {
-            var temp = typeInfo;
-            while (temp != null) {
-                if (temp.className().equals(parentTypeInfo.className())) return true;
-                var parentType = classGraph.get(temp.className());
-                if (parentType == null) return false;
-                temp = objectType(parentType);
-            }
-            return false;
+            return hierarchy.isSubclass(typeInfo, parentTypeInfo);
         }
         return false;
     }
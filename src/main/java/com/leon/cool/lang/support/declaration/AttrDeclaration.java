@@ -25,4 +25,9 @@ public class AttrDeclaration {
     public String id;
     public String type;
     public Optional<Expression> expr;
+
+    /**
+     * 初始化表达式中let，case绑定的变量需要的frame大小
+     */
+    public int frameSize;
 }
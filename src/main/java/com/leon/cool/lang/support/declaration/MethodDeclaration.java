@@ -1,6 +1,8 @@
 package com.leon.cool.lang.support.declaration;
 
 import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.Intrinsic;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,6 +31,34 @@ public class MethodDeclaration {
     public MethodDef declaration;
     public String owner;
 
+    /**
+     * 第一次调用时按owner和methodName解析，之后不再比较字符串
+     */
+    private Intrinsic intrinsic;
+
+    public Intrinsic intrinsic() {
+        if (intrinsic == null) intrinsic = Intrinsic.lookup(owner, methodName);
+        return intrinsic;
+    }
+
+    /**
+     * 分配调用的frame，形参占frame的前几个槽位，不超过两个实参的调用直接传arg0，arg1
+     */
+    public CoolObject[] frame(CoolObject arg0, CoolObject arg1) {
+        var frame = new CoolObject[declaration.frameSize];
+        var size = declaration.formals.size();
+        if (size > 0) frame[0] = arg0;
+        if (size > 1) frame[1] = arg1;
+        return frame;
+    }
+
+    public CoolObject[] frame(CoolObject[] args) {
+        assert args.length == declaration.formals.size();
+        var frame = new CoolObject[declaration.frameSize];
+        System.arraycopy(args, 0, frame, 0, args.length);
+        return frame;
+    }
+
     /**
      * 方法名以及形参类型相同，则比较成功，不包含（returnType，declaration，owner）
      *
@@ -42,7 +72,12 @@ public class MethodDeclaration {
 
         MethodDeclaration that = (MethodDeclaration) o;
 
-        return !(methodName != null ? !methodName.equals(that.methodName) : that.methodName != null) && !(paramTypes != null ? !paramTypes.toString().equals(that.paramTypes.toString()) : that.paramTypes != null);
+        //名字都来自同一次编译的符号表，只比较引用
+        if (methodName != that.methodName || paramTypes.size() != that.paramTypes.size()) return false;
+        for (var i = 0; i < paramTypes.size(); i++) {
+            if (paramTypes.get(i) != that.paramTypes.get(i)) return false;
+        }
+        return true;
 
     }
 
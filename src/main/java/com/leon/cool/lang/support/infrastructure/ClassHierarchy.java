@@ -0,0 +1,207 @@
+package com.leon.cool.lang.support.infrastructure;
+
+import com.leon.cool.lang.factory.TypeFactory;
+import com.leon.cool.lang.type.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ClassHierarchy {
+
+    /**
+     * 类名 -> 类的编号，编号是继承树先序遍历的顺序
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final String[] names;
+    private final Type[] types;
+
+    /**
+     * 类型编号(Type.id) -> 类的编号，不在classGraph里的类型为-1
+     */
+    private final int[] byType;
+    private final int[] depth;
+
+    /**
+     * 先序遍历中子树的结束位置(不含)，a是b的子类当且仅当 b <= a < end[b]
+     */
+    private final int[] end;
+
+    /**
+     * ancestors[k][i]是i向上第2^k个祖先，没有的话为-1
+     */
+    private final int[][] ancestors;
+
+    /**
+     * 父类不在classGraph里的类当作根
+     */
+    public ClassHierarchy(Map<String, String> classGraph, TypeFactory typeFactory) {
+        var children = new HashMap<String, List<String>>();
+        var roots = new ArrayList<String>();
+        for (var entry : classGraph.entrySet()) {
+            var parent = entry.getValue();
+            if (parent == null || !classGraph.containsKey(parent)) {
+                roots.add(entry.getKey());
+            } else {
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        var size = classGraph.size();
+        this.names = new String[size];
+        this.depth = new int[size];
+        this.end = new int[size];
+        var parents = new int[size];
+        //非递归的先序遍历，cursor是下一个要访问的子类的下标
+        var cursor = new int[size];
+        var stack = new ArrayDeque<Integer>();
+        for (var root : roots) {
+            stack.push(visit(root, -1, parents));
+            while (!stack.isEmpty()) {
+                var id = stack.peek();
+                var list = children.get(names[id]);
+                if (list != null && cursor[id] < list.size()) {
+                    stack.push(visit(list.get(cursor[id]++), id, parents));
+                } else {
+                    end[stack.pop()] = ids.size();
+                }
+            }
+        }
+        this.types = new Type[size];
+        for (var i = 0; i < size; i++) types[i] = typeFactory.objectType(names[i]);
+        this.byType = new int[typeFactory.count()];
+        Arrays.fill(byType, -1);
+        for (var i = 0; i < size; i++) byType[types[i].id()] = i;
+        var levels = 1;
+        for (var d : depth) {
+            while ((1 << levels) <= d) levels++;
+        }
+        this.ancestors = new int[levels][];
+        ancestors[0] = parents;
+        for (var k = 1; k < levels; k++) {
+            var previous = ancestors[k - 1];
+            var current = new int[size];
+            for (var i = 0; i < size; i++) {
+                current[i] = previous[i] < 0 ? -1 : previous[previous[i]];
+            }
+            ancestors[k] = current;
+        }
+    }
+
+    private int visit(String name, int parent, int[] parents) {
+        var id = ids.size();
+        ids.put(name, id);
+        names[id] = name;
+        parents[id] = parent;
+        depth[id] = parent < 0 ? 0 : depth[parent] + 1;
+        return id;
+    }
+
+    /**
+     * @return 类的个数，编号是0到size - 1
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return 类的编号，不在classGraph里的类返回-1
+     */
+    public int id(String className) {
+        var id = ids.get(className);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 按类型编号查数组，不再对类名做hash
+     */
+    public int id(Type type) {
+        var typeId = type.id();
+        return typeId < byType.length ? byType[typeId] : -1;
+    }
+
+    public int depth(String className) {
+        var id = id(className);
+        return id < 0 ? -1 : depth[id];
+    }
+
+    /**
+     * case的分支选择
+     *
+     * @param parentIds 候选父类的编号
+     * @return parentIds里离id最近的父类(包括自己)的下标，没有的话返回-1
+     */
+    public int nearest(int id, int[] parentIds) {
+        var index = -1;
+        for (var i = 0; i < parentIds.length; i++) {
+            if (!isSubclass(id, parentIds[i])) continue;
+            if (index < 0 || depth[parentIds[i]] > depth[parentIds[index]]) index = i;
+        }
+        return index;
+    }
+
+    /**
+     * 同名的类或者className在parentName的子树里
+     */
+    public boolean isSubclass(String className, String parentName) {
+        if (className.equals(parentName)) return true;
+        return isSubclass(id(className), id(parentName));
+    }
+
+    public boolean isSubclass(Type type, Type parentType) {
+        if (type == parentType) return true;
+        return isSubclass(id(type), id(parentType));
+    }
+
+    public boolean isSubclass(int id, int parentId) {
+        if (id < 0 || parentId < 0) return false;
+        return parentId <= id && id < end[parentId];
+    }
+
+    /**
+     * 最小公共父类，两个类不在同一棵继承树里时返回null
+     */
+    public String lca(String className1, String className2) {
+        if (className1.equals(className2)) return className1;
+        var lca = lca(id(className1), id(className2));
+        return lca < 0 ? null : names[lca];
+    }
+
+    public Type lca(Type type1, Type type2) {
+        if (type1 == type2) return type1;
+        var lca = lca(id(type1), id(type2));
+        return lca < 0 ? null : types[lca];
+    }
+
+    private int lca(int a, int b) {
+        if (a < 0 || b < 0) return -1;
+        if (isSubclass(a, b)) return b;
+        if (isSubclass(b, a)) return a;
+        //a向上跳到b的某个祖先的下面一层
+        for (var k = ancestors.length - 1; k >= 0; k--) {
+            var next = ancestors[k][a];
+            if (next >= 0 && !isSubclass(b, next)) a = next;
+        }
+        return ancestors[0][a];
+    }
+}
@@ -3,6 +3,8 @@ package com.leon.cool.lang.support.infrastructure;
 import com.leon.cool.lang.ast.ClassDef;
 import com.leon.cool.lang.ast.Feature;
 import com.leon.cool.lang.factory.TreeFactory;
+import com.leon.cool.lang.glossary.TokenKind;
+import com.leon.cool.lang.tokenizer.Symbols;
 import com.leon.cool.lang.tokenizer.Token;
 
 import java.util.ArrayList;
@@ -33,6 +35,11 @@ import static com.leon.cool.lang.glossary.TokenKind.TYPE;
  */
 public class ClassTable {
     private final TreeFactory f = new TreeFactory();
+    private final Symbols symbols;
+
+    public ClassTable(Symbols symbols) {
+        this.symbols = symbols;
+    }
 
     /**
      * @return
@@ -64,38 +71,45 @@ public class ClassTable {
     public List<ClassDef> builtInClasses() {
         var classDefs = new ArrayList<ClassDef>();
         var features = new ArrayList<Feature>();
-        features.add(f.methodDef(new Token("abort", ID), Collections.EMPTY_LIST, new Token("Object", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("type_name", ID), Collections.EMPTY_LIST, new Token("String", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("copy", ID), Collections.EMPTY_LIST, new Token("SELF_TYPE", TYPE), f.noExpression()));
-        ClassDef objectDef = f.classDef(new Token("Object", TYPE), Optional.empty(), features);
+        features.add(f.methodDef(token("abort", ID), Collections.EMPTY_LIST, token("Object", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("type_name", ID), Collections.EMPTY_LIST, token("String", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("copy", ID), Collections.EMPTY_LIST, token("SELF_TYPE", TYPE), f.noExpression()));
+        ClassDef objectDef = f.classDef(token("Object", TYPE), Optional.empty(), features);
         classDefs.add(objectDef);
 
         features = new ArrayList<>();
-        features.add(f.methodDef(new Token("out_string", ID), Collections.singletonList(f.formal(new Token("arg", ID), new Token("String", TYPE))), new Token("SELF_TYPE", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("out_int", ID), Collections.singletonList(f.formal(new Token("arg", ID), new Token("Int", TYPE))), new Token("SELF_TYPE", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("in_string", ID), Collections.EMPTY_LIST, new Token("String", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("in_int", ID), Collections.EMPTY_LIST, new Token("Int", TYPE), f.noExpression()));
-        ClassDef ioDef = f.classDef(new Token("IO", TYPE), Optional.of(new Token("Object", TYPE)), features);
+        features.add(f.methodDef(token("out_string", ID), Collections.singletonList(f.formal(token("arg", ID), token("String", TYPE))), token("SELF_TYPE", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("out_int", ID), Collections.singletonList(f.formal(token("arg", ID), token("Int", TYPE))), token("SELF_TYPE", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("in_string", ID), Collections.EMPTY_LIST, token("String", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("in_int", ID), Collections.EMPTY_LIST, token("Int", TYPE), f.noExpression()));
+        ClassDef ioDef = f.classDef(token("IO", TYPE), Optional.of(token("Object", TYPE)), features);
         classDefs.add(ioDef);
 
         features = new ArrayList<>();
-        features.add(f.attrDef(new Token("val", ID), new Token("Int", TYPE), Optional.empty()));
-        ClassDef intDef = f.classDef(new Token("Int", TYPE), Optional.of(new Token("Object", TYPE)), features);
+        features.add(f.attrDef(token("val", ID), token("Int", TYPE), Optional.empty()));
+        ClassDef intDef = f.classDef(token("Int", TYPE), Optional.of(token("Object", TYPE)), features);
         classDefs.add(intDef);
 
         features = new ArrayList<>();
-        features.add(f.attrDef(new Token("val", ID), new Token("Bool", TYPE), Optional.empty()));
-        ClassDef boolDef = f.classDef(new Token("Bool", TYPE), Optional.of(new Token("Object", TYPE)), features);
+        features.add(f.attrDef(token("val", ID), token("Bool", TYPE), Optional.empty()));
+        ClassDef boolDef = f.classDef(token("Bool", TYPE), Optional.of(token("Object", TYPE)), features);
         classDefs.add(boolDef);
 
         features = new ArrayList<>();
-        features.add(f.attrDef(new Token("val", ID), new Token("Int", TYPE), Optional.empty()));
-        features.add(f.attrDef(new Token("str_field", ID), new Token("String", TYPE), Optional.empty()));
-        features.add(f.methodDef(new Token("length", ID), Collections.EMPTY_LIST, new Token("Int", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("concat", ID), Collections.singletonList(f.formal(new Token("arg", ID), new Token("String", TYPE))), new Token("String", TYPE), f.noExpression()));
-        features.add(f.methodDef(new Token("substr", ID), Arrays.asList(f.formal(new Token("arg", ID), new Token("Int", TYPE)), f.formal(new Token("arg2", ID), new Token("Int", TYPE))), new Token("String", TYPE), f.noExpression()));
-        ClassDef stringDef = f.classDef(new Token("String", TYPE), Optional.of(new Token("Object", TYPE)), features);
+        features.add(f.attrDef(token("val", ID), token("Int", TYPE), Optional.empty()));
+        features.add(f.attrDef(token("str_field", ID), token("String", TYPE), Optional.empty()));
+        features.add(f.methodDef(token("length", ID), Collections.EMPTY_LIST, token("Int", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("concat", ID), Collections.singletonList(f.formal(token("arg", ID), token("String", TYPE))), token("String", TYPE), f.noExpression()));
+        features.add(f.methodDef(token("substr", ID), Arrays.asList(f.formal(token("arg", ID), token("Int", TYPE)), f.formal(token("arg2", ID), token("Int", TYPE))), token("String", TYPE), f.noExpression()));
+        ClassDef stringDef = f.classDef(token("String", TYPE), Optional.of(token("Object", TYPE)), features);
         classDefs.add(stringDef);
         return classDefs;
     }
+
+    /**
+     * 内建类的名字也放进解析时的符号表，和源码里的同名token是同一个引用
+     */
+    private Token token(String name, TokenKind kind) {
+        return new Token(symbols.symbol(name), kind);
+    }
 }
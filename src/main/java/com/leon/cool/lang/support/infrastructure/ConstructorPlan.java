@@ -0,0 +1,81 @@
+package com.leon.cool.lang.support.infrastructure;
+
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.declaration.AttrDeclaration;
+
+import java.util.ArrayList;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolBoolDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
+import static com.leon.cool.lang.support.TypeSupport.isBoolType;
+import static com.leon.cool.lang.support.TypeSupport.isIntType;
+import static com.leon.cool.lang.support.TypeSupport.isStringType;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ConstructorPlan {
+
+    /**
+     * 按对象布局排好的属性初值，默认值都是共享的不可变对象，new时直接clone
+     */
+    public final CoolObject[] defaults;
+
+    /**
+     * 有初始化表达式的属性和它们的槽位，按布局顺序(父类在前)排列。
+     * 计划可能在类型检查时就建立了，frameSize要到分配frame槽位之后才有，所以保存声明本身
+     */
+    public final int[] slots;
+    public final AttrDeclaration[] initializers;
+
+    private ConstructorPlan(CoolObject[] defaults, int[] slots, AttrDeclaration[] initializers) {
+        this.defaults = defaults;
+        this.slots = slots;
+        this.initializers = initializers;
+    }
+
+    /**
+     * String = ""，Bool = false，Int = 0，其他类型 = void
+     */
+    public static ConstructorPlan of(AttrDeclaration[] layout) {
+        var defaults = new CoolObject[layout.length];
+        var indexes = new ArrayList<Integer>();
+        for (var i = 0; i < layout.length; i++) {
+            var attr = layout[i];
+            if (isStringType(attr.type)) {
+                defaults[i] = coolStringDefault();
+            } else if (isBoolType(attr.type)) {
+                defaults[i] = coolBoolDefault();
+            } else if (isIntType(attr.type)) {
+                defaults[i] = coolIntDefault();
+            } else {
+                defaults[i] = coolVoid();
+            }
+            if (attr.expr.isPresent()) indexes.add(i);
+        }
+        var size = indexes.size();
+        var slots = new int[size];
+        var initializers = new AttrDeclaration[size];
+        for (var i = 0; i < size; i++) {
+            slots[i] = indexes.get(i);
+            initializers[i] = layout[slots[i]];
+        }
+        return new ConstructorPlan(defaults, slots, initializers);
+    }
+}
@@ -24,10 +24,13 @@ public class Context {
 
     public final CoolObject selfObject;
 
-    public final SymbolTable<CoolObject> environment;
+    /**
+     * 当前方法调用的局部变量，按LexicalAddressTreeScanner分配的槽位存取
+     */
+    public final CoolObject[] frame;
 
-    public Context(@Nullable CoolObject selfObject, @Nullable SymbolTable<CoolObject> environment) {
+    public Context(@Nullable CoolObject selfObject, @Nullable CoolObject[] frame) {
         this.selfObject = selfObject;
-        this.environment = environment;
+        this.frame = frame;
     }
 }
@@ -2,10 +2,9 @@ package com.leon.cool.lang.support.infrastructure;
 
 import com.leon.cool.lang.object.CoolObject;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Copyright leon
@@ -27,7 +26,10 @@ import java.util.stream.Collectors;
 public class ObjectHeap {
     private static final Logger LOGGER = Logger.getLogger(ObjectHeap.class.getName());
 
-    private Map<CoolObject, Boolean> heap = new HashMap<>();
+    /**
+     * 按引用区分对象，不调用CoolObject的equals和hashCode
+     */
+    private Map<CoolObject, Boolean> heap = new IdentityHashMap<>();
 
     public void add(CoolObject obj) {
         heap.put(obj, false);
@@ -54,10 +56,12 @@ public class ObjectHeap {
      */
     public void clearUnreachable() {
         LOGGER.info("*Mark-Sweep GC* total object size:" + heap.size());
-        var sets = heap.entrySet().stream().filter(Map.Entry::getValue).collect(Collectors.toSet());
-        LOGGER.info("*Mark-Sweep GC* reachable object size:" + sets.size());
-        heap = new HashMap<>();
-        sets.stream().forEach(e -> heap.put(e.getKey(), false));
+        var reachable = new IdentityHashMap<CoolObject, Boolean>();
+        heap.forEach((obj, reach) -> {
+            if (reach) reachable.put(obj, false);
+        });
+        LOGGER.info("*Mark-Sweep GC* reachable object size:" + reachable.size());
+        heap = reachable;
     }
 
     public int size() {
@@ -1,7 +1,6 @@
 package com.leon.cool.lang.support.infrastructure;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Optional;
@@ -24,14 +23,17 @@ import java.util.Optional;
  * @author leon on 15-10-11
  */
 public class SymbolTable<T> {
-    private final LinkedList<HashMap<String, T>> tbl;
+    /**
+     * 符号都来自解析时的符号表(Symbols)，作用域按引用查找
+     */
+    private final LinkedList<IdentityHashMap<String, T>> tbl;
 
     public SymbolTable() {
         tbl = new LinkedList<>();
     }
 
     public void enterScope() {
-        tbl.push(new LinkedHashMap<>());
+        tbl.push(new IdentityHashMap<>());
     }
 
     public void exitScope() {
@@ -52,8 +54,8 @@ public class SymbolTable<T> {
         if (tbl.isEmpty()) {
             System.out.println("lookup: no scope in symbol table.");
         }
-        for (var i = 0; i < tbl.size(); i++) {
-            T info = tbl.get(i).get(sym);
+        for (var scope : tbl) {
+            T info = scope.get(sym);
             if (info != null) return Optional.of(info);
         }
         return Optional.empty();
@@ -63,14 +65,14 @@ public class SymbolTable<T> {
         if (tbl.isEmpty()) {
             System.out.println("lookup: no scope in symbol table.");
         }
-        for (var i = 0; i < tbl.size(); i++) {
-            if (tbl.get(i).containsKey(sym)) {
-                tbl.get(i).put(sym, obj);
+        for (var scope : tbl) {
+            if (scope.containsKey(sym)) {
+                scope.put(sym, obj);
             }
         }
     }
 
-    public HashMap<String, T> elementAt(int index) {
+    public Map<String, T> elementAt(int index) {
         return tbl.get(index);
     }
 
@@ -34,6 +34,10 @@ public class CoolScanner {
         this.tokenizer = tokenizer;
     }
 
+    public Symbols symbols() {
+        return tokenizer.symbols;
+    }
+
     public Token token() {
         return token(0);
     }
@@ -29,10 +29,20 @@ import static com.leon.cool.lang.support.ErrorSupport.error;
  */
 public class CoolTokenizer {
     public CoolTokenizer(char[] chs) {
+        this(chs, new Symbols());
+    }
+
+    public CoolTokenizer(char[] chs, Symbols symbols) {
         this.chs = chs;
+        this.symbols = symbols;
     }
 
     private final char[] chs;
+
+    /**
+     * 这次编译的符号表，增量编译时多次解析共用同一个
+     */
+    public final Symbols symbols;
     private int i = 0;
     private int column = 1;
     private int row = 1;
@@ -271,11 +281,13 @@ public class CoolTokenizer {
         if (tk.tag == TokenTag.DEFAULT) {
             return new Token(tk.name, tk, startPos);
         } else if (tk.tag == TokenTag.NAME || tk.tag == TokenTag.TYPE) {
-            var token = lookup(getName(name));
+            //标识符和类型名在symbols里只保留一份，同名的token共用同一个String，并且和Constant里的常量是同一个引用
+            var symbol = symbols.symbol(getName(name));
+            var token = lookup(symbol);
             if (token != null) {
                 return token;
             } else {
-                return new Token(getName(name), tk, startPos);
+                return new Token(symbol, tk, startPos);
             }
         } else if (tk.tag == TokenTag.COMMENT) {
             //SKIP COMMENT
@@ -0,0 +1,53 @@
+package com.leon.cool.lang.tokenizer;
+
+import com.leon.cool.lang.Constant;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class Symbols {
+
+    /**
+     * Constant里的名字预先放进来，和token比较时可以直接用==
+     */
+    private static final String[] BUILT_IN = new String[]{Constant.OBJECT, Constant.IO, Constant.STRING, Constant.INT, Constant.BOOL, Constant.SELF_TYPE, Constant.NO_TYPE, Constant.VOID, Constant.SELF, Constant.TRUE, Constant.FALSE, Constant.MAIN_CLASS, Constant.MAIN_METHOD};
+
+    /**
+     * 一次编译里的标识符和类型名，同名的只保留第一个String，字符串字面量不放进来
+     */
+    private final Map<String, String> symbols = new HashMap<>();
+
+    public Symbols() {
+        for (var name : BUILT_IN) symbols.put(name, name);
+    }
+
+    /**
+     * @return 和name同名的规范引用，同一个Symbols里同名的符号可以用==比较
+     */
+    public String symbol(String name) {
+        if (name == null) return null;
+        var symbol = symbols.putIfAbsent(name, name);
+        return symbol == null ? name : symbol;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+}
@@ -0,0 +1,852 @@
+package com.leon.cool.lang.tree.compile.impl;
+
+import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.ast.Assign;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.BoolConst;
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.ast.Cond;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.IsVoid;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.Lt;
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Mul;
+import com.leon.cool.lang.ast.Neg;
+import com.leon.cool.lang.ast.NewDef;
+import com.leon.cool.lang.ast.NoExpression;
+import com.leon.cool.lang.ast.Not;
+import com.leon.cool.lang.ast.Paren;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.Sub;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.SymbolTable;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+import static com.leon.cool.lang.support.TypeSupport.isBasicType;
+import static com.leon.cool.lang.support.TypeSupport.isParent;
+import static com.leon.cool.lang.support.TypeSupport.isSelf;
+import static com.leon.cool.lang.support.TypeSupport.isSelfType;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class JavaSourceTreeScanner extends TreeScanner {
+
+    private static final String OBJECT = "java.lang.Object";
+    private static final String STRING = "java.lang.String";
+    private static final String JVM_OBJECT = "com.leon.cool.lang.jvm.JvmObject";
+    private static final String JVM_IO = "com.leon.cool.lang.jvm.JvmIO";
+    private static final String JVM_RUNTIME = "com.leon.cool.lang.jvm.JvmRuntime";
+
+    private static final Set<String> RESERVED = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+            "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while",
+            "true", "false", "null", "var", "_",
+            "getClass", "hashCode", "equals", "toString", "clone", "finalize", "notify", "notifyAll", "wait");
+
+    /**
+     * 类的binary name -> Java源码
+     */
+    public final Map<String, String> sources = new LinkedHashMap<>();
+
+    private String className;
+    private StringBuilder out;
+    private String indent;
+    private SymbolTable<Local> locals;
+    private Set<String> names;
+    private int temps;
+
+    /**
+     * 最近一个表达式翻译成的Java表达式，类型是javaType(expr.typeInfo)，求值需要的语句已经输出
+     */
+    private String result;
+
+    public JavaSourceTreeScanner(TreeSupport treeSupport) {
+        super(treeSupport);
+    }
+
+    public static String binaryName(String className) {
+        return Constant.JVM_PACKAGE + "." + className;
+    }
+
+    @Override
+    public void applyProgram(Program program) {
+        for (var classDef : program.classDef) {
+            if (!isBuiltInClass(classDef.type.name)) scan(classDef);
+        }
+    }
+
+    /**
+     * 和JvmCodeGenTreeScanner生成的类形状一致：
+     * 虚方法m转发到Owner$m，属性初始化在Owner$$init，$$new$SELF_TYPE创建同类对象
+     */
+    @Override
+    public void applyClassDef(ClassDef classDef) {
+        className = classDef.type.name;
+        var parentName = classDef.inheritsType.get().name;
+        var source = new StringBuilder();
+        source.append("package ").append(Constant.JVM_PACKAGE).append(";\n\n");
+        source.append("public class ").append(className).append(" extends ").append(superClass(parentName)).append(" {\n");
+        var attrDefs = classDef.features.stream().filter(e -> e instanceof AttrDef).map(e -> (AttrDef) e).collect(Collectors.toList());
+        for (var attrDef : attrDefs) {
+            var type = javaType(attrDef.type.name);
+            source.append("    public ").append(type).append(' ').append(identifier(attrDef.id.name));
+            if (type.equals(STRING)) source.append(" = \"\"");
+            source.append(";\n");
+        }
+        source.append('\n');
+
+        source.append("    public static ").append(className).append(' ').append(Constant.JVM_NEW).append("() {\n");
+        source.append("        ").append(className).append(" obj = new ").append(className).append("();\n");
+        source.append("        obj.").append(className).append(Constant.JVM_INIT).append("();\n");
+        source.append("        return obj;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public ").append(OBJECT).append(' ').append(Constant.JVM_NEW_SELF_TYPE).append("() {\n");
+        source.append("        return ").append(Constant.JVM_NEW).append("();\n");
+        source.append("    }\n\n");
+
+        begin();
+        if (!isBuiltInClass(parentName)) statement("this." + parentName + Constant.JVM_INIT + "();");
+        for (var attrDef : attrDefs) {
+            if (attrDef.expr.isPresent()) {
+                var value = value(attrDef.expr.get(), javaType(attrDef.type.name));
+                statement("this." + identifier(attrDef.id.name) + " = " + value + ";");
+            }
+        }
+        source.append("    public void ").append(className).append(Constant.JVM_INIT).append("() {\n").append(out).append("    }\n\n");
+
+        for (var feature : classDef.features) {
+            if (feature instanceof MethodDef) {
+                var methodDef = (MethodDef) feature;
+                var returnType = javaType(methodDef.type.name);
+                var params = methodDef.formals.stream().map(e -> javaType(e.type.name) + " " + identifier(e.id.name)).collect(Collectors.joining(", "));
+                var args = methodDef.formals.stream().map(e -> identifier(e.id.name)).collect(Collectors.joining(", "));
+                var name = identifier(methodDef.id.name);
+
+                begin();
+                for (var formal : methodDef.formals) {
+                    var local = identifier(formal.id.name);
+                    names.add(local);
+                    locals.addId(formal.id.name, new Local(local, javaType(formal.type.name)));
+                }
+                var value = value(methodDef.expr, returnType);
+                statement("return " + value + ";");
+                source.append("    public ").append(returnType).append(' ').append(className).append('$').append(name).append('(').append(params).append(") {\n");
+                source.append(out).append("    }\n\n");
+
+                source.append("    public ").append(returnType).append(' ').append(name).append('(').append(params).append(") {\n");
+                source.append("        return ").append(className).append('$').append(name).append('(').append(args).append(");\n");
+                source.append("    }\n\n");
+            }
+        }
+
+        if (className.equals(Constant.MAIN_CLASS)) {
+            var main = treeSupport.lookupMethodDeclaration(Constant.MAIN_CLASS, Constant.MAIN_METHOD, Collections.emptyList());
+            if (main.isPresent()) {
+                source.append("    public static void main(").append(STRING).append("[] args) {\n");
+                source.append("        ").append(Constant.JVM_NEW).append("().").append(identifier(Constant.MAIN_METHOD)).append("();\n");
+                source.append("    }\n\n");
+            }
+        }
+        source.setLength(source.length() - 1);
+        source.append("}\n");
+        sources.put(binaryName(className), source.toString());
+    }
+
+    @Override
+    public void applyAssign(Assign assign) {
+        var name = assign.id.tok.name;
+        var local = locals.lookup(name);
+        String target;
+        String type;
+        if (local.isPresent()) {
+            target = local.get().name;
+            type = local.get().type;
+        } else {
+            target = "this." + identifier(name);
+            type = attrType(name);
+        }
+        result = coerce("(" + target + " = " + value(assign.expr, type) + ")", type, javaType(assign.typeInfo));
+    }
+
+    @Override
+    public void applyBlocks(Blocks blocks) {
+        for (var i = 0; i < blocks.exprs.size() - 1; i++) {
+            discard(gen(blocks.exprs.get(i)), javaType(blocks.exprs.get(i).typeInfo));
+        }
+        scan(blocks.exprs.get(blocks.exprs.size() - 1));
+    }
+
+    @Override
+    public void applyNewDef(NewDef newDef) {
+        if (isSelfType(newDef.type)) {
+            result = coerce("this." + Constant.JVM_NEW_SELF_TYPE + "()", OBJECT, javaType(newDef.typeInfo));
+            return;
+        }
+        switch (newDef.type.name) {
+            case Constant.INT:
+                result = "0";
+                break;
+            case Constant.BOOL:
+                result = "false";
+                break;
+            case Constant.STRING:
+                result = "\"\"";
+                break;
+            case Constant.OBJECT:
+                result = "new " + JVM_OBJECT + "()";
+                break;
+            case Constant.IO:
+                result = "new " + JVM_IO + "()";
+                break;
+            default:
+                result = newDef.type.name + "." + Constant.JVM_NEW + "()";
+                break;
+        }
+    }
+
+    @Override
+    public void applyIsVoid(IsVoid isVoid) {
+        var value = gen(isVoid.expr);
+        if (isBasicType(isVoid.expr.typeInfo)) {
+            discard(value, javaType(isVoid.expr.typeInfo));
+            result = "false";
+        } else {
+            result = "(" + value + " == null)";
+        }
+    }
+
+    @Override
+    public void applyPlus(Plus plus) {
+        binary("+", plus.left, plus.right);
+    }
+
+    @Override
+    public void applySub(Sub sub) {
+        binary("-", sub.left, sub.right);
+    }
+
+    @Override
+    public void applyMul(Mul mul) {
+        binary("*", mul.left, mul.right);
+    }
+
+    @Override
+    public void applyDivide(Divide divide) {
+        var values = values(List.of(divide.left, divide.right), List.of("int", "int"));
+        result = JVM_RUNTIME + ".divide(" + values.get(0) + ", " + values.get(1) + ", " + literal(errorPos(divide.right)) + ")";
+    }
+
+    @Override
+    public void applyNeg(Neg neg) {
+        result = "(-" + gen(neg.expr) + ")";
+    }
+
+    @Override
+    public void applyLt(Lt lt) {
+        binary("<", lt.left, lt.right);
+    }
+
+    @Override
+    public void applyLtEq(LtEq ltEq) {
+        binary("<=", ltEq.left, ltEq.right);
+    }
+
+    @Override
+    public void applyComp(Comp comp) {
+        var l = comp.left.typeInfo.type();
+        var r = comp.right.typeInfo.type();
+        if ((l == TypeEnum.INT && r == TypeEnum.INT) || (l == TypeEnum.BOOL && r == TypeEnum.BOOL)) {
+            binary("==", comp.left, comp.right);
+        } else if (l == TypeEnum.STRING && r == TypeEnum.STRING) {
+            var values = values(List.of(comp.left, comp.right), List.of(STRING, STRING));
+            result = values.get(0) + ".equals(" + values.get(1) + ")";
+        } else {
+            var values = values(List.of(comp.left, comp.right), List.of(OBJECT, OBJECT));
+            result = JVM_RUNTIME + ".eq(" + values.get(0) + ", " + values.get(1) + ")";
+        }
+    }
+
+    @Override
+    public void applyNot(Not not) {
+        result = "(!" + gen(not.expr) + ")";
+    }
+
+    @Override
+    public void applyIdConst(IdConst idConst) {
+        if (isSelf(idConst.tok)) {
+            result = "this";
+            return;
+        }
+        var local = locals.lookup(idConst.tok.name);
+        if (local.isPresent()) {
+            result = coerce(local.get().name, local.get().type, javaType(idConst.typeInfo));
+        } else {
+            result = coerce("this." + identifier(idConst.tok.name), attrType(idConst.tok.name), javaType(idConst.typeInfo));
+        }
+    }
+
+    @Override
+    public void applyStringConst(StringConst stringConst) {
+        result = literal(stringConst.tok.name);
+    }
+
+    @Override
+    public void applyBoolConst(BoolConst boolConst) {
+        result = String.valueOf(boolConst.bool);
+    }
+
+    @Override
+    public void applyIntConst(IntConst intConst) {
+        result = String.valueOf(Integer.parseInt(intConst.tok.name));
+    }
+
+    @Override
+    public void applyParen(Paren paren) {
+        scan(paren.expr);
+    }
+
+    @Override
+    public void applyNoExpression(NoExpression expr) {
+        result = "null";
+    }
+
+    @Override
+    public void applyDispatch(Dispatch dispatch) {
+        var methodDeclaration = lookupMethodDeclaration(className, dispatch.id.name, dispatch.params);
+        var args = values(dispatch.params, paramTypes(methodDeclaration));
+        result = coerce("this." + identifier(methodDeclaration.methodName) + "(" + String.join(", ", args) + ")",
+                javaType(methodDeclaration.returnType), javaType(dispatch.typeInfo));
+    }
+
+    /**
+     * 和解释器一样先对参数求值再对receiver求值，receiver不是self时参数先存到临时变量
+     */
+    @Override
+    public void applyStaticDispatch(StaticDispatch staticDispatch) {
+        var params = staticDispatch.dispatch.params;
+        var name = staticDispatch.dispatch.id.name;
+        var receiverClass = staticDispatch.expr.typeInfo.replace().className();
+        var lookupClass = staticDispatch.type.isPresent() ? staticDispatch.type.get().name : receiverClass;
+        var methodDeclaration = lookupMethodDeclaration(lookupClass, name, params);
+        var exprs = new ArrayList<>(params);
+        exprs.add(staticDispatch.expr);
+        var args = values(params, paramTypes(methodDeclaration), List.of(staticDispatch.expr));
+        if (!isSelfExpr(staticDispatch.expr)) {
+            for (var i = 0; i < args.size(); i++) args.set(i, stable(args.get(i), javaType(methodDeclaration.paramTypes.get(i))));
+        }
+        var receiverType = javaType(staticDispatch.expr.typeInfo);
+        var receiver = gen(staticDispatch.expr);
+        var voidPos = literal(errorPos(staticDispatch.expr));
+        String call;
+        if (isPrimitive(receiverType) || receiverType.equals(OBJECT) || receiverType.equals(STRING)) {
+            //receiver可能是Int,Bool,String的值，由JvmRuntime处理
+            if (receiverType.equals(OBJECT)) receiver = JVM_RUNTIME + ".nonVoid(" + receiver + ", " + voidPos + ")";
+            if (methodDeclaration.owner.equals(Constant.STRING)) {
+                switch (name) {
+                    case "length":
+                        call = receiver + ".length()";
+                        break;
+                    case "concat":
+                        call = receiver + ".concat(" + args.get(0) + ")";
+                        break;
+                    default:
+                        call = JVM_RUNTIME + ".substr(" + receiver + ", " + args.get(0) + ", " + args.get(1) + ", "
+                                + literal(errorPos(staticDispatch.starPos, staticDispatch.endPos)) + ")";
+                        break;
+                }
+            } else {
+                var helper = staticDispatch.type.isPresent() ? methodDeclaration.owner + "$" + name : name;
+                call = JVM_RUNTIME + "." + helper + "(" + coerce(receiver, receiverType, OBJECT) + ")";
+            }
+        } else {
+            receiver = JVM_RUNTIME + ".nonVoid(" + receiver + ", " + voidPos + ")";
+            if (staticDispatch.type.isPresent()) {
+                var owner = methodDeclaration.owner;
+                receiver = coerce(receiver, receiverType, javaType(owner));
+                call = receiver + "." + owner + "$" + identifier(name) + "(" + String.join(", ", args) + ")";
+            } else {
+                call = receiver + "." + identifier(name) + "(" + String.join(", ", args) + ")";
+            }
+        }
+        result = coerce(call, javaType(methodDeclaration.returnType), javaType(staticDispatch.typeInfo));
+    }
+
+    /**
+     * 分支不需要输出语句时翻译成条件表达式，否则翻译成if语句
+     */
+    @Override
+    public void applyCond(Cond cond) {
+        var type = javaType(cond.typeInfo);
+        var condition = gen(cond.condExpr);
+        if (!needsStatements(cond.thenExpr) && !needsStatements(cond.elseExpr)) {
+            var thenValue = value(cond.thenExpr, type);
+            var elseValue = value(cond.elseExpr, type);
+            if (!isPrimitive(type)) {
+                thenValue = "(" + type + ") " + thenValue;
+                elseValue = "(" + type + ") " + elseValue;
+            }
+            result = "(" + condition + " ? " + thenValue + " : " + elseValue + ")";
+            return;
+        }
+        var temp = temp(type);
+        open("if (" + condition + ") {");
+        statement(temp + " = " + value(cond.thenExpr, type) + ";");
+        reopen("} else {");
+        statement(temp + " = " + value(cond.elseExpr, type) + ";");
+        close();
+        result = temp;
+    }
+
+    @Override
+    public void applyLoop(Loop loop) {
+        open("while (true) {");
+        statement("if (!" + gen(loop.condExpr) + ") break;");
+        discard(gen(loop.loopExpr), javaType(loop.loopExpr.typeInfo));
+        close();
+        result = "null";
+    }
+
+    @Override
+    public void applyLet(Let let) {
+        locals.enterScope();
+        for (var attrDef : let.attrDefs) {
+            var type = javaType(attrDef.type.name);
+            var value = attrDef.expr.isPresent() ? value(attrDef.expr.get(), type) : defaultValue(type);
+            var name = fresh(attrDef.id.name);
+            statement(type + " " + name + " = " + value + ";");
+            locals.addId(attrDef.id.name, new Local(name, type));
+        }
+        scan(let.expr);
+        locals.exitScope();
+    }
+
+    /**
+     * 按继承深度从深到浅依次instanceof，第一个匹配的分支就是最近的祖先类型
+     */
+    @Override
+    public void applyCaseDef(CaseDef caseDef) {
+        var type = javaType(caseDef.typeInfo);
+        //静态类型是Object时instanceof才能检查任意类型
+        var object = fresh("$t");
+        statement(OBJECT + " " + object + " = " + value(caseDef.caseExpr, OBJECT) + ";");
+        var temp = temp(type);
+        var branches = caseDef.branchList.stream().sorted(Comparator.comparingInt((Branch e) -> depth(e.type.name)).reversed()).collect(Collectors.toList());
+        var first = true;
+        for (var branch : branches) {
+            var test = branch.type.name.equals(Constant.OBJECT) ? object + " != null" : object + " instanceof " + caseClass(branch.type.name);
+            if (first) {
+                open("if (" + test + ") {");
+                first = false;
+            } else {
+                reopen("} else if (" + test + ") {");
+            }
+            locals.enterScope();
+            var localType = javaType(branch.type.name);
+            var name = fresh(branch.id.name);
+            statement(localType + " " + name + " = " + coerce(object, OBJECT, localType) + ";");
+            locals.addId(branch.id.name, new Local(name, localType));
+            statement(temp + " = " + value(branch.expr, type) + ";");
+            if (!isPrimitive(type)) statement("if (" + temp + " == null) " + JVM_RUNTIME + ".caseVoid(" + literal(errorPos(branch.expr)) + ");");
+            locals.exitScope();
+        }
+        reopen("} else {");
+        statement(JVM_RUNTIME + ".caseMismatch(" + literal(errorPos(caseDef.starPos, caseDef.endPos)) + ");");
+        close();
+        result = temp;
+    }
+
+    private void begin() {
+        out = new StringBuilder();
+        indent = "        ";
+        locals = new SymbolTable<>();
+        locals.enterScope();
+        names = new HashSet<>();
+        temps = 0;
+    }
+
+    private String gen(Expression expr) {
+        scan(expr);
+        return result;
+    }
+
+    private String value(Expression expr, String type) {
+        return coerce(gen(expr), javaType(expr.typeInfo), type);
+    }
+
+    private void binary(String operator, Expression left, Expression right) {
+        var type = javaType(left.typeInfo);
+        var values = values(List.of(left, right), List.of(type, javaType(right.typeInfo)));
+        result = "(" + values.get(0) + " " + operator + " " + values.get(1) + ")";
+    }
+
+    private List<String> values(List<Expression> exprs, List<String> types) {
+        return values(exprs, types, Collections.emptyList());
+    }
+
+    /**
+     * 从左到右求值，后面的表达式需要先输出语句时，前面的值先存到临时变量里
+     */
+    private List<String> values(List<Expression> exprs, List<String> types, List<Expression> following) {
+        var values = new ArrayList<String>();
+        for (var i = 0; i < exprs.size(); i++) {
+            var value = value(exprs.get(i), types.get(i));
+            var later = new ArrayList<Expression>(exprs.subList(i + 1, exprs.size()));
+            later.addAll(following);
+            if (later.stream().anyMatch(this::needsStatements)) value = stable(value, types.get(i));
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * 不是常量的值存到临时变量
+     */
+    private String stable(String value, String type) {
+        if (isConstant(value)) return value;
+        var temp = fresh("$t");
+        statement(type + " " + temp + " = " + value + ";");
+        return temp;
+    }
+
+    private void discard(String value, String type) {
+        if (value.contains("(") || value.contains("=")) statement(type + " " + fresh("$t") + " = " + value + ";");
+    }
+
+    private String temp(String type) {
+        var temp = fresh("$t");
+        statement(type + " " + temp + " = " + defaultValue(type) + ";");
+        return temp;
+    }
+
+    private String fresh(String name) {
+        var base = identifier(name);
+        var candidate = base.equals("$t") ? base + temps++ : base;
+        while (!names.add(candidate)) candidate = base + "$" + temps++;
+        return candidate;
+    }
+
+    private void statement(String statement) {
+        out.append(indent).append(statement).append('\n');
+    }
+
+    private void open(String statement) {
+        statement(statement);
+        indent += "    ";
+    }
+
+    private void reopen(String statement) {
+        indent = indent.substring(4);
+        open(statement);
+    }
+
+    private void close() {
+        indent = indent.substring(4);
+        statement("}");
+    }
+
+    private boolean needsStatements(Expression expr) {
+        var finder = new StatementFinder(treeSupport);
+        expr.accept(finder);
+        return finder.found;
+    }
+
+    private String defaultValue(String type) {
+        switch (type) {
+            case "int":
+                return "0";
+            case "boolean":
+                return "false";
+            case STRING:
+                return "\"\"";
+            default:
+                return "null";
+        }
+    }
+
+    /**
+     * 值从from类型转换到to类型，Int和Bool与Object之间装箱拆箱
+     */
+    private String coerce(String value, String from, String to) {
+        if (from.equals(to)) return value;
+        if (to.equals(OBJECT)) {
+            switch (from) {
+                case "int":
+                    return "java.lang.Integer.valueOf(" + value + ")";
+                case "boolean":
+                    return "java.lang.Boolean.valueOf(" + value + ")";
+                default:
+                    return value;
+            }
+        }
+        switch (to) {
+            case "int":
+                return "((java.lang.Integer) " + value + ").intValue()";
+            case "boolean":
+                return "((java.lang.Boolean) " + value + ").booleanValue()";
+            default:
+                if (isSubclass(from, to)) return value;
+                return "((" + to + ") " + value + ")";
+        }
+    }
+
+    private boolean isSubclass(String from, String to) {
+        var fromClass = coolClass(from);
+        var toClass = coolClass(to);
+        if (fromClass == null || toClass == null) return false;
+        return isParent(treeSupport.hierarchy(), treeSupport.types.objectType(fromClass), treeSupport.types.objectType(toClass));
+    }
+
+    private static String coolClass(String type) {
+        switch (type) {
+            case "int":
+            case "boolean":
+            case OBJECT:
+                return null;
+            case STRING:
+                return Constant.STRING;
+            case JVM_IO:
+                return Constant.IO;
+            default:
+                return type;
+        }
+    }
+
+    private String caseClass(String typeName) {
+        switch (typeName) {
+            case Constant.INT:
+                return "java.lang.Integer";
+            case Constant.BOOL:
+                return "java.lang.Boolean";
+            default:
+                return javaType(typeName);
+        }
+    }
+
+    private int depth(String typeName) {
+        var depth = 0;
+        var temp = treeSupport.classGraph.get(typeName);
+        while (temp != null) {
+            depth++;
+            temp = treeSupport.classGraph.get(temp);
+        }
+        return depth;
+    }
+
+    private String attrType(String name) {
+        var temp = className;
+        while (temp != null) {
+            var attrs = treeSupport.attrGraph.get(temp);
+            if (attrs != null && attrs.containsKey(name)) return javaType(attrs.get(name).type);
+            temp = treeSupport.classGraph.get(temp);
+        }
+        throw new AssertionError("attr " + name + " not found in " + className);
+    }
+
+    private MethodDeclaration lookupMethodDeclaration(String className, String methodName, List<Expression> params) {
+        var paramTypes = params.stream().map(e -> e.typeInfo).collect(Collectors.toList());
+        return treeSupport.lookupMethodDeclaration(className, methodName, paramTypes).get();
+    }
+
+    private List<String> paramTypes(MethodDeclaration methodDeclaration) {
+        return methodDeclaration.paramTypes.stream().map(this::javaType).collect(Collectors.toList());
+    }
+
+    private String superClass(String parentName) {
+        switch (parentName) {
+            case Constant.OBJECT:
+                return JVM_OBJECT;
+            case Constant.IO:
+                return JVM_IO;
+            default:
+                return parentName;
+        }
+    }
+
+    /**
+     * 声明类型对应的Java类型，SELF_TYPE擦除成Object
+     */
+    private String javaType(String typeName) {
+        switch (typeName) {
+            case Constant.INT:
+                return "int";
+            case Constant.BOOL:
+                return "boolean";
+            case Constant.STRING:
+                return STRING;
+            case Constant.OBJECT:
+            case Constant.SELF_TYPE:
+                return OBJECT;
+            case Constant.IO:
+                return JVM_IO;
+            default:
+                return typeName;
+        }
+    }
+
+    private String javaType(Type type) {
+        switch (type.type()) {
+            case INT:
+            case BOOL:
+            case STRING:
+            case OBJECT:
+                return javaType(type.className());
+            case SELF_TYPE:
+                return javaType(type.replace().className());
+            default:
+                return OBJECT;
+        }
+    }
+
+    private static boolean isSelfExpr(Expression expr) {
+        return expr instanceof IdConst && isSelf(((IdConst) expr).tok);
+    }
+
+    private static boolean isConstant(String value) {
+        return value.equals("this") || value.equals("null") || value.equals("true") || value.equals("false")
+                || value.matches("-?\\d+") || value.matches("\"([^\"\\\\]|\\\\.)*\"");
+    }
+
+    private static boolean isPrimitive(String type) {
+        return type.equals("int") || type.equals("boolean");
+    }
+
+    private static String identifier(String name) {
+        return RESERVED.contains(name) ? name + "$" : name;
+    }
+
+    private static String literal(String str) {
+        var builder = new StringBuilder("\"");
+        for (var c : str.toCharArray()) {
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    if (c < 0x20 || c >= 0x7F) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static boolean isBuiltInClass(String className) {
+        return className.equals(Constant.OBJECT) || className.equals(Constant.IO) || isBasicType(className);
+    }
+
+    private static class Local {
+        private final String name;
+        private final String type;
+
+        private Local(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    /**
+     * 翻译时需要先输出语句的表达式
+     */
+    private static class StatementFinder extends TreeScanner {
+        private boolean found = false;
+
+        private StatementFinder(TreeSupport treeSupport) {
+            super(treeSupport);
+        }
+
+        @Override
+        public void applyBlocks(Blocks blocks) {
+            found = true;
+        }
+
+        @Override
+        public void applyLet(Let let) {
+            found = true;
+        }
+
+        @Override
+        public void applyLoop(Loop loop) {
+            found = true;
+        }
+
+        @Override
+        public void applyCaseDef(CaseDef caseDef) {
+            found = true;
+        }
+
+        @Override
+        public void applyStaticDispatch(StaticDispatch staticDispatch) {
+            if (!isSelfExpr(staticDispatch.expr) && !staticDispatch.dispatch.params.isEmpty()) found = true;
+            super.applyStaticDispatch(staticDispatch);
+        }
+
+        @Override
+        public void applyIsVoid(IsVoid isVoid) {
+            if (isBasicType(isVoid.expr.typeInfo)) found = true;
+            super.applyIsVoid(isVoid);
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package com.leon.cool.lang.tree.compile.impl;
+
+import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.ast.Assign;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.BoolConst;
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.ast.Cond;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.IsVoid;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.Lt;
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Mul;
+import com.leon.cool.lang.ast.Neg;
+import com.leon.cool.lang.ast.NewDef;
+import com.leon.cool.lang.ast.NoExpression;
+import com.leon.cool.lang.ast.Not;
+import com.leon.cool.lang.ast.Paren;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.Sub;
+import com.leon.cool.lang.jvm.ClassFile;
+import com.leon.cool.lang.jvm.Code;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.SymbolTable;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.leon.cool.lang.jvm.Opcodes.*;
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+import static com.leon.cool.lang.support.TypeSupport.isBasicType;
+import static com.leon.cool.lang.support.TypeSupport.isParent;
+import static com.leon.cool.lang.support.TypeSupport.isSelf;
+import static com.leon.cool.lang.support.TypeSupport.isSelfType;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class JvmCodeGenTreeScanner extends TreeScanner {
+
+    private static final String OBJECT_DESC = "Ljava/lang/Object;";
+    private static final String STRING_DESC = "Ljava/lang/String;";
+    private static final String JVM_OBJECT = "com/leon/cool/lang/jvm/JvmObject";
+    private static final String JVM_IO = "com/leon/cool/lang/jvm/JvmIO";
+    private static final String JVM_RUNTIME = "com/leon/cool/lang/jvm/JvmRuntime";
+
+    /**
+     * internal name -> class文件
+     */
+    public final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+    private String className;
+    private ClassFile classFile;
+    private Code code;
+    private SymbolTable<Local> locals;
+
+    public JvmCodeGenTreeScanner(TreeSupport treeSupport) {
+        super(treeSupport);
+    }
+
+    public static String internalName(String className) {
+        switch (className) {
+            case Constant.OBJECT:
+                return JVM_OBJECT;
+            case Constant.IO:
+                return JVM_IO;
+            default:
+                return Constant.JVM_PACKAGE + "/" + className;
+        }
+    }
+
+    @Override
+    public void applyProgram(Program program) {
+        for (var classDef : program.classDef) {
+            if (!isBuiltInClass(classDef.type.name)) scan(classDef);
+        }
+    }
+
+    /**
+     * 每个COOL类生成一个JVM类：
+     * 属性 -> field
+     * 方法 -> 虚方法m以及static dispatch用的Owner$m
+     * 属性初始化 -> Owner$$init
+     * new SELF_TYPE -> $$new$SELF_TYPE
+     */
+    @Override
+    public void applyClassDef(ClassDef classDef) {
+        className = classDef.type.name;
+        var parentName = classDef.inheritsType.get().name;
+        classFile = new ClassFile(internalName(className), internalName(parentName));
+        var attrDefs = classDef.features.stream().filter(e -> e instanceof AttrDef).map(e -> (AttrDef) e).collect(Collectors.toList());
+        for (var attrDef : attrDefs) {
+            classFile.field(ACC_PUBLIC, attrDef.id.name, desc(attrDef.type.name));
+        }
+
+        //<init>:属性赋默认值
+        code = classFile.method(ACC_PUBLIC, "<init>", "()V");
+        code.var(ALOAD, 0);
+        code.invoke(INVOKESPECIAL, internalName(parentName), "<init>", "()V");
+        for (var attrDef : attrDefs) {
+            if (desc(attrDef.type.name).equals(STRING_DESC)) {
+                code.var(ALOAD, 0);
+                code.ldc("");
+                code.field(PUTFIELD, internalName(className), attrDef.id.name, STRING_DESC);
+            }
+        }
+        code.insn(RETURN);
+
+        //Owner$$init:先初始化父类属性,再按声明顺序初始化本类属性
+        code = classFile.method(ACC_PUBLIC, className + Constant.JVM_INIT, "()V");
+        locals = new SymbolTable<>();
+        locals.enterScope();
+        if (!isBuiltInClass(parentName)) {
+            code.var(ALOAD, 0);
+            code.invoke(INVOKEVIRTUAL, internalName(parentName), parentName + Constant.JVM_INIT, "()V");
+        }
+        for (var attrDef : attrDefs) {
+            if (attrDef.expr.isPresent()) {
+                var expr = attrDef.expr.get();
+                code.var(ALOAD, 0);
+                scan(expr);
+                coerce(desc(expr.typeInfo), desc(attrDef.type.name));
+                code.field(PUTFIELD, internalName(className), attrDef.id.name, desc(attrDef.type.name));
+            }
+        }
+        code.insn(RETURN);
+
+        code = classFile.method(ACC_PUBLIC, Constant.JVM_NEW_SELF_TYPE, "()" + OBJECT_DESC);
+        newObject(className);
+        code.insn(ARETURN);
+
+        for (var feature : classDef.features) {
+            if (feature instanceof MethodDef) scan(feature);
+        }
+
+        if (className.equals(Constant.MAIN_CLASS)) {
+            var main = treeSupport.lookupMethodDeclaration(Constant.MAIN_CLASS, Constant.MAIN_METHOD, Collections.emptyList());
+            if (main.isPresent()) {
+                code = classFile.method(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V");
+                newObject(className);
+                code.invoke(INVOKEVIRTUAL, internalName(className), Constant.MAIN_METHOD, methodDesc(main.get()));
+                code.insn(POP);
+                code.insn(RETURN);
+            }
+        }
+        classes.put(classFile.name, classFile.toByteArray());
+    }
+
+    @Override
+    public void applyMethodDef(MethodDef methodDef) {
+        var name = methodDef.id.name;
+        var desc = methodDesc(methodDef.formals.stream().map(e -> e.type.name).collect(Collectors.toList()), methodDef.type.name);
+        var returnDesc = desc(methodDef.type.name);
+
+        code = classFile.method(ACC_PUBLIC, className + "$" + name, desc);
+        locals = new SymbolTable<>();
+        locals.enterScope();
+        var slot = 1;
+        for (var formal : methodDef.formals) {
+            locals.addId(formal.id.name, new Local(slot++, desc(formal.type.name)));
+        }
+        scan(methodDef.expr);
+        coerce(desc(methodDef.expr.typeInfo), returnDesc);
+        code.insn(isPrimitive(returnDesc) ? IRETURN : ARETURN);
+
+        //虚方法,转发到Owner$m
+        code = classFile.method(ACC_PUBLIC, name, desc);
+        code.var(ALOAD, 0);
+        slot = 1;
+        for (var formal : methodDef.formals) {
+            var formalDesc = desc(formal.type.name);
+            code.var(isPrimitive(formalDesc) ? ILOAD : ALOAD, slot++);
+        }
+        code.invoke(INVOKEVIRTUAL, internalName(className), className + "$" + name, desc);
+        code.insn(isPrimitive(returnDesc) ? IRETURN : ARETURN);
+    }
+
+    @Override
+    public void applyAssign(Assign assign) {
+        scan(assign.expr);
+        var valueDesc = desc(assign.expr.typeInfo);
+        code.insn(DUP);
+        var local = locals.lookup(assign.id.tok.name);
+        if (local.isPresent()) {
+            coerce(valueDesc, local.get().desc);
+            code.var(isPrimitive(local.get().desc) ? ISTORE : ASTORE, local.get().index);
+        } else {
+            var fieldDesc = attrDesc(assign.id.tok.name);
+            coerce(valueDesc, fieldDesc);
+            code.var(ALOAD, 0);
+            code.insn(SWAP);
+            code.field(PUTFIELD, internalName(className), assign.id.tok.name, fieldDesc);
+        }
+        coerce(valueDesc, desc(assign.typeInfo));
+    }
+
+    @Override
+    public void applyBlocks(Blocks blocks) {
+        for (var i = 0; i < blocks.exprs.size(); i++) {
+            scan(blocks.exprs.get(i));
+            if (i != blocks.exprs.size() - 1) code.insn(POP);
+        }
+    }
+
+    @Override
+    public void applyNewDef(NewDef newDef) {
+        if (isSelfType(newDef.type)) {
+            code.var(ALOAD, 0);
+            code.invoke(INVOKEVIRTUAL, internalName(className), Constant.JVM_NEW_SELF_TYPE, "()" + OBJECT_DESC);
+            coerce(OBJECT_DESC, desc(newDef.typeInfo));
+            return;
+        }
+        switch (newDef.type.name) {
+            case Constant.INT:
+            case Constant.BOOL:
+                code.iconst(0);
+                break;
+            case Constant.STRING:
+                code.ldc("");
+                break;
+            default:
+                newObject(newDef.type.name);
+                break;
+        }
+    }
+
+    @Override
+    public void applyIsVoid(IsVoid isVoid) {
+        scan(isVoid.expr);
+        if (isBasicType(isVoid.expr.typeInfo)) {
+            code.insn(POP);
+            code.iconst(0);
+        } else {
+            bool(IFNULL);
+        }
+    }
+
+    @Override
+    public void applyPlus(Plus plus) {
+        scan(plus.left);
+        scan(plus.right);
+        code.insn(IADD);
+    }
+
+    @Override
+    public void applySub(Sub sub) {
+        scan(sub.left);
+        scan(sub.right);
+        code.insn(ISUB);
+    }
+
+    @Override
+    public void applyMul(Mul mul) {
+        scan(mul.left);
+        scan(mul.right);
+        code.insn(IMUL);
+    }
+
+    @Override
+    public void applyDivide(Divide divide) {
+        scan(divide.left);
+        scan(divide.right);
+        var ok = code.newLabel();
+        code.insn(DUP);
+        code.jump(IFNE, ok);
+        code.ldc(errorPos(divide.right));
+        code.invoke(INVOKESTATIC, JVM_RUNTIME, "divideByZero", "(" + STRING_DESC + ")V");
+        code.mark(ok);
+        code.insn(IDIV);
+    }
+
+    @Override
+    public void applyNeg(Neg neg) {
+        scan(neg.expr);
+        code.insn(INEG);
+    }
+
+    @Override
+    public void applyLt(Lt lt) {
+        scan(lt.left);
+        scan(lt.right);
+        bool(IF_ICMPLT);
+    }
+
+    @Override
+    public void applyLtEq(LtEq ltEq) {
+        scan(ltEq.left);
+        scan(ltEq.right);
+        bool(IF_ICMPLE);
+    }
+
+    @Override
+    public void applyComp(Comp comp) {
+        var l = comp.left.typeInfo.type();
+        var r = comp.right.typeInfo.type();
+        scan(comp.left);
+        if ((l == TypeEnum.INT && r == TypeEnum.INT) || (l == TypeEnum.BOOL && r == TypeEnum.BOOL)) {
+            scan(comp.right);
+            bool(IF_ICMPEQ);
+        } else if (l == TypeEnum.STRING && r == TypeEnum.STRING) {
+            scan(comp.right);
+            code.invoke(INVOKEVIRTUAL, "java/lang/String", "equals", "(" + OBJECT_DESC + ")Z");
+        } else {
+            coerce(desc(comp.left.typeInfo), OBJECT_DESC);
+            scan(comp.right);
+            coerce(desc(comp.right.typeInfo), OBJECT_DESC);
+            code.invoke(INVOKESTATIC, JVM_RUNTIME, "eq", "(" + OBJECT_DESC + OBJECT_DESC + ")Z");
+        }
+    }
+
+    @Override
+    public void applyNot(Not not) {
+        scan(not.expr);
+        code.iconst(1);
+        code.insn(IXOR);
+    }
+
+    @Override
+    public void applyIdConst(IdConst idConst) {
+        if (isSelf(idConst.tok)) {
+            code.var(ALOAD, 0);
+            return;
+        }
+        var local = locals.lookup(idConst.tok.name);
+        if (local.isPresent()) {
+            code.var(isPrimitive(local.get().desc) ? ILOAD : ALOAD, local.get().index);
+            coerce(local.get().desc, desc(idConst.typeInfo));
+        } else {
+            var fieldDesc = attrDesc(idConst.tok.name);
+            code.var(ALOAD, 0);
+            code.field(GETFIELD, internalName(className), idConst.tok.name, fieldDesc);
+            coerce(fieldDesc, desc(idConst.typeInfo));
+        }
+    }
+
+    @Override
+    public void applyStringConst(StringConst stringConst) {
+        code.ldc(stringConst.tok.name);
+    }
+
+    @Override
+    public void applyBoolConst(BoolConst boolConst) {
+        code.iconst(boolConst.bool ? 1 : 0);
+    }
+
+    @Override
+    public void applyIntConst(IntConst intConst) {
+        code.iconst(Integer.parseInt(intConst.tok.name));
+    }
+
+    @Override
+    public void applyParen(Paren paren) {
+        scan(paren.expr);
+    }
+
+    @Override
+    public void applyNoExpression(NoExpression expr) {
+        code.insn(ACONST_NULL);
+    }
+
+    @Override
+    public void applyDispatch(Dispatch dispatch) {
+        var methodDeclaration = lookupMethodDeclaration(className, dispatch.id.name, dispatch.params);
+        var desc = methodDesc(methodDeclaration);
+        code.var(ALOAD, 0);
+        params(dispatch.params, methodDeclaration);
+        code.invoke(INVOKEVIRTUAL, internalName(className), methodDeclaration.methodName, desc);
+        coerce(desc(methodDeclaration.returnType), desc(dispatch.typeInfo));
+    }
+
+    @Override
+    public void applyStaticDispatch(StaticDispatch staticDispatch) {
+        var params = staticDispatch.dispatch.params;
+        var name = staticDispatch.dispatch.id.name;
+        var receiverClass = staticDispatch.expr.typeInfo.replace().className();
+        var lookupClass = staticDispatch.type.isPresent() ? staticDispatch.type.get().name : receiverClass;
+        var methodDeclaration = lookupMethodDeclaration(lookupClass, name, params);
+        var desc = methodDesc(methodDeclaration);
+        var receiverDesc = desc(staticDispatch.expr.typeInfo);
+        scan(staticDispatch.expr);
+        if (isPrimitive(receiverDesc) || receiverDesc.equals(OBJECT_DESC) || receiverDesc.equals(STRING_DESC)) {
+            //receiver可能是Int,Bool,String的值，由JvmRuntime处理
+            if (receiverDesc.equals(OBJECT_DESC)) nullCheck(errorPos(staticDispatch.expr));
+            if (methodDeclaration.owner.equals(Constant.STRING)) {
+                params(params, methodDeclaration);
+                switch (name) {
+                    case "length":
+                        code.invoke(INVOKEVIRTUAL, "java/lang/String", "length", "()I");
+                        break;
+                    case "concat":
+                        code.invoke(INVOKEVIRTUAL, "java/lang/String", "concat", "(" + STRING_DESC + ")" + STRING_DESC);
+                        break;
+                    default:
+                        code.ldc(errorPos(staticDispatch.starPos, staticDispatch.endPos));
+                        code.invoke(INVOKESTATIC, JVM_RUNTIME, "substr", "(" + STRING_DESC + "II" + STRING_DESC + ")" + STRING_DESC);
+                        break;
+                }
+            } else {
+                coerce(receiverDesc, OBJECT_DESC);
+                var returnDesc = desc(methodDeclaration.returnType);
+                var helper = staticDispatch.type.isPresent() ? methodDeclaration.owner + "$" + name : name;
+                code.invoke(INVOKESTATIC, JVM_RUNTIME, helper, "(" + OBJECT_DESC + ")" + returnDesc);
+            }
+        } else {
+            nullCheck(errorPos(staticDispatch.expr));
+            params(params, methodDeclaration);
+            if (staticDispatch.type.isPresent()) {
+                var owner = methodDeclaration.owner;
+                code.invoke(INVOKEVIRTUAL, internalName(owner), owner + "$" + name, desc);
+            } else {
+                code.invoke(INVOKEVIRTUAL, internalName(receiverClass), name, desc);
+            }
+        }
+        coerce(desc(methodDeclaration.returnType), desc(staticDispatch.typeInfo));
+    }
+
+    @Override
+    public void applyCond(Cond cond) {
+        var elseLabel = code.newLabel();
+        var end = code.newLabel();
+        var resultDesc = desc(cond.typeInfo);
+        scan(cond.condExpr);
+        code.jump(IFEQ, elseLabel);
+        scan(cond.thenExpr);
+        coerce(desc(cond.thenExpr.typeInfo), resultDesc);
+        code.jump(GOTO, end);
+        code.mark(elseLabel);
+        scan(cond.elseExpr);
+        coerce(desc(cond.elseExpr.typeInfo), resultDesc);
+        code.mark(end);
+    }
+
+    @Override
+    public void applyLoop(Loop loop) {
+        var top = code.newLabel();
+        var end = code.newLabel();
+        code.mark(top);
+        scan(loop.condExpr);
+        code.jump(IFEQ, end);
+        scan(loop.loopExpr);
+        code.insn(POP);
+        code.jump(GOTO, top);
+        code.mark(end);
+        code.insn(ACONST_NULL);
+    }
+
+    @Override
+    public void applyLet(Let let) {
+        locals.enterScope();
+        for (var attrDef : let.attrDefs) {
+            var localDesc = desc(attrDef.type.name);
+            if (attrDef.expr.isPresent()) {
+                scan(attrDef.expr.get());
+                coerce(desc(attrDef.expr.get().typeInfo), localDesc);
+            } else {
+                defaultValue(localDesc);
+            }
+            var index = code.newLocal();
+            code.var(isPrimitive(localDesc) ? ISTORE : ASTORE, index);
+            locals.addId(attrDef.id.name, new Local(index, localDesc));
+        }
+        scan(let.expr);
+        locals.exitScope();
+    }
+
+    /**
+     * 按继承深度从深到浅依次instanceof，第一个匹配的分支就是最近的祖先类型
+     */
+    @Override
+    public void applyCaseDef(CaseDef caseDef) {
+        var resultDesc = desc(caseDef.typeInfo);
+        scan(caseDef.caseExpr);
+        coerce(desc(caseDef.caseExpr.typeInfo), OBJECT_DESC);
+        var object = code.newLocal();
+        code.var(ASTORE, object);
+        var end = code.newLabel();
+        var branches = caseDef.branchList.stream().sorted(Comparator.comparingInt((Branch e) -> depth(e.type.name)).reversed()).collect(Collectors.toList());
+        for (var branch : branches) {
+            var next = code.newLabel();
+            code.var(ALOAD, object);
+            if (branch.type.name.equals(Constant.OBJECT)) {
+                code.jump(IFNULL, next);
+            } else {
+                code.type(INSTANCEOF, caseClass(branch.type.name));
+                code.jump(IFEQ, next);
+            }
+            locals.enterScope();
+            var localDesc = desc(branch.type.name);
+            code.var(ALOAD, object);
+            coerce(OBJECT_DESC, localDesc);
+            var index = code.newLocal();
+            code.var(isPrimitive(localDesc) ? ISTORE : ASTORE, index);
+            locals.addId(branch.id.name, new Local(index, localDesc));
+            scan(branch.expr);
+            coerce(desc(branch.expr.typeInfo), resultDesc);
+            if (!isPrimitive(resultDesc)) {
+                var ok = code.newLabel();
+                code.insn(DUP);
+                code.jump(IFNONNULL, ok);
+                code.ldc(errorPos(branch.expr));
+                code.invoke(INVOKESTATIC, JVM_RUNTIME, "caseVoid", "(" + STRING_DESC + ")V");
+                code.mark(ok);
+            }
+            locals.exitScope();
+            code.jump(GOTO, end);
+            code.mark(next);
+        }
+        code.ldc(errorPos(caseDef.starPos, caseDef.endPos));
+        code.invoke(INVOKESTATIC, JVM_RUNTIME, "caseMismatch", "(" + STRING_DESC + ")V");
+        defaultValue(resultDesc);
+        code.mark(end);
+    }
+
+    private void newObject(String className) {
+        var internalName = internalName(className);
+        code.type(NEW, internalName);
+        code.insn(DUP);
+        code.invoke(INVOKESPECIAL, internalName, "<init>", "()V");
+        if (!isBuiltInClass(className)) {
+            code.insn(DUP);
+            code.invoke(INVOKEVIRTUAL, internalName, className + Constant.JVM_INIT, "()V");
+        }
+    }
+
+    private void params(List<Expression> params, MethodDeclaration methodDeclaration) {
+        for (var i = 0; i < params.size(); i++) {
+            scan(params.get(i));
+            coerce(desc(params.get(i).typeInfo), desc(methodDeclaration.paramTypes.get(i)));
+        }
+    }
+
+    private void nullCheck(String pos) {
+        var ok = code.newLabel();
+        code.insn(DUP);
+        code.jump(IFNONNULL, ok);
+        code.ldc(pos);
+        code.invoke(INVOKESTATIC, JVM_RUNTIME, "dispatchVoid", "(" + STRING_DESC + ")V");
+        code.mark(ok);
+    }
+
+    private void bool(int opcode) {
+        var yes = code.newLabel();
+        var end = code.newLabel();
+        code.jump(opcode, yes);
+        code.iconst(0);
+        code.jump(GOTO, end);
+        code.mark(yes);
+        code.iconst(1);
+        code.mark(end);
+    }
+
+    private void defaultValue(String desc) {
+        if (isPrimitive(desc)) {
+            code.iconst(0);
+        } else if (desc.equals(STRING_DESC)) {
+            code.ldc("");
+        } else {
+            code.insn(ACONST_NULL);
+        }
+    }
+
+    /**
+     * 值在栈顶从from描述符转换到to描述符,Int和Bool与Object之间装箱拆箱
+     */
+    private void coerce(String from, String to) {
+        if (from.equals(to)) return;
+        if (from.equals("I")) {
+            code.invoke(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
+        } else if (from.equals("Z")) {
+            code.invoke(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+        }
+        if (to.equals("I")) {
+            code.type(CHECKCAST, "java/lang/Integer");
+            code.invoke(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I");
+        } else if (to.equals("Z")) {
+            code.type(CHECKCAST, "java/lang/Boolean");
+            code.invoke(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z");
+        } else if (!to.equals(OBJECT_DESC) && !isSubclass(from, to)) {
+            code.type(CHECKCAST, to.substring(1, to.length() - 1));
+        }
+    }
+
+    private boolean isSubclass(String from, String to) {
+        var fromClass = coolClass(from);
+        var toClass = coolClass(to);
+        if (fromClass == null || toClass == null) return false;
+        return isParent(treeSupport.hierarchy(), treeSupport.types.objectType(fromClass), treeSupport.types.objectType(toClass));
+    }
+
+    private String coolClass(String desc) {
+        if (desc.equals("L" + JVM_IO + ";")) return Constant.IO;
+        if (desc.equals(STRING_DESC)) return Constant.STRING;
+        var prefix = "L" + Constant.JVM_PACKAGE + "/";
+        if (desc.startsWith(prefix)) return desc.substring(prefix.length(), desc.length() - 1);
+        return null;
+    }
+
+    private String caseClass(String typeName) {
+        switch (typeName) {
+            case Constant.INT:
+                return "java/lang/Integer";
+            case Constant.BOOL:
+                return "java/lang/Boolean";
+            case Constant.STRING:
+                return "java/lang/String";
+            default:
+                return internalName(typeName);
+        }
+    }
+
+    private int depth(String typeName) {
+        var depth = 0;
+        var temp = treeSupport.classGraph.get(typeName);
+        while (temp != null) {
+            depth++;
+            temp = treeSupport.classGraph.get(temp);
+        }
+        return depth;
+    }
+
+    private String attrDesc(String name) {
+        var temp = className;
+        while (temp != null) {
+            var attrs = treeSupport.attrGraph.get(temp);
+            if (attrs != null && attrs.containsKey(name)) return desc(attrs.get(name).type);
+            temp = treeSupport.classGraph.get(temp);
+        }
+        throw new AssertionError("attr " + name + " not found in " + className);
+    }
+
+    private MethodDeclaration lookupMethodDeclaration(String className, String methodName, List<Expression> params) {
+        var paramTypes = params.stream().map(e -> e.typeInfo).collect(Collectors.toList());
+        return treeSupport.lookupMethodDeclaration(className, methodName, paramTypes).get();
+    }
+
+    private String methodDesc(MethodDeclaration methodDeclaration) {
+        return methodDesc(methodDeclaration.paramTypes, methodDeclaration.returnType);
+    }
+
+    private String methodDesc(List<String> paramTypes, String returnType) {
+        return paramTypes.stream().map(this::desc).collect(Collectors.joining("", "(", ")")) + desc(returnType);
+    }
+
+    /**
+     * 声明类型对应的存储描述符，SELF_TYPE擦除成Object以保证子类override时描述符一致
+     */
+    private String desc(String typeName) {
+        switch (typeName) {
+            case Constant.INT:
+                return "I";
+            case Constant.BOOL:
+                return "Z";
+            case Constant.STRING:
+                return STRING_DESC;
+            case Constant.OBJECT:
+            case Constant.SELF_TYPE:
+                return OBJECT_DESC;
+            default:
+                return "L" + internalName(typeName) + ";";
+        }
+    }
+
+    /**
+     * 静态类型对应的值描述符
+     */
+    private String desc(Type type) {
+        switch (type.type()) {
+            case INT:
+            case BOOL:
+            case STRING:
+            case OBJECT:
+                return desc(type.className());
+            case SELF_TYPE:
+                return desc(type.replace().className());
+            default:
+                return OBJECT_DESC;
+        }
+    }
+
+    private static boolean isPrimitive(String desc) {
+        return desc.equals("I") || desc.equals("Z");
+    }
+
+    private static boolean isBuiltInClass(String className) {
+        return className.equals(Constant.OBJECT) || className.equals(Constant.IO) || isBasicType(className);
+    }
+
+    private static class Local {
+        private final int index;
+        private final String desc;
+
+        private Local(int index, String desc) {
+            this.index = index;
+            this.desc = desc;
+        }
+    }
+}
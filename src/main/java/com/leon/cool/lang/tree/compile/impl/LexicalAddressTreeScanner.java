@@ -0,0 +1,137 @@
+package com.leon.cool.lang.tree.compile.impl;
+
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Formal;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.LetAttrDef;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.infrastructure.SymbolTable;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+
+import static com.leon.cool.lang.support.TypeSupport.isSelf;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class LexicalAddressTreeScanner extends TreeScanner {
+
+    /**
+     * 变量名 -> frame槽位，方法体或属性初始化表达式各自从0开始编号
+     */
+    private SymbolTable<Integer> slots;
+
+    /**
+     * 下一个空闲槽位，退出let或者branch的scope后它的槽位可以被复用
+     */
+    private int next;
+
+    /**
+     * 当前方法体或属性初始化表达式需要的frame大小
+     */
+    private int frameSize;
+
+    private String className;
+
+    public LexicalAddressTreeScanner(TreeSupport treeSupport) {
+        super(treeSupport);
+    }
+
+    @Override
+    public void applyClassDef(ClassDef classDef) {
+        className = classDef.type.name;
+        super.applyClassDef(classDef);
+    }
+
+    @Override
+    public void applyMethodDef(MethodDef methodDef) {
+        enterFrame();
+        scan(methodDef.formals);
+        scan(methodDef.expr);
+        methodDef.frameSize = frameSize;
+        slots = null;
+    }
+
+    @Override
+    public void applyAttrDef(AttrDef attrDef) {
+        enterFrame();
+        scan(attrDef.expr);
+        var attrs = treeSupport.attrGraph.get(className);
+        if (attrs != null && attrs.containsKey(attrDef.id.name)) {
+            attrs.get(attrDef.id.name).frameSize = frameSize;
+        }
+        slots = null;
+    }
+
+    @Override
+    public void applyFormal(Formal formal) {
+        formal.slot = bind(formal.id.name);
+    }
+
+    @Override
+    public void applyLet(Let let) {
+        var mark = next;
+        slots.enterScope();
+        scan(let.attrDefs);
+        scan(let.expr);
+        slots.exitScope();
+        next = mark;
+    }
+
+    @Override
+    public void applyLetAttrDef(LetAttrDef letAttrDef) {
+        //初始化表达式里的同名变量指向外层的绑定
+        scan(letAttrDef.expr);
+        letAttrDef.slot = bind(letAttrDef.id.name);
+    }
+
+    @Override
+    public void applyBranch(Branch branch) {
+        var mark = next;
+        slots.enterScope();
+        branch.slot = bind(branch.id.name);
+        scan(branch.expr);
+        slots.exitScope();
+        next = mark;
+    }
+
+    @Override
+    public void applyIdConst(IdConst idConst) {
+        //找不到的是self或者属性
+        idConst.slot = slots.lookup(idConst.tok.name).orElse(-1);
+        if (idConst.slot < 0 && !isSelf(idConst.tok)) {
+            idConst.field = treeSupport.fieldSlot(className, idConst.tok.name);
+        }
+    }
+
+    private void enterFrame() {
+        slots = new SymbolTable<>();
+        slots.enterScope();
+        next = 0;
+        frameSize = 0;
+    }
+
+    private int bind(String name) {
+        var slot = next++;
+        slots.addId(name, slot);
+        frameSize = Math.max(frameSize, next);
+        return slot;
+    }
+}
@@ -47,7 +47,6 @@ import java.util.stream.Collectors;
 import static com.leon.cool.lang.factory.TypeFactory.booleanType;
 import static com.leon.cool.lang.factory.TypeFactory.integerType;
 import static com.leon.cool.lang.factory.TypeFactory.noType;
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
 import static com.leon.cool.lang.factory.TypeFactory.stringType;
 import static com.leon.cool.lang.support.ErrorSupport.errorMsg;
 import static com.leon.cool.lang.support.ErrorSupport.errorPos;
@@ -113,15 +112,16 @@ public class TypeCheckTreeScanner extends TreeScanner {
                 reportTypeCheckError("type.error.method.undefined", staticDispatch.expr.typeInfo.replace().className(), method, errorPos(staticDispatch.dispatch.id));
                 staticDispatch.typeInfo = noType();
             } else {
+                staticDispatch.slot = treeSupport.signatureSlot(staticDispatch.dispatch.id.name, methodDeclaration.get().paramTypes);
                 if (isSelfType(methodDeclaration.get().returnType)) {
                     staticDispatch.typeInfo = staticDispatch.expr.typeInfo;
                 } else {
-                    staticDispatch.typeInfo = objectType(methodDeclaration.get().returnType, className);
+                    staticDispatch.typeInfo = treeSupport.types.objectType(methodDeclaration.get().returnType, className);
                 }
             }
         } else {
-            var type = objectType(staticDispatch.type.get().name, className);
-            if (!isParent(treeSupport.classGraph, staticDispatch.expr.typeInfo, type)) {
+            var type = treeSupport.types.objectType(staticDispatch.type.get().name, className);
+            if (!isParent(treeSupport.hierarchy(), staticDispatch.expr.typeInfo, type)) {
                 reportTypeCheckError("type.error.subclass", staticDispatch.expr.typeInfo.toString(), type.toString(), errorPos(staticDispatch.type.get()));
                 staticDispatch.typeInfo = noType();
             } else {
@@ -131,10 +131,11 @@ public class TypeCheckTreeScanner extends TreeScanner {
                     reportTypeCheckError("type.error.method.undefined", type.className(), method, errorPos(staticDispatch.dispatch.id));
                     staticDispatch.typeInfo = noType();
                 } else {
+                    staticDispatch.slot = treeSupport.signatureSlot(staticDispatch.dispatch.id.name, methodDeclaration.get().paramTypes);
                     if (isSelfType(methodDeclaration.get().returnType)) {
                         staticDispatch.typeInfo = staticDispatch.expr.typeInfo;
                     } else {
-                        staticDispatch.typeInfo = objectType(methodDeclaration.get().returnType, className);
+                        staticDispatch.typeInfo = treeSupport.types.objectType(methodDeclaration.get().returnType, className);
                     }
                 }
             }
@@ -156,7 +157,8 @@ public class TypeCheckTreeScanner extends TreeScanner {
             reportTypeCheckError("type.error.method.undefined", className, method, errorPos(dispatch.id));
             dispatch.typeInfo = noType();
         } else {
-            dispatch.typeInfo = objectType(methodDeclaration.get().returnType, className);
+            dispatch.slot = treeSupport.signatureSlot(dispatch.id.name, methodDeclaration.get().paramTypes);
+            dispatch.typeInfo = treeSupport.types.objectType(methodDeclaration.get().returnType, className);
         }
     }
 
@@ -198,8 +200,8 @@ public class TypeCheckTreeScanner extends TreeScanner {
             }
         });
         super.applyMethodDef(methodDef);
-        if (!isParent(treeSupport.classGraph, methodDef.expr.typeInfo, objectType(methodDef.type.name, className))) {
-            reportTypeCheckError("type.error.subclass", methodDef.expr.typeInfo.toString(), objectType(methodDef.type.name, className).toString(), errorPos(methodDef.type));
+        if (!isParent(treeSupport.hierarchy(), methodDef.expr.typeInfo, treeSupport.types.objectType(methodDef.type.name, className))) {
+            reportTypeCheckError("type.error.subclass", methodDef.expr.typeInfo.toString(), treeSupport.types.objectType(methodDef.type.name, className).toString(), errorPos(methodDef.type));
         }
         treeSupport.lookupSymbolTable(className).exitScope();
     }
@@ -208,9 +210,9 @@ public class TypeCheckTreeScanner extends TreeScanner {
     public void applyAttrDef(AttrDef attrDef) {
         super.applyAttrDef(attrDef);
         if (attrDef.expr.isPresent()) {
-            var t0 = objectType(treeSupport.lookupSymbolTable(className).lookup(attrDef.id.name).get(), className);
+            var t0 = treeSupport.types.objectType(treeSupport.lookupSymbolTable(className).lookup(attrDef.id.name).get(), className);
             var t1 = attrDef.expr.get().typeInfo;
-            if (!isParent(treeSupport.classGraph, t1, t0)) {
+            if (!isParent(treeSupport.hierarchy(), t1, t0)) {
                 reportTypeCheckError("type.error.subclass", t1.toString(), t0.toString(), errorPos(attrDef));
             }
         }
@@ -231,8 +233,8 @@ public class TypeCheckTreeScanner extends TreeScanner {
             reportTypeCheckError("type.error.bind.self", errorPos(letAttrDef.id));
         }
         if (letAttrDef.expr.isPresent()) {
-            var t0 = objectType(letAttrDef.type.name, className);
-            if (!isParent(treeSupport.classGraph, letAttrDef.expr.get().typeInfo, t0)) {
+            var t0 = treeSupport.types.objectType(letAttrDef.type.name, className);
+            if (!isParent(treeSupport.hierarchy(), letAttrDef.expr.get().typeInfo, t0)) {
                 reportTypeCheckError("type.error.subclass", letAttrDef.expr.get().typeInfo.toString(), t0.toString(), errorPos(letAttrDef));
             }
         }
@@ -245,7 +247,7 @@ public class TypeCheckTreeScanner extends TreeScanner {
             reportTypeCheckError("type.error.assign.self", errorPos(assign.id));
         }
         super.applyAssign(assign);
-        if (isParent(treeSupport.classGraph, assign.expr.typeInfo, assign.id.typeInfo)) {
+        if (isParent(treeSupport.hierarchy(), assign.expr.typeInfo, assign.id.typeInfo)) {
             assign.typeInfo = assign.expr.typeInfo;
         } else {
             reportTypeCheckError("type.error.subclass", assign.expr.typeInfo.toString(), assign.id.typeInfo.toString(), errorPos(assign));
@@ -268,7 +270,7 @@ public class TypeCheckTreeScanner extends TreeScanner {
         if (loop.condExpr.typeInfo.type() != TypeEnum.BOOL) {
             reportTypeCheckError("type.error.expected", Constant.BOOL, loop.condExpr.typeInfo.toString(), errorPos(loop.condExpr));
         }
-        loop.typeInfo = objectType(Constant.OBJECT);
+        loop.typeInfo = treeSupport.types.objectType(Constant.OBJECT);
     }
 
     @Override
@@ -280,7 +282,7 @@ public class TypeCheckTreeScanner extends TreeScanner {
     @Override
     public void applyNewDef(NewDef newDef) {
         super.applyNewDef(newDef);
-        newDef.typeInfo = objectType(newDef.type.name, className);
+        newDef.typeInfo = treeSupport.types.objectType(newDef.type.name, className);
     }
 
     @Override
@@ -430,7 +432,7 @@ public class TypeCheckTreeScanner extends TreeScanner {
                 reportTypeCheckError("type.error.type.undefined", className, typeStr, errorPos(idConst));
                 idConst.typeInfo = noType();
             } else {
-                idConst.typeInfo = objectType(typeStr, className);
+                idConst.typeInfo = treeSupport.types.objectType(typeStr, className);
             }
         } else {
             reportTypeCheckError("type.error.id.undefined", className, idConst.tok.name, errorPos(idConst));
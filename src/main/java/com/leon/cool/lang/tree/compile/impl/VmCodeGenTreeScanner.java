@@ -0,0 +1,733 @@
+package com.leon.cool.lang.tree.compile.impl;
+
+import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.ast.Assign;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.BoolConst;
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.ast.Cond;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.IsVoid;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.Lt;
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Mul;
+import com.leon.cool.lang.ast.Neg;
+import com.leon.cool.lang.ast.NewDef;
+import com.leon.cool.lang.ast.NoExpression;
+import com.leon.cool.lang.ast.Not;
+import com.leon.cool.lang.ast.Paren;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.ast.Program;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.Sub;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.SymbolTable;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.vm.CodeBuffer;
+import com.leon.cool.lang.vm.VmClass;
+import com.leon.cool.lang.vm.VmMethod;
+import com.leon.cool.lang.vm.VmProgram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+import static com.leon.cool.lang.support.TypeSupport.isBasicType;
+import static com.leon.cool.lang.support.TypeSupport.isSelf;
+import static com.leon.cool.lang.support.TypeSupport.isSelfType;
+import static com.leon.cool.lang.vm.Opcodes.*;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class VmCodeGenTreeScanner extends TreeScanner {
+
+    public final VmProgram program = new VmProgram();
+
+    private final Map<String, ClassDef> classDefs = new HashMap<>();
+    private final Map<String, VmClass> classes = new HashMap<>();
+    /**
+     * 类名 -> 方法签名 -> vtable槽位
+     */
+    private final Map<String, Map<String, Integer>> slots = new HashMap<>();
+    private final Map<MethodDef, VmMethod> methods = new IdentityHashMap<>();
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private String className;
+    private CodeBuffer code;
+    private SymbolTable<Local> locals;
+    private BitSet intLocals;
+    private BitSet refLocals;
+
+    /**
+     * 最近一个表达式的结果寄存器，类型由表达式的静态类型决定
+     */
+    private int result;
+
+    public VmCodeGenTreeScanner(TreeSupport treeSupport) {
+        super(treeSupport);
+    }
+
+    /**
+     * 先按继承顺序确定所有类的属性布局和vtable，再生成代码
+     */
+    @Override
+    public void applyProgram(Program program) {
+        for (var classDef : program.classDef) {
+            classDefs.put(classDef.type.name, classDef);
+        }
+        for (var classDef : program.classDef) {
+            declare(classDef.type.name);
+        }
+        for (var classDef : program.classDef) {
+            if (!isBuiltInClass(classDef.type.name)) scan(classDef);
+        }
+        this.program.mainClass = classes.get(Constant.MAIN_CLASS);
+        var main = treeSupport.lookupMethodDeclaration(Constant.MAIN_CLASS, Constant.MAIN_METHOD, Collections.emptyList());
+        if (this.program.mainClass != null && main.isPresent()) {
+            this.program.mainMethod = methods.get(main.get().declaration);
+        }
+    }
+
+    private VmClass declare(String name) {
+        if (classes.containsKey(name)) return classes.get(name);
+        var parentName = treeSupport.classGraph.get(name);
+        var parent = parentName == null ? null : declare(parentName);
+        var clazz = new VmClass(name, program.classes.size(), parent);
+        program.classes.add(clazz);
+        classes.put(name, clazz);
+
+        var refDefaults = new ArrayList<Object>();
+        var vtable = new ArrayList<VmMethod>();
+        var classSlots = new HashMap<String, Integer>();
+        if (parent != null) {
+            clazz.intFields.addAll(parent.intFields);
+            clazz.refFields.addAll(parent.refFields);
+            refDefaults.addAll(Arrays.asList(parent.refDefaults));
+            vtable.addAll(Arrays.asList(parent.vtable));
+            classSlots.putAll(slots.get(parentName));
+        }
+        var builtIn = isBuiltInClass(name);
+        for (var feature : classDefs.get(name).features) {
+            if (feature instanceof AttrDef && !builtIn) {
+                var attrDef = (AttrDef) feature;
+                if (isInt(attrDef.type.name)) {
+                    clazz.intFields.add(attrDef.id.name);
+                } else {
+                    clazz.refFields.add(attrDef.id.name);
+                    refDefaults.add(attrDef.type.name.equals(Constant.STRING) ? "" : null);
+                }
+            } else if (feature instanceof MethodDef) {
+                var methodDef = (MethodDef) feature;
+                var paramTypes = methodDef.formals.stream().map(e -> e.type.name).collect(Collectors.toList());
+                var intParams = new boolean[paramTypes.size()];
+                for (var i = 0; i < intParams.length; i++) intParams[i] = isInt(paramTypes.get(i));
+                var method = new VmMethod(program.methods.size(), name, methodDef.id.name, paramTypes, methodDef.type.name, intParams, isInt(methodDef.type.name));
+                if (builtIn) method.nativeId = nativeId(name, methodDef.id.name);
+                program.methods.add(method);
+                methods.put(methodDef, method);
+                var signature = signature(methodDef.id.name, paramTypes);
+                var slot = classSlots.get(signature);
+                if (slot == null) {
+                    slot = vtable.size();
+                    vtable.add(method);
+                    classSlots.put(signature, slot);
+                } else {
+                    vtable.set(slot, method);
+                }
+                method.slot = slot;
+            }
+        }
+        clazz.refDefaults = refDefaults.toArray();
+        clazz.vtable = vtable.toArray(new VmMethod[0]);
+        slots.put(name, classSlots);
+        return clazz;
+    }
+
+    @Override
+    public void applyClassDef(ClassDef classDef) {
+        className = classDef.type.name;
+        var clazz = classes.get(className);
+        var attrDefs = classDef.features.stream().filter(e -> e instanceof AttrDef).map(e -> (AttrDef) e).filter(e -> e.expr.isPresent()).collect(Collectors.toList());
+        if (!attrDefs.isEmpty()) {
+            var init = new VmMethod(program.methods.size(), className, "init", Collections.emptyList(), Constant.SELF_TYPE, new boolean[0], false);
+            program.methods.add(init);
+            begin();
+            for (var attrDef : attrDefs) {
+                var value = value(attrDef.expr.get(), attrDef.type.name);
+                putField(clazz, attrDef.id.name, value);
+            }
+            code.emit(RET, 0);
+            code.build(init);
+            clazz.init = init;
+        }
+        for (var feature : classDef.features) {
+            if (feature instanceof MethodDef) scan(feature);
+        }
+    }
+
+    @Override
+    public void applyMethodDef(MethodDef methodDef) {
+        var method = methods.get(methodDef);
+        begin();
+        for (var formal : methodDef.formals) {
+            locals.addId(formal.id.name, newLocal(formal.type.name));
+        }
+        var value = value(methodDef.expr, methodDef.type.name);
+        code.emit(method.intReturn ? IRET : RET, value);
+        code.build(method);
+    }
+
+    @Override
+    public void applyAssign(Assign assign) {
+        var name = assign.id.tok.name;
+        var local = locals.lookup(name);
+        var type = local.isPresent() ? local.get().type : attrType(name);
+        var value = value(assign.expr, type);
+        if (local.isPresent()) {
+            code.emit(isInt(type) ? IMOVE : MOVE, local.get().register, value);
+        } else {
+            putField(classes.get(className), name, value);
+        }
+        result = coerce(value, type, typeName(assign.typeInfo));
+    }
+
+    /**
+     * 中间表达式的结果被丢弃，回收它们占用的寄存器
+     */
+    @Override
+    public void applyBlocks(Blocks blocks) {
+        for (var i = 0; i < blocks.exprs.size() - 1; i++) {
+            var mark = code.mark();
+            scan(blocks.exprs.get(i));
+            code.release(mark);
+        }
+        scan(blocks.exprs.get(blocks.exprs.size() - 1));
+    }
+
+    @Override
+    public void applyNewDef(NewDef newDef) {
+        if (isSelfType(newDef.type)) {
+            result = code.newRef();
+            code.emit(NEWSELF, result);
+            return;
+        }
+        switch (newDef.type.name) {
+            case Constant.INT:
+            case Constant.BOOL:
+            case Constant.STRING:
+                result = defaultValue(newDef.type.name);
+                break;
+            default:
+                result = code.newRef();
+                code.emit(NEW, result, classes.get(newDef.type.name).id);
+                break;
+        }
+    }
+
+    @Override
+    public void applyIsVoid(IsVoid isVoid) {
+        var value = gen(isVoid.expr);
+        result = code.newInt();
+        if (isInt(typeName(isVoid.expr.typeInfo))) {
+            code.emit(ICONST, result, 0);
+        } else {
+            code.emit(ISVOID, result, value);
+        }
+    }
+
+    @Override
+    public void applyPlus(Plus plus) {
+        binary(IADD, plus.left, plus.right);
+    }
+
+    @Override
+    public void applySub(Sub sub) {
+        binary(ISUB, sub.left, sub.right);
+    }
+
+    @Override
+    public void applyMul(Mul mul) {
+        binary(IMUL, mul.left, mul.right);
+    }
+
+    @Override
+    public void applyDivide(Divide divide) {
+        var left = protect(gen(divide.left), true, List.of(divide.right));
+        var right = gen(divide.right);
+        result = code.newInt();
+        code.emit(IDIV, result, left, right, string(errorPos(divide.right)));
+    }
+
+    @Override
+    public void applyNeg(Neg neg) {
+        var value = gen(neg.expr);
+        result = code.newInt();
+        code.emit(INEG, result, value);
+    }
+
+    @Override
+    public void applyLt(Lt lt) {
+        binary(ILT, lt.left, lt.right);
+    }
+
+    @Override
+    public void applyLtEq(LtEq ltEq) {
+        binary(ILE, ltEq.left, ltEq.right);
+    }
+
+    @Override
+    public void applyComp(Comp comp) {
+        var l = typeName(comp.left.typeInfo);
+        var r = typeName(comp.right.typeInfo);
+        if (isInt(l) && l.equals(r)) {
+            binary(IEQ, comp.left, comp.right);
+            return;
+        }
+        var left = protect(value(comp.left, Constant.OBJECT), false, List.of(comp.right));
+        var right = value(comp.right, Constant.OBJECT);
+        result = code.newInt();
+        code.emit(REQ, result, left, right);
+    }
+
+    @Override
+    public void applyNot(Not not) {
+        var value = gen(not.expr);
+        result = code.newInt();
+        code.emit(INOT, result, value);
+    }
+
+    @Override
+    public void applyIdConst(IdConst idConst) {
+        if (isSelf(idConst.tok)) {
+            result = 0;
+            return;
+        }
+        var name = idConst.tok.name;
+        var local = locals.lookup(name);
+        if (local.isPresent()) {
+            result = coerce(local.get().register, local.get().type, typeName(idConst.typeInfo));
+            return;
+        }
+        var type = attrType(name);
+        var clazz = classes.get(className);
+        int value;
+        if (isInt(type)) {
+            value = code.newInt();
+            code.emit(GETI, value, clazz.intFields.indexOf(name));
+        } else {
+            value = code.newRef();
+            code.emit(GETR, value, clazz.refFields.indexOf(name));
+        }
+        result = coerce(value, type, typeName(idConst.typeInfo));
+    }
+
+    @Override
+    public void applyStringConst(StringConst stringConst) {
+        result = code.newRef();
+        code.emit(LDC, result, string(stringConst.tok.name));
+    }
+
+    @Override
+    public void applyBoolConst(BoolConst boolConst) {
+        result = code.newInt();
+        code.emit(ICONST, result, boolConst.bool ? 1 : 0);
+    }
+
+    @Override
+    public void applyIntConst(IntConst intConst) {
+        result = code.newInt();
+        code.emit(ICONST, result, Integer.parseInt(intConst.tok.name));
+    }
+
+    @Override
+    public void applyParen(Paren paren) {
+        scan(paren.expr);
+    }
+
+    @Override
+    public void applyNoExpression(NoExpression expr) {
+        result = code.newRef();
+        code.emit(NULL, result);
+    }
+
+    @Override
+    public void applyDispatch(Dispatch dispatch) {
+        var methodDeclaration = lookupMethodDeclaration(className, dispatch.id.name, dispatch.params);
+        var args = params(dispatch.params, methodDeclaration, null);
+        var pos = string(errorPos(dispatch));
+        invoke(INVOKEVIRTUAL, virtual(className, methodDeclaration).id, 0, pos, pos, args, methodDeclaration);
+        result = coerce(result, methodDeclaration.returnType, typeName(dispatch.typeInfo));
+    }
+
+    /**
+     * 和解释器一样先对参数求值再对receiver求值
+     */
+    @Override
+    public void applyStaticDispatch(StaticDispatch staticDispatch) {
+        var params = staticDispatch.dispatch.params;
+        var name = staticDispatch.dispatch.id.name;
+        var receiverClass = typeName(staticDispatch.expr.typeInfo);
+        var lookupClass = staticDispatch.type.isPresent() ? staticDispatch.type.get().name : receiverClass;
+        var methodDeclaration = lookupMethodDeclaration(lookupClass, name, params);
+        var args = params(params, methodDeclaration, staticDispatch.expr);
+        var receiver = value(staticDispatch.expr, Constant.OBJECT);
+        var voidPos = string(errorPos(staticDispatch.expr));
+        var rangePos = string(errorPos(staticDispatch.starPos, staticDispatch.endPos));
+        if (staticDispatch.type.isPresent()) {
+            var target = methods.get(methodDeclaration.declaration);
+            invoke(INVOKESPECIAL, target.id, receiver, voidPos, rangePos, args, methodDeclaration);
+        } else {
+            invoke(INVOKEVIRTUAL, virtual(receiverClass, methodDeclaration).id, receiver, voidPos, rangePos, args, methodDeclaration);
+        }
+        result = coerce(result, methodDeclaration.returnType, typeName(staticDispatch.typeInfo));
+    }
+
+    @Override
+    public void applyCond(Cond cond) {
+        var type = typeName(cond.typeInfo);
+        var dest = isInt(type) ? code.newInt() : code.newRef();
+        var elseLabel = code.newLabel();
+        var end = code.newLabel();
+        var condition = gen(cond.condExpr);
+        code.emit(JF, condition);
+        code.label(elseLabel);
+        code.emit(isInt(type) ? IMOVE : MOVE, dest, value(cond.thenExpr, type));
+        code.emit(JMP);
+        code.label(end);
+        code.mark(elseLabel);
+        code.emit(isInt(type) ? IMOVE : MOVE, dest, value(cond.elseExpr, type));
+        code.mark(end);
+        result = dest;
+    }
+
+    @Override
+    public void applyLoop(Loop loop) {
+        var top = code.newLabel();
+        var end = code.newLabel();
+        code.mark(top);
+        var condition = gen(loop.condExpr);
+        code.emit(JF, condition);
+        code.label(end);
+        var mark = code.mark();
+        scan(loop.loopExpr);
+        code.release(mark);
+        code.emit(JMP);
+        code.label(top);
+        code.mark(end);
+        result = code.newRef();
+        code.emit(NULL, result);
+    }
+
+    /**
+     * let变量总是分配新的寄存器
+     */
+    @Override
+    public void applyLet(Let let) {
+        locals.enterScope();
+        for (var attrDef : let.attrDefs) {
+            var type = attrDef.type.name;
+            var value = attrDef.expr.isPresent() ? value(attrDef.expr.get(), type) : defaultValue(type);
+            var local = newLocal(type);
+            code.emit(isInt(type) ? IMOVE : MOVE, local.register, value);
+            locals.addId(attrDef.id.name, local);
+        }
+        scan(let.expr);
+        locals.exitScope();
+    }
+
+    /**
+     * CASE指令按对象的类id查跳转表，表里是最近的祖先类型对应的分支入口，没有匹配的分支是-1
+     */
+    @Override
+    public void applyCaseDef(CaseDef caseDef) {
+        var type = typeName(caseDef.typeInfo);
+        var dest = isInt(type) ? code.newInt() : code.newRef();
+        var object = value(caseDef.caseExpr, Constant.OBJECT);
+        var table = new int[program.classes.size()];
+        code.emit(CASE, object, constant(table), string(errorPos(caseDef.starPos, caseDef.endPos)));
+        var entries = new HashMap<String, Integer>();
+        var end = code.newLabel();
+        for (var branch : caseDef.branchList) {
+            entries.put(branch.type.name, code.position());
+            locals.enterScope();
+            var local = newLocal(branch.type.name);
+            code.emit(isInt(branch.type.name) ? IMOVE : MOVE, local.register, coerce(object, Constant.OBJECT, branch.type.name));
+            locals.addId(branch.id.name, local);
+            var value = value(branch.expr, type);
+            if (!isInt(type)) code.emit(CHECKVOID, value, string(errorPos(branch.expr)));
+            code.emit(isInt(type) ? IMOVE : MOVE, dest, value);
+            locals.exitScope();
+            code.emit(JMP);
+            code.label(end);
+        }
+        code.mark(end);
+        for (var clazz : program.classes) {
+            table[clazz.id] = -1;
+            for (var temp = clazz; temp != null; temp = temp.parent) {
+                if (entries.containsKey(temp.name)) {
+                    table[clazz.id] = entries.get(temp.name);
+                    break;
+                }
+            }
+        }
+        result = dest;
+    }
+
+    private void begin() {
+        code = new CodeBuffer();
+        locals = new SymbolTable<>();
+        locals.enterScope();
+        intLocals = new BitSet();
+        refLocals = new BitSet();
+    }
+
+    private int gen(Expression expr) {
+        scan(expr);
+        return result;
+    }
+
+    /**
+     * 对表达式求值并转换成目标类型的存储形式
+     */
+    private int value(Expression expr, String type) {
+        return coerce(gen(expr), typeName(expr.typeInfo), type);
+    }
+
+    private void binary(int opcode, Expression left, Expression right) {
+        var l = protect(gen(left), true, List.of(right));
+        var r = gen(right);
+        result = code.newInt();
+        code.emit(opcode, result, l, r);
+    }
+
+    /**
+     * 操作数直接用的是局部变量寄存器，而后面的表达式会给局部变量赋值时，先复制一份
+     */
+    private int protect(int register, boolean isInt, List<Expression> rest) {
+        var local = isInt ? intLocals.get(register) : register != 0 && refLocals.get(register);
+        if (!local || !hasAssign(rest)) return register;
+        var copy = isInt ? code.newInt() : code.newRef();
+        code.emit(isInt ? IMOVE : MOVE, copy, register);
+        return copy;
+    }
+
+    private int[] params(List<Expression> params, MethodDeclaration methodDeclaration, Expression receiver) {
+        var args = new int[params.size()];
+        for (var i = 0; i < params.size(); i++) {
+            var paramType = methodDeclaration.paramTypes.get(i);
+            var rest = new ArrayList<Expression>(params.subList(i + 1, params.size()));
+            if (receiver != null) rest.add(receiver);
+            args[i] = protect(value(params.get(i), paramType), isInt(paramType), rest);
+        }
+        return args;
+    }
+
+    private void invoke(int opcode, int target, int receiver, int voidPos, int rangePos, int[] args, MethodDeclaration methodDeclaration) {
+        result = isInt(methodDeclaration.returnType) ? code.newInt() : code.newRef();
+        code.emit(opcode, result, target, receiver, voidPos, rangePos, args.length);
+        code.emit(args);
+    }
+
+    private void putField(VmClass clazz, String name, int value) {
+        if (isInt(attrType(name))) {
+            code.emit(PUTI, clazz.intFields.indexOf(name), value);
+        } else {
+            code.emit(PUTR, clazz.refFields.indexOf(name), value);
+        }
+    }
+
+    private Local newLocal(String type) {
+        if (isInt(type)) {
+            var register = code.newInt();
+            intLocals.set(register);
+            return new Local(register, type);
+        } else {
+            var register = code.newRef();
+            refLocals.set(register);
+            return new Local(register, type);
+        }
+    }
+
+    private int defaultValue(String type) {
+        int register;
+        if (isInt(type)) {
+            register = code.newInt();
+            code.emit(ICONST, register, 0);
+        } else if (type.equals(Constant.STRING)) {
+            register = code.newRef();
+            code.emit(LDC, register, string(""));
+        } else {
+            register = code.newRef();
+            code.emit(NULL, register);
+        }
+        return register;
+    }
+
+    /**
+     * Int和Bool在int寄存器里，赋给其他类型时装箱，反之拆箱
+     */
+    private int coerce(int register, String from, String to) {
+        var fromInt = isInt(from);
+        var toInt = isInt(to);
+        if (fromInt == toInt) return register;
+        int value;
+        if (fromInt) {
+            value = code.newRef();
+            code.emit(from.equals(Constant.BOOL) ? BOXB : BOXI, value, register);
+        } else {
+            value = code.newInt();
+            code.emit(to.equals(Constant.BOOL) ? UNBOXB : UNBOXI, value, register);
+        }
+        return value;
+    }
+
+    private int string(String str) {
+        return strings.computeIfAbsent(str, this::constant);
+    }
+
+    private int constant(Object constant) {
+        program.constants.add(constant);
+        return program.constants.size() - 1;
+    }
+
+    /**
+     * 静态类型的vtable里对应的方法，运行时按它的槽位分派
+     */
+    private VmMethod virtual(String className, MethodDeclaration methodDeclaration) {
+        var slot = slots.get(className).get(signature(methodDeclaration.methodName, methodDeclaration.paramTypes));
+        return classes.get(className).vtable[slot];
+    }
+
+    private String attrType(String name) {
+        var temp = className;
+        while (temp != null) {
+            var attrs = treeSupport.attrGraph.get(temp);
+            if (attrs != null && attrs.containsKey(name)) return attrs.get(name).type;
+            temp = treeSupport.classGraph.get(temp);
+        }
+        throw new AssertionError("attr " + name + " not found in " + className);
+    }
+
+    private MethodDeclaration lookupMethodDeclaration(String className, String methodName, List<Expression> params) {
+        var paramTypes = params.stream().map(e -> e.typeInfo).collect(Collectors.toList());
+        return treeSupport.lookupMethodDeclaration(className, methodName, paramTypes).get();
+    }
+
+    private boolean hasAssign(List<Expression> exprs) {
+        var finder = new AssignFinder(treeSupport);
+        for (var expr : exprs) {
+            expr.accept(finder);
+            if (finder.found) return true;
+        }
+        return false;
+    }
+
+    private static String signature(String methodName, List<String> paramTypes) {
+        return methodName + paramTypes;
+    }
+
+    private static String typeName(Type type) {
+        switch (type.type()) {
+            case SELF_TYPE:
+                return type.replace().className();
+            case NO_TYPE:
+            case VOID:
+                return Constant.OBJECT;
+            default:
+                return type.className();
+        }
+    }
+
+    private static boolean isInt(String type) {
+        return type.equals(Constant.INT) || type.equals(Constant.BOOL);
+    }
+
+    private static int nativeId(String className, String methodName) {
+        switch (className + "." + methodName) {
+            case "Object.abort":
+                return VmMethod.NATIVE_ABORT;
+            case "Object.type_name":
+                return VmMethod.NATIVE_TYPE_NAME;
+            case "Object.copy":
+                return VmMethod.NATIVE_COPY;
+            case "IO.out_string":
+                return VmMethod.NATIVE_OUT_STRING;
+            case "IO.out_int":
+                return VmMethod.NATIVE_OUT_INT;
+            case "IO.in_string":
+                return VmMethod.NATIVE_IN_STRING;
+            case "IO.in_int":
+                return VmMethod.NATIVE_IN_INT;
+            case "String.length":
+                return VmMethod.NATIVE_LENGTH;
+            case "String.concat":
+                return VmMethod.NATIVE_CONCAT;
+            case "String.substr":
+                return VmMethod.NATIVE_SUBSTR;
+            default:
+                throw new AssertionError("native " + className + "." + methodName);
+        }
+    }
+
+    private static boolean isBuiltInClass(String className) {
+        return className.equals(Constant.OBJECT) || className.equals(Constant.IO) || isBasicType(className);
+    }
+
+    private static class Local {
+        private final int register;
+        private final String type;
+
+        private Local(int register, String type) {
+            this.register = register;
+            this.type = type;
+        }
+    }
+
+    private static class AssignFinder extends TreeScanner {
+        private boolean found = false;
+
+        private AssignFinder(TreeSupport treeSupport) {
+            super(treeSupport);
+        }
+
+        @Override
+        public void applyAssign(Assign assign) {
+            found = true;
+        }
+    }
+}
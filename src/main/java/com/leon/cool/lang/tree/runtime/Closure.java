@@ -0,0 +1,27 @@
+package com.leon.cool.lang.tree.runtime;
+
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.infrastructure.Context;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@FunctionalInterface
+public interface Closure {
+    CoolObject apply(@Out Context context);
+}
@@ -0,0 +1,483 @@
+package com.leon.cool.lang.tree.runtime.impl;
+
+import com.leon.cool.lang.Constant;
+import com.leon.cool.lang.ast.Assign;
+import com.leon.cool.lang.ast.AttrDef;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.BoolConst;
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.ast.Cond;
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.IdConst;
+import com.leon.cool.lang.ast.IntConst;
+import com.leon.cool.lang.ast.IsVoid;
+import com.leon.cool.lang.ast.Let;
+import com.leon.cool.lang.ast.LetAttrDef;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.Lt;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.ast.Mul;
+import com.leon.cool.lang.ast.Neg;
+import com.leon.cool.lang.ast.NewDef;
+import com.leon.cool.lang.ast.NoExpression;
+import com.leon.cool.lang.ast.Not;
+import com.leon.cool.lang.ast.Paren;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.ast.StaticDispatchBody;
+import com.leon.cool.lang.ast.StringConst;
+import com.leon.cool.lang.ast.Sub;
+import com.leon.cool.lang.object.CoolBool;
+import com.leon.cool.lang.object.CoolInt;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.object.CoolString;
+import com.leon.cool.lang.glossary.TokenKind;
+import com.leon.cool.lang.support.Intrinsic;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tokenizer.Token;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+import com.leon.cool.lang.tree.runtime.Closure;
+import com.leon.cool.lang.tree.runtime.node.CaseTable;
+import com.leon.cool.lang.tree.runtime.node.MethodCache;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
+import static com.leon.cool.lang.factory.ObjectFactory.coolBoolDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
+import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
+import static com.leon.cool.lang.support.ErrorSupport.error;
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+import static com.leon.cool.lang.support.TypeSupport.isBasicType;
+import static com.leon.cool.lang.support.TypeSupport.isBoolType;
+import static com.leon.cool.lang.support.TypeSupport.isIntType;
+import static com.leon.cool.lang.support.TypeSupport.isSelfType;
+import static com.leon.cool.lang.support.TypeSupport.isStringType;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ClosureTreeScanner extends TreeScanner {
+
+    /**
+     * 分层执行时方法调用和属性初始化交给解释器，为null时是closure执行模式
+     */
+    private final EvalTreeScanner evaluator;
+
+    /**
+     * closure执行模式下预先编译好的方法体和属性初始化表达式
+     */
+    private final Map<MethodDef, Closure> bodies = new IdentityHashMap<>();
+    private final Map<Expression, Closure> initializers = new IdentityHashMap<>();
+
+    private Closure closure;
+
+    public ClosureTreeScanner(TreeSupport treeSupport) {
+        this(treeSupport, null);
+    }
+
+    public ClosureTreeScanner(TreeSupport treeSupport, EvalTreeScanner evaluator) {
+        super(treeSupport);
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * closure执行模式入口，等价于Program.accept(EvalTreeVisitor, Context)
+     */
+    public CoolObject run() {
+        var main = new StaticDispatch(new NewDef(new Token(Constant.MAIN_CLASS, TokenKind.TYPE)), Optional.empty(), new StaticDispatchBody(new Token(Constant.MAIN_METHOD, TokenKind.ID), new ArrayList<>()));
+        main.slot = TreeSupport.MAIN_SLOT;
+        return compile(main).apply(new Context(null, null));
+    }
+
+    @Override
+    public void applyClassDef(ClassDef classDef) {
+        for (var feature : classDef.features) {
+            if (feature instanceof MethodDef) {
+                var methodDef = (MethodDef) feature;
+                bodies.put(methodDef, compile(methodDef.expr));
+            } else if (feature instanceof AttrDef && ((AttrDef) feature).expr.isPresent()) {
+                var expr = ((AttrDef) feature).expr.get();
+                initializers.put(expr, compile(expr));
+            }
+        }
+    }
+
+    private CoolObject invoke(MethodDeclaration methodDeclaration, CoolObject obj, CoolObject[] frame) {
+        if (evaluator != null) return evaluator.invoke(methodDeclaration, obj, frame);
+        return bodies.get(methodDeclaration.declaration).apply(new Context(obj, frame));
+    }
+
+    private CoolObject newDef(Type type, Context context) {
+        if (evaluator != null) return treeSupport.newDef(evaluator, type, context);
+        return treeSupport.newDef((expr, ctx) -> initializers.get(expr).apply(ctx), type, context);
+    }
+
+    /**
+     * 把表达式树转换成closure树，语义与EvalTreeScanner一致，
+     * 常量，错误位置等在转换时计算好，执行时不再经过visitor的double dispatch
+     *
+     * @param expr 表达式
+     * @return closure
+     */
+    public Closure compile(Expression expr) {
+        expr.accept(this);
+        return closure;
+    }
+
+    private Closure[] compile(List<? extends Expression> exprs) {
+        var closures = new Closure[exprs.size()];
+        for (var i = 0; i < closures.length; i++) {
+            closures[i] = compile(exprs.get(i));
+        }
+        return closures;
+    }
+
+    private static CoolObject[] apply(Closure[] closures, Context context) {
+        var objects = new CoolObject[closures.length];
+        for (var i = 0; i < objects.length; i++) {
+            objects[i] = closures[i].apply(context);
+        }
+        return objects;
+    }
+
+    /**
+     * builtin方法最多两个参数，按位置求值，没有对应参数返回null
+     */
+    private static CoolObject apply(Closure[] closures, int index, Context context) {
+        return index < closures.length ? closures[index].apply(context) : null;
+    }
+
+    @Override
+    public void applyAssign(Assign assign) {
+        var slot = assign.id.slot;
+        var field = assign.id.field;
+        var expr = compile(assign.expr);
+        if (slot >= 0) {
+            closure = context -> context.frame[slot] = expr.apply(context);
+        } else {
+            closure = context -> context.selfObject.fields[field] = expr.apply(context);
+        }
+    }
+
+    @Override
+    public void applyBlocks(Blocks blocks) {
+        var exprs = compile(blocks.exprs);
+        closure = context -> {
+            CoolObject object = coolVoid();
+            for (var expr : exprs) {
+                object = expr.apply(context);
+            }
+            return object;
+        };
+    }
+
+    @Override
+    public void applyNewDef(NewDef newDef) {
+        if (isSelfType(newDef.type)) {
+            closure = context -> newDef(context.selfObject.type, context);
+        } else {
+            var type = treeSupport.types.objectType(newDef.type.name);
+            closure = context -> newDef(type, context);
+        }
+    }
+
+    @Override
+    public void applyIsVoid(IsVoid isVoid) {
+        var expr = compile(isVoid.expr);
+        closure = context -> coolBool(expr.apply(context).type.type() == TypeEnum.VOID);
+    }
+
+    @Override
+    public void applyPlus(Plus plus) {
+        var left = compile(plus.left);
+        var right = compile(plus.right);
+        closure = context -> coolInt(((CoolInt) left.apply(context)).val + ((CoolInt) right.apply(context)).val);
+    }
+
+    @Override
+    public void applySub(Sub sub) {
+        var left = compile(sub.left);
+        var right = compile(sub.right);
+        closure = context -> coolInt(((CoolInt) left.apply(context)).val - ((CoolInt) right.apply(context)).val);
+    }
+
+    @Override
+    public void applyMul(Mul mul) {
+        var left = compile(mul.left);
+        var right = compile(mul.right);
+        closure = context -> coolInt(((CoolInt) left.apply(context)).val * ((CoolInt) right.apply(context)).val);
+    }
+
+    @Override
+    public void applyDivide(Divide divide) {
+        var left = compile(divide.left);
+        var right = compile(divide.right);
+        var pos = errorPos(divide.right);
+        closure = context -> {
+            var l = (CoolInt) left.apply(context);
+            var r = (CoolInt) right.apply(context);
+            if (r.val == 0) {
+                error("runtime.error.divide.zero", pos);
+            }
+            return coolInt(l.val / r.val);
+        };
+    }
+
+    @Override
+    public void applyNeg(Neg neg) {
+        var expr = compile(neg.expr);
+        closure = context -> coolInt(-((CoolInt) expr.apply(context)).val);
+    }
+
+    @Override
+    public void applyLt(Lt lt) {
+        var left = compile(lt.left);
+        var right = compile(lt.right);
+        closure = context -> coolBool(((CoolInt) left.apply(context)).val < ((CoolInt) right.apply(context)).val);
+    }
+
+    @Override
+    public void applyLtEq(LtEq ltEq) {
+        var left = compile(ltEq.left);
+        var right = compile(ltEq.right);
+        closure = context -> coolBool(((CoolInt) left.apply(context)).val <= ((CoolInt) right.apply(context)).val);
+    }
+
+    @Override
+    public void applyComp(Comp comp) {
+        var left = compile(comp.left);
+        var right = compile(comp.right);
+        closure = context -> {
+            var l = left.apply(context);
+            var r = right.apply(context);
+            if (isBasicType(l.type) && isBasicType(r.type)) {
+                if (l instanceof CoolString && r instanceof CoolString) {
+                    return coolBool(((CoolString) l).contentEquals((CoolString) r));
+                } else if (l instanceof CoolInt && r instanceof CoolInt) {
+                    return coolBool(((CoolInt) l).val == ((CoolInt) r).val);
+                } else if (l instanceof CoolBool && r instanceof CoolBool) {
+                    return coolBool(((CoolBool) l).val == ((CoolBool) r).val);
+                } else {
+                    throw new AssertionError("unexpected error.");
+                }
+            } else {
+                return coolBool(l.equals(r));
+            }
+        };
+    }
+
+    @Override
+    public void applyNot(Not not) {
+        var expr = compile(not.expr);
+        closure = context -> coolBool(!((CoolBool) expr.apply(context)).val);
+    }
+
+    @Override
+    public void applyIdConst(IdConst idConst) {
+        var name = idConst.tok.name;
+        var slot = idConst.slot;
+        if (name == Constant.SELF) {
+            closure = context -> context.selfObject;
+        } else if (slot >= 0) {
+            closure = context -> context.frame[slot];
+        } else {
+            var field = idConst.field;
+            closure = context -> context.selfObject.fields[field];
+        }
+    }
+
+    @Override
+    public void applyStringConst(StringConst stringConst) {
+        var value = treeSupport.internString(stringConst.tok.name);
+        closure = context -> value;
+    }
+
+    @Override
+    public void applyBoolConst(BoolConst boolConst) {
+        var value = coolBool(boolConst.bool);
+        closure = context -> value;
+    }
+
+    @Override
+    public void applyIntConst(IntConst intConst) {
+        var value = coolInt(Integer.parseInt(intConst.tok.name));
+        closure = context -> value;
+    }
+
+    @Override
+    public void applyParen(Paren paren) {
+        closure = compile(paren.expr);
+    }
+
+    @Override
+    public void applyNoExpression(NoExpression expr) {
+        closure = context -> coolVoid();
+    }
+
+    @Override
+    public void applyDispatch(Dispatch dispatch) {
+        var name = dispatch.id.name;
+        var params = compile(dispatch.params);
+        var pos = errorPos(dispatch.starPos, dispatch.endPos);
+        var cache = new MethodCache(treeSupport, dispatch.slot);
+        closure = context -> {
+            //receiver是self，先确定调用目标再对参数求值
+            var obj = context.selfObject;
+            var methodDeclaration = cache.lookup(obj.type);
+            var intrinsic = methodDeclaration.intrinsic();
+            if (intrinsic != Intrinsic.NONE) {
+                return intrinsic.apply(treeSupport, obj, apply(params, 0, context), apply(params, 1, context), pos);
+            }
+            var frame = methodDeclaration.frame(null, null);
+            for (var i = 0; i < params.length; i++) {
+                frame[i] = params[i].apply(context);
+            }
+            return invoke(methodDeclaration, obj, frame);
+        };
+    }
+
+    @Override
+    public void applyStaticDispatch(StaticDispatch staticDispatch) {
+        var name = staticDispatch.dispatch.id.name;
+        var params = compile(staticDispatch.dispatch.params);
+        var expr = compile(staticDispatch.expr);
+        var type = staticDispatch.type.map(e -> e.name).orElse(null);
+        var voidPos = errorPos(staticDispatch.expr);
+        var pos = errorPos(staticDispatch.starPos, staticDispatch.endPos);
+        //expr@TYPE.ID(...)编译时就确定调用目标
+        var bound = type == null ? null : treeSupport.lookupVirtual(type, staticDispatch.slot);
+        var cache = type != null ? null : new MethodCache(treeSupport, staticDispatch.slot);
+        closure = context -> {
+            //参数先于receiver求值，不超过两个参数时求值到arg0，arg1
+            CoolObject arg0 = null, arg1 = null;
+            CoolObject[] args = null;
+            if (params.length > 2) {
+                args = apply(params, context);
+            } else {
+                arg0 = apply(params, 0, context);
+                arg1 = apply(params, 1, context);
+            }
+            var obj = expr.apply(context);
+            if (obj.type.type() == TypeEnum.VOID) {
+                error("runtime.error.dispatch.void", voidPos);
+            }
+            var methodDeclaration = bound != null ? bound : cache.lookup(obj.type);
+            var intrinsic = methodDeclaration.intrinsic();
+            if (intrinsic != Intrinsic.NONE) return intrinsic.apply(treeSupport, obj, arg0, arg1, pos);
+            return invoke(methodDeclaration, obj, args != null ? methodDeclaration.frame(args) : methodDeclaration.frame(arg0, arg1));
+        };
+    }
+
+    @Override
+    public void applyCond(Cond cond) {
+        var condExpr = compile(cond.condExpr);
+        var thenExpr = compile(cond.thenExpr);
+        var elseExpr = compile(cond.elseExpr);
+        closure = context -> ((CoolBool) condExpr.apply(context)).val ? thenExpr.apply(context) : elseExpr.apply(context);
+    }
+
+    @Override
+    public void applyLoop(Loop loop) {
+        var condExpr = compile(loop.condExpr);
+        var loopExpr = compile(loop.loopExpr);
+        closure = context -> {
+            while (((CoolBool) condExpr.apply(context)).val) {
+                loopExpr.apply(context);
+            }
+            return coolVoid();
+        };
+    }
+
+    @Override
+    public void applyLet(Let let) {
+        var attrDefs = compile(let.attrDefs);
+        var expr = compile(let.expr);
+        closure = context -> {
+            for (var attrDef : attrDefs) {
+                attrDef.apply(context);
+            }
+            return expr.apply(context);
+        };
+    }
+
+    @Override
+    public void applyLetAttrDef(LetAttrDef letAttrDef) {
+        var slot = letAttrDef.slot;
+        Closure expr;
+        if (letAttrDef.expr.isPresent()) {
+            expr = compile(letAttrDef.expr.get());
+        } else if (isStringType(letAttrDef.type)) {
+            expr = context -> coolStringDefault();
+        } else if (isIntType(letAttrDef.type)) {
+            expr = context -> coolIntDefault();
+        } else if (isBoolType(letAttrDef.type)) {
+            expr = context -> coolBoolDefault();
+        } else {
+            expr = context -> coolVoid();
+        }
+        closure = context -> {
+            context.frame[slot] = expr.apply(context);
+            return context.selfObject;
+        };
+    }
+
+    @Override
+    public void applyCaseDef(CaseDef caseDef) {
+        var caseExpr = compile(caseDef.caseExpr);
+        var branchList = caseDef.branchList;
+        var exprs = new Closure[branchList.size()];
+        var voidPos = new String[branchList.size()];
+        var slots = new int[branchList.size()];
+        for (var i = 0; i < exprs.length; i++) {
+            exprs[i] = compile(branchList.get(i).expr);
+            slots[i] = branchList.get(i).slot;
+            voidPos[i] = errorPos(branchList.get(i).expr);
+        }
+        var pos = errorPos(caseDef.starPos, caseDef.endPos);
+        var table = new CaseTable(treeSupport, branchList);
+        closure = context -> {
+            var object = caseExpr.apply(context);
+            var i = table.lookup(object.type);
+            if (i >= 0) {
+                context.frame[slots[i]] = object;
+                var returnVal = exprs[i].apply(context);
+                if (returnVal.type.type() == TypeEnum.VOID) {
+                    error("runtime.error.void", voidPos[i]);
+                }
+                return returnVal;
+            }
+            error("runtime.error.case", pos);
+            return coolVoid();
+        };
+    }
+}
@@ -30,30 +30,38 @@ import com.leon.cool.lang.ast.StaticDispatchBody;
 import com.leon.cool.lang.ast.StringConst;
 import com.leon.cool.lang.ast.Sub;
 import com.leon.cool.lang.glossary.Out;
-import com.leon.cool.lang.object.CoolBool;
 import com.leon.cool.lang.object.CoolInt;
 import com.leon.cool.lang.object.CoolObject;
-import com.leon.cool.lang.object.CoolString;
+import com.leon.cool.lang.support.Intrinsic;
 import com.leon.cool.lang.support.TreeSupport;
 import com.leon.cool.lang.support.declaration.MethodDeclaration;
 import com.leon.cool.lang.support.infrastructure.Context;
 import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+import com.leon.cool.lang.tree.runtime.node.CachedDispatchNode;
+import com.leon.cool.lang.tree.runtime.node.CachedStaticDispatchNode;
+import com.leon.cool.lang.tree.runtime.node.CaseDefNode;
+import com.leon.cool.lang.tree.runtime.node.ConstantNode;
+import com.leon.cool.lang.tree.runtime.node.FieldNode;
+import com.leon.cool.lang.tree.runtime.node.GenericCompNode;
+import com.leon.cool.lang.tree.runtime.node.IntDivideNode;
+import com.leon.cool.lang.tree.runtime.node.IntLtEqNode;
+import com.leon.cool.lang.tree.runtime.node.IntLtNode;
+import com.leon.cool.lang.tree.runtime.node.IntMulNode;
+import com.leon.cool.lang.tree.runtime.node.IntPlusNode;
+import com.leon.cool.lang.tree.runtime.node.IntSubNode;
+import com.leon.cool.lang.tree.runtime.node.SelfNode;
+import com.leon.cool.lang.tree.runtime.node.VariableNode;
 import com.leon.cool.lang.type.Type;
 import com.leon.cool.lang.type.TypeEnum;
 
-import java.util.stream.Collectors;
-
 import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
 import static com.leon.cool.lang.factory.ObjectFactory.coolBoolDefault;
 import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
 import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
-import static com.leon.cool.lang.factory.ObjectFactory.coolString;
 import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
 import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
 import static com.leon.cool.lang.support.ErrorSupport.error;
 import static com.leon.cool.lang.support.ErrorSupport.errorPos;
-import static com.leon.cool.lang.support.TypeSupport.isBasicType;
 import static com.leon.cool.lang.support.TypeSupport.isBoolType;
 import static com.leon.cool.lang.support.TypeSupport.isIntType;
 import static com.leon.cool.lang.support.TypeSupport.isSelfType;
@@ -80,14 +88,43 @@ public class EvalTreeScanner implements EvalTreeVisitor {
 
     protected TreeSupport treeSupport;
 
+    /**
+     * 不为null时开启分层执行
+     */
+    protected TieredCompiler tieredCompiler;
+
     public EvalTreeScanner(TreeSupport treeSupport) {
+        this(treeSupport, null);
+    }
+
+    public EvalTreeScanner(TreeSupport treeSupport, TieredCompiler tieredCompiler) {
         this.treeSupport = treeSupport;
+        this.tieredCompiler = tieredCompiler;
+    }
+
+    /**
+     * 在已绑定形参的frame中对方法体求值，方法体已被编译的话执行编译后的closure
+     *
+     * @param methodDeclaration 方法声明
+     * @param obj               receiver
+     * @param frame             前几个槽位是实参
+     * @return 方法返回值
+     */
+    public CoolObject invoke(MethodDeclaration methodDeclaration, CoolObject obj, CoolObject[] frame) {
+        //对函数体求值
+        var context = new Context(obj, frame);
+        var body = tieredCompiler == null ? null : tieredCompiler.invoked(methodDeclaration.declaration, this);
+        return body == null ? methodDeclaration.declaration.expr.accept(this, context) : body.apply(context);
     }
 
     @Override
     public CoolObject applyAssign(Assign assign, @Out Context context) {
         var object = assign.expr.accept(this, context);
-        context.environment.update(assign.id.tok.name, object);
+        if (assign.id.slot >= 0) {
+            context.frame[assign.id.slot] = object;
+        } else {
+            context.selfObject.fields[assign.id.field] = object;
+        }
         return object;
     }
 
@@ -106,7 +143,7 @@ public class EvalTreeScanner implements EvalTreeVisitor {
         if (isSelfType(newDef.type)) {
             type = context.selfObject.type;
         } else {
-            type = objectType(newDef.type.name);
+            type = treeSupport.types.objectType(newDef.type.name);
         }
         return treeSupport.newDef(this, type, context);
     }
@@ -121,6 +158,7 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     public CoolObject applyPlus(Plus plus, @Out Context context) {
         var l = (CoolInt) plus.left.accept(this, context);
         var r = (CoolInt) plus.right.accept(this, context);
+        plus.specialized = new IntPlusNode(plus);
         return coolInt(l.val + r.val);
     }
 
@@ -128,6 +166,7 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     public CoolObject applySub(Sub sub, @Out Context context) {
         CoolInt l = (CoolInt) sub.left.accept(this, context);
         CoolInt r = (CoolInt) sub.right.accept(this, context);
+        sub.specialized = new IntSubNode(sub);
         return coolInt(l.val - r.val);
     }
 
@@ -135,6 +174,7 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     public CoolObject applyMul(Mul mul, @Out Context context) {
         var l = (CoolInt) mul.left.accept(this, context);
         var r = (CoolInt) mul.right.accept(this, context);
+        mul.specialized = new IntMulNode(mul);
         return coolInt(l.val * r.val);
     }
 
@@ -142,6 +182,7 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     public CoolObject applyDivide(Divide divide, @Out Context context) {
         var l = (CoolInt) divide.left.accept(this, context);
         var r = (CoolInt) divide.right.accept(this, context);
+        divide.specialized = new IntDivideNode(divide);
         if (r.val == 0) {
             error("runtime.error.divide.zero", errorPos(divide.right));
         }
@@ -150,14 +191,14 @@ public class EvalTreeScanner implements EvalTreeVisitor {
 
     @Override
     public CoolObject applyNeg(Neg neg, @Out Context context) {
-        var val = (CoolInt) neg.expr.accept(this, context);
-        return coolInt(-val.val);
+        return coolInt(-neg.expr.acceptInt(this, context));
     }
 
     @Override
     public CoolObject applyLt(Lt lt, @Out Context context) {
         var l = (CoolInt) lt.left.accept(this, context);
         var r = (CoolInt) lt.right.accept(this, context);
+        lt.specialized = new IntLtNode(lt);
         if (l.val < r.val) {
             return coolBool(true);
         } else {
@@ -169,6 +210,7 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     public CoolObject applyLtEq(LtEq ltEq, @Out Context context) {
         var l = (CoolInt) ltEq.left.accept(this, context);
         var r = (CoolInt) ltEq.right.accept(this, context);
+        ltEq.specialized = new IntLtEqNode(ltEq);
         if (l.val <= r.val) {
             return coolBool(true);
         } else {
@@ -180,49 +222,46 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     public CoolObject applyComp(Comp comp, @Out Context context) {
         var l = comp.left.accept(this, context);
         var r = comp.right.accept(this, context);
-        if (isBasicType(l.type) && isBasicType(r.type)) {
-            if (l instanceof CoolString && r instanceof CoolString) {
-                return coolBool(((CoolString) l).str.equals(((CoolString) r).str));
-            } else if (l instanceof CoolInt && r instanceof CoolInt) {
-                return coolBool(((CoolInt) l).val == ((CoolInt) r).val);
-            } else if (l instanceof CoolBool && r instanceof CoolBool) {
-                return coolBool(((CoolBool) l).val == ((CoolBool) r).val);
-            } else {
-                throw new AssertionError("unexpected error.");
-            }
-        } else {
-            return coolBool(l.equals(r));
-        }
+        comp.specialized = GenericCompNode.specialize(comp, l, r);
+        return GenericCompNode.comp(l, r);
     }
 
     @Override
     public CoolObject applyNot(Not not, @Out Context context) {
-        var bool = (CoolBool) not.expr.accept(this, context);
-        return coolBool(!bool.val);
+        return coolBool(!not.expr.acceptBool(this, context));
     }
 
     @Override
     public CoolObject applyIdConst(IdConst idConst, @Out Context context) {
-        if (idConst.tok.name.equals(Constant.SELF)) {
+        //token的名字来自解析时的符号表，self和Constant.SELF是同一个引用
+        if (idConst.tok.name == Constant.SELF) {
+            idConst.specialized = SelfNode.INSTANCE;
             return context.selfObject;
         } else {
-            return context.environment.lookup(idConst.tok.name).get();
+            idConst.specialized = idConst.slot >= 0 ? new VariableNode(idConst.slot) : new FieldNode(idConst.field);
+            return idConst.specialized.execute(this, context);
         }
     }
 
     @Override
     public CoolObject applyStringConst(StringConst stringConst, @Out Context context) {
-        return coolString(stringConst.tok.name);
+        var value = treeSupport.internString(stringConst.tok.name);
+        stringConst.specialized = new ConstantNode(value);
+        return value;
     }
 
     @Override
     public CoolObject applyBoolConst(BoolConst boolConst, @Out Context context) {
-        return coolBool(boolConst.bool);
+        var value = coolBool(boolConst.bool);
+        boolConst.specialized = new ConstantNode(value);
+        return value;
     }
 
     @Override
     public CoolObject applyIntConst(IntConst intConst, @Out Context context) {
-        return coolInt(Integer.parseInt(intConst.tok.name));
+        var value = coolInt(Integer.parseInt(intConst.tok.name));
+        intConst.specialized = new ConstantNode(value);
+        return value;
     }
 
     @Override
@@ -237,40 +276,26 @@ public class EvalTreeScanner implements EvalTreeVisitor {
 
     @Override
     public CoolObject applyDispatch(Dispatch dispatch, @Out Context context) {
-        /**
-         * 对方法调用的参数求值
-         */
-        var paramObjects = dispatch.params.stream().map(e -> e.accept(this, context)).collect(Collectors.toList());
-        /**
-         * 对上述参数表达式求得类型
-         */
-        var paramTypes = paramObjects.stream().map(e -> e.type).collect(Collectors.toList());
         var obj = context.selfObject;
-        //根据类型，方法名称，类名lookup方法声明
-        var methodDeclaration = treeSupport.lookupMethodDeclaration(obj.type.className(), dispatch.id.name, paramTypes).get();
+        //重载在类型检查时已经选好，根据receiver的类名和方法签名的槽位查vtable
+        var methodDeclaration = treeSupport.lookupVirtual(obj.type, dispatch.slot);
 
-        var str = treeSupport.buildIn(paramObjects, obj, methodDeclaration, errorPos(dispatch.starPos, dispatch.endPos));
-        if (str != null) return str;
-
-        /**
-         * 进入scope
-         *
-         */
-        context.environment.enterScope();
-        assert paramObjects.size() == methodDeclaration.declaration.formals.size();
+        dispatch.specialized = new CachedDispatchNode(dispatch, treeSupport, this);
         /**
-         * 绑定形参
+         * receiver是self，先确定调用目标再对参数求值，builtin方法的参数直接求值到arg0，arg1
          */
-        for (var i = 0; i < methodDeclaration.declaration.formals.size(); i++) {
-            context.environment.addId(methodDeclaration.declaration.formals.get(i).id.name, paramObjects.get(i));
+        var params = dispatch.params;
+        var intrinsic = methodDeclaration.intrinsic();
+        if (intrinsic != Intrinsic.NONE) {
+            var arg0 = params.size() > 0 ? params.get(0).accept(this, context) : null;
+            var arg1 = params.size() > 1 ? params.get(1).accept(this, context) : null;
+            return intrinsic.apply(treeSupport, obj, arg0, arg1, errorPos(dispatch.starPos, dispatch.endPos));
         }
-        //对函数体求值
-        var object = methodDeclaration.declaration.expr.accept(this, context);
-        /**
-         * 退出scope
-         */
-        context.environment.exitScope();
-        return object;
+        var frame = methodDeclaration.frame(null, null);
+        for (var i = 0; i < params.size(); i++) {
+            frame[i] = params.get(i).accept(this, context);
+        }
+        return invoke(methodDeclaration, obj, frame);
     }
 
     @Override
@@ -281,13 +306,20 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     @Override
     public CoolObject applyStaticDispatch(StaticDispatch staticDispatch, @Out Context context) {
         /**
-         * 对方法调用的参数求值
+         * 对方法调用的参数求值，builtin方法最多两个参数，不超过两个时求值到arg0，arg1
          */
-        var paramObjects = staticDispatch.dispatch.params.stream().map(e -> e.accept(this, context)).collect(Collectors.toList());
-        /**
-         * 对上述参数表达式求得类型
-         */
-        var paramTypes = paramObjects.stream().map(e -> e.type).collect(Collectors.toList());
+        var params = staticDispatch.dispatch.params;
+        CoolObject arg0 = null, arg1 = null;
+        CoolObject[] args = null;
+        if (params.size() > 2) {
+            args = new CoolObject[params.size()];
+            for (var i = 0; i < args.length; i++) {
+                args[i] = params.get(i).accept(this, context);
+            }
+        } else {
+            if (params.size() > 0) arg0 = params.get(0).accept(this, context);
+            if (params.size() > 1) arg1 = params.get(1).accept(this, context);
+        }
         MethodDeclaration methodDeclaration;
         // expr[@TYPE].ID( [ expr [[, expr]] ∗ ] )对第一个expr求值
         var obj = staticDispatch.expr.accept(this, context);
@@ -297,37 +329,22 @@ public class EvalTreeScanner implements EvalTreeVisitor {
         //如果提供type，则根据type查找方法声明
         //如果没提供type，则根据上述expr值的类型查找方法声明
         if (staticDispatch.type.isPresent()) {
-            methodDeclaration = treeSupport.lookupMethodDeclaration(staticDispatch.type.get().name, staticDispatch.dispatch.id.name, paramTypes).get();
+            methodDeclaration = treeSupport.lookupVirtual(staticDispatch.type.get().name, staticDispatch.slot);
         } else {
-            methodDeclaration = treeSupport.lookupMethodDeclaration(obj.type.className(), staticDispatch.dispatch.id.name, paramTypes).get();
+            methodDeclaration = treeSupport.lookupVirtual(obj.type, staticDispatch.slot);
         }
 
-        var str = treeSupport.buildIn(paramObjects, obj, methodDeclaration, errorPos(staticDispatch.starPos, staticDispatch.endPos));
-        if (str != null) return str;
-
-        /**
-         * 进入scope,此scope是上述expr值对象的scope
-         */
-        obj.variables.enterScope();
-        assert paramObjects.size() == methodDeclaration.declaration.formals.size();
-        /**
-         * 绑定形参
-         */
-        for (var i = 0; i < methodDeclaration.declaration.formals.size(); i++) {
-            obj.variables.addId(methodDeclaration.declaration.formals.get(i).id.name, paramObjects.get(i));
+        staticDispatch.specialized = new CachedStaticDispatchNode(staticDispatch, treeSupport, this);
+        var intrinsic = methodDeclaration.intrinsic();
+        if (intrinsic != Intrinsic.NONE) {
+            return intrinsic.apply(treeSupport, obj, arg0, arg1, errorPos(staticDispatch.starPos, staticDispatch.endPos));
         }
-        //对函数体求值
-        var object = methodDeclaration.declaration.expr.accept(this, new Context(obj, obj.variables));
-        /**
-         * 退出scope
-         */
-        obj.variables.exitScope();
-        return object;
+        return invoke(methodDeclaration, obj, args != null ? methodDeclaration.frame(args) : methodDeclaration.frame(arg0, arg1));
     }
 
     @Override
     public CoolObject applyCond(Cond cond, @Out Context context) {
-        if (((CoolBool) cond.condExpr.accept(this, context)).val) {
+        if (cond.condExpr.acceptBool(this, context)) {
             return cond.thenExpr.accept(this, context);
         } else {
             return cond.elseExpr.accept(this, context);
@@ -336,43 +353,28 @@ public class EvalTreeScanner implements EvalTreeVisitor {
 
     @Override
     public CoolObject applyLoop(Loop loop, @Out Context context) {
-        while (((CoolBool) loop.condExpr.accept(this, context)).val) {
+        while (loop.condExpr.acceptBool(this, context)) {
             loop.loopExpr.accept(this, context);
+            if (tieredCompiler != null) {
+                //回边，循环已被编译的话剩下的迭代交给编译后的closure
+                var compiled = tieredCompiler.backEdge(loop, this);
+                if (compiled != null) return compiled.apply(context);
+            }
         }
         return coolVoid();
     }
 
     @Override
     public CoolObject applyLet(Let let, @Out Context context) {
-        context.environment.enterScope();
         let.attrDefs.forEach(e -> e.accept(this, context));
-        var object = let.expr.accept(this, context);
-        context.environment.exitScope();
-        return object;
+        return let.expr.accept(this, context);
     }
 
     @Override
     public CoolObject applyCaseDef(CaseDef caseDef, @Out Context context) {
-        var object = caseDef.caseExpr.accept(this, context);
-        var temp = object.type.className();
-        while (temp != null) {
-            final var filterStr = temp;
-            var branchOpt = caseDef.branchList.stream().filter(e -> e.type.name.equals(filterStr)).findFirst();
-            if (branchOpt.isPresent()) {
-                var branch = branchOpt.get();
-                context.environment.enterScope();
-                context.environment.addId(branch.id.name, object);
-                var returnVal = branch.expr.accept(this, context);
-                context.environment.exitScope();
-                if (returnVal.type.type() == TypeEnum.VOID) {
-                    error("runtime.error.void", errorPos(branch.expr));
-                }
-                return returnVal;
-            }
-            temp = treeSupport.classGraph.get(temp);
-        }
-        error("runtime.error.case", errorPos(caseDef.starPos, caseDef.endPos));
-        return coolVoid();
+        //第一次求值时为这个case建立按运行时类型分派的表，之后由CaseDefNode执行
+        caseDef.specialized = new CaseDefNode(caseDef, treeSupport);
+        return caseDef.specialized.execute(this, context);
     }
 
     @Override
@@ -383,16 +385,16 @@ public class EvalTreeScanner implements EvalTreeVisitor {
     @Override
     public CoolObject applyLetAttrDef(LetAttrDef letAttrDef, @Out Context context) {
         if (letAttrDef.expr.isPresent()) {
-            context.environment.addId(letAttrDef.id.name, letAttrDef.expr.get().accept(this, context));
+            context.frame[letAttrDef.slot] = letAttrDef.expr.get().accept(this, context);
         } else {
             if (isStringType(letAttrDef.type)) {
-                context.environment.addId(letAttrDef.id.name, coolStringDefault());
+                context.frame[letAttrDef.slot] = coolStringDefault();
             } else if (isIntType(letAttrDef.type)) {
-                context.environment.addId(letAttrDef.id.name, coolIntDefault());
+                context.frame[letAttrDef.slot] = coolIntDefault();
             } else if (isBoolType(letAttrDef.type)) {
-                context.environment.addId(letAttrDef.id.name, coolBoolDefault());
+                context.frame[letAttrDef.slot] = coolBoolDefault();
             } else {
-                context.environment.addId(letAttrDef.id.name, coolVoid());
+                context.frame[letAttrDef.slot] = coolVoid();
             }
         }
         return context.selfObject;
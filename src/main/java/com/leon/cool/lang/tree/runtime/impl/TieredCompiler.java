@@ -0,0 +1,110 @@
+package com.leon.cool.lang.tree.runtime.impl;
+
+import com.leon.cool.lang.Configuration;
+import com.leon.cool.lang.ast.Expression;
+import com.leon.cool.lang.ast.Loop;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.TreeNode;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.tree.runtime.Closure;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TieredCompiler implements Closeable {
+
+    private final TreeSupport treeSupport;
+    private final Configuration configuration;
+    private final ExecutorService executor;
+
+    /**
+     * 计数器只在解释器线程读写
+     */
+    private final Map<TreeNode, int[]> counters = new HashMap<>();
+
+    /**
+     * MethodDef或Loop -> 编译好的closure，由编译线程发布
+     */
+    private final Map<TreeNode, Closure> compiled = new ConcurrentHashMap<>();
+
+    public TieredCompiler(TreeSupport treeSupport, Configuration configuration) {
+        this.treeSupport = treeSupport;
+        this.configuration = configuration;
+        if (configuration.backgroundCompilation) {
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                var thread = new Thread(r, "cool-compiler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * 方法调用计数
+     *
+     * @return 编译好的方法体，尚未编译返回null
+     */
+    public Closure invoked(MethodDef methodDef, EvalTreeScanner evaluator) {
+        var closure = compiled.get(methodDef);
+        if (closure == null && count(methodDef, configuration.invocationThreshold)) {
+            return compile(methodDef, methodDef.expr, evaluator);
+        }
+        return closure;
+    }
+
+    /**
+     * 循环回边计数，局部变量都在frame中，所以可以直接从当前迭代切换到编译好的循环
+     *
+     * @return 编译好的循环，尚未编译返回null
+     */
+    public Closure backEdge(Loop loop, EvalTreeScanner evaluator) {
+        var closure = compiled.get(loop);
+        if (closure == null && count(loop, configuration.backEdgeThreshold)) {
+            return compile(loop, loop, evaluator);
+        }
+        return closure;
+    }
+
+    private boolean count(TreeNode node, int threshold) {
+        var counter = counters.computeIfAbsent(node, e -> new int[1]);
+        return counter[0] < threshold && ++counter[0] == threshold;
+    }
+
+    private Closure compile(TreeNode node, Expression expr, EvalTreeScanner evaluator) {
+        if (executor == null) {
+            var closure = new ClosureTreeScanner(treeSupport, evaluator).compile(expr);
+            compiled.put(node, closure);
+            return closure;
+        }
+        executor.execute(() -> compiled.put(node, new ClosureTreeScanner(treeSupport, evaluator).compile(expr)));
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,64 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.Dispatch;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.Intrinsic;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+import com.leon.cool.lang.tree.runtime.impl.EvalTreeScanner;
+
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CachedDispatchNode implements SpecializedNode {
+
+    private final Dispatch node;
+    private final TreeSupport treeSupport;
+    private final EvalTreeScanner evaluator;
+    private final MethodCache cache;
+    private final String pos;
+
+    public CachedDispatchNode(Dispatch node, TreeSupport treeSupport, EvalTreeScanner evaluator) {
+        this.node = node;
+        this.treeSupport = treeSupport;
+        this.evaluator = evaluator;
+        this.cache = new MethodCache(treeSupport, node.slot);
+        this.pos = errorPos(node.starPos, node.endPos);
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        var obj = context.selfObject;
+        var methodDeclaration = cache.lookup(obj.type);
+        var params = node.params;
+        var intrinsic = methodDeclaration.intrinsic();
+        if (intrinsic != Intrinsic.NONE) {
+            var arg0 = params.size() > 0 ? params.get(0).accept(visitor, context) : null;
+            var arg1 = params.size() > 1 ? params.get(1).accept(visitor, context) : null;
+            return intrinsic.apply(treeSupport, obj, arg0, arg1, pos);
+        }
+        var frame = methodDeclaration.frame(null, null);
+        for (var i = 0; i < params.size(); i++) {
+            frame[i] = params.get(i).accept(visitor, context);
+        }
+        return evaluator.invoke(methodDeclaration, obj, frame);
+    }
+}
@@ -0,0 +1,77 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.Intrinsic;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+import com.leon.cool.lang.tree.runtime.impl.EvalTreeScanner;
+import com.leon.cool.lang.type.Type;
+import com.leon.cool.lang.type.TypeEnum;
+
+import static com.leon.cool.lang.support.ErrorSupport.error;
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CachedStaticDispatchNode implements SpecializedNode {
+
+    private final StaticDispatch node;
+    private final TreeSupport treeSupport;
+    private final EvalTreeScanner evaluator;
+    private final MethodCache cache;
+    private final Type type;
+    private final String voidPos;
+    private final String pos;
+
+    public CachedStaticDispatchNode(StaticDispatch node, TreeSupport treeSupport, EvalTreeScanner evaluator) {
+        this.node = node;
+        this.treeSupport = treeSupport;
+        this.evaluator = evaluator;
+        this.cache = new MethodCache(treeSupport, node.slot);
+        this.type = node.type.map(e -> treeSupport.types.objectType(e.name)).orElse(null);
+        this.voidPos = errorPos(node.expr);
+        this.pos = errorPos(node.starPos, node.endPos);
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        var params = node.dispatch.params;
+        CoolObject arg0 = null, arg1 = null;
+        CoolObject[] args = null;
+        if (params.size() > 2) {
+            args = new CoolObject[params.size()];
+            for (var i = 0; i < args.length; i++) {
+                args[i] = params.get(i).accept(visitor, context);
+            }
+        } else {
+            if (params.size() > 0) arg0 = params.get(0).accept(visitor, context);
+            if (params.size() > 1) arg1 = params.get(1).accept(visitor, context);
+        }
+        var obj = node.expr.accept(visitor, context);
+        if (obj.type.type() == TypeEnum.VOID) {
+            error("runtime.error.dispatch.void", voidPos);
+        }
+        var methodDeclaration = cache.lookup(type != null ? type : obj.type);
+        var intrinsic = methodDeclaration.intrinsic();
+        if (intrinsic != Intrinsic.NONE) return intrinsic.apply(treeSupport, obj, arg0, arg1, pos);
+        return evaluator.invoke(methodDeclaration, obj, args != null ? methodDeclaration.frame(args) : methodDeclaration.frame(arg0, arg1));
+    }
+}
@@ -0,0 +1,65 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.CaseDef;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+import com.leon.cool.lang.type.TypeEnum;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
+import static com.leon.cool.lang.support.ErrorSupport.error;
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CaseDefNode implements SpecializedNode {
+
+    private final CaseDef node;
+    private final CaseTable table;
+    private final String[] voidPos;
+    private final String pos;
+
+    public CaseDefNode(CaseDef node, TreeSupport treeSupport) {
+        this.node = node;
+        this.table = new CaseTable(treeSupport, node.branchList);
+        this.voidPos = new String[node.branchList.size()];
+        for (var i = 0; i < voidPos.length; i++) {
+            voidPos[i] = errorPos(node.branchList.get(i).expr);
+        }
+        this.pos = errorPos(node.starPos, node.endPos);
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        var object = node.caseExpr.accept(visitor, context);
+        var index = table.lookup(object.type);
+        if (index < 0) {
+            error("runtime.error.case", pos);
+            return coolVoid();
+        }
+        var branch = node.branchList.get(index);
+        context.frame[branch.slot] = object;
+        var returnVal = branch.expr.accept(visitor, context);
+        if (returnVal.type.type() == TypeEnum.VOID) {
+            error("runtime.error.void", voidPos[index]);
+        }
+        return returnVal;
+    }
+}
@@ -0,0 +1,63 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.infrastructure.ClassHierarchy;
+import com.leon.cool.lang.type.Type;
+
+import java.util.List;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CaseTable {
+
+    private static final int UNRESOLVED = 0;
+    private static final int NO_BRANCH = -1;
+
+    private final ClassHierarchy hierarchy;
+    private final int[] branchIds;
+
+    /**
+     * 运行时类的编号 -> 分支下标 + 1，第一次遇到这个类时才填
+     */
+    private final int[] table;
+
+    public CaseTable(TreeSupport treeSupport, List<Branch> branchList) {
+        this.hierarchy = treeSupport.hierarchy();
+        this.branchIds = new int[branchList.size()];
+        for (var i = 0; i < branchIds.length; i++) {
+            branchIds[i] = hierarchy.id(branchList.get(i).type.name);
+        }
+        this.table = new int[hierarchy.size()];
+    }
+
+    /**
+     * @return type对应的分支下标，没有匹配的分支(包括void)返回-1
+     */
+    public int lookup(Type type) {
+        var id = hierarchy.id(type);
+        if (id < 0) return NO_BRANCH;
+        var entry = table[id];
+        if (entry == UNRESOLVED) {
+            var index = hierarchy.nearest(id, branchIds);
+            entry = index < 0 ? NO_BRANCH : index + 1;
+            table[id] = entry;
+        }
+        return entry == NO_BRANCH ? NO_BRANCH : entry - 1;
+    }
+}
@@ -0,0 +1,40 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ConstantNode implements SpecializedNode {
+
+    /**
+     * 字面量第一次求值的结果，Int，Bool和String都不可变，可以一直复用
+     */
+    private final CoolObject value;
+
+    public ConstantNode(CoolObject value) {
+        this.value = value;
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        return value;
+    }
+}
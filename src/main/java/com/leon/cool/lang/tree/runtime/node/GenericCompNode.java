@@ -0,0 +1,82 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolBool;
+import com.leon.cool.lang.object.CoolInt;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.object.CoolString;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
+import static com.leon.cool.lang.support.TypeSupport.isBasicType;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class GenericCompNode implements SpecializedNode {
+
+    private final Comp node;
+
+    public GenericCompNode(Comp node) {
+        this.node = node;
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        var l = node.left.accept(visitor, context);
+        var r = node.right.accept(visitor, context);
+        return comp(l, r);
+    }
+
+    /**
+     * 基本类型比较值，其他类型比较引用
+     */
+    public static CoolBool comp(CoolObject l, CoolObject r) {
+        if (isBasicType(l.type) && isBasicType(r.type)) {
+            if (l instanceof CoolString && r instanceof CoolString) {
+                return coolBool(((CoolString) l).contentEquals((CoolString) r));
+            } else if (l instanceof CoolInt && r instanceof CoolInt) {
+                return coolBool(((CoolInt) l).val == ((CoolInt) r).val);
+            } else if (l instanceof CoolBool && r instanceof CoolBool) {
+                return coolBool(((CoolBool) l).val == ((CoolBool) r).val);
+            } else {
+                throw new AssertionError("unexpected error.");
+            }
+        } else {
+            return coolBool(l.equals(r));
+        }
+    }
+
+    /**
+     * 根据第一次求值看到的操作数类型选择特化版本
+     */
+    public static SpecializedNode specialize(Comp node, CoolObject l, CoolObject r) {
+        if (l instanceof CoolInt && r instanceof CoolInt) {
+            return new IntCompNode(node);
+        } else if (l instanceof CoolString && r instanceof CoolString) {
+            return new StringCompNode(node);
+        } else if (l instanceof CoolBool && r instanceof CoolBool) {
+            return new BoolCompNode(node);
+        } else if (!isBasicType(l.type) && !isBasicType(r.type)) {
+            return new ReferenceCompNode(node);
+        } else {
+            return new GenericCompNode(node);
+        }
+    }
+}
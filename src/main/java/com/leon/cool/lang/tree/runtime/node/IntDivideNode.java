@@ -0,0 +1,54 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.Divide;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
+import static com.leon.cool.lang.support.ErrorSupport.error;
+import static com.leon.cool.lang.support.ErrorSupport.errorPos;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class IntDivideNode implements SpecializedNode {
+
+    private final Divide node;
+    private final String pos;
+
+    public IntDivideNode(Divide node) {
+        this.node = node;
+        this.pos = errorPos(node.right);
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        return coolInt(executeInt(visitor, context));
+    }
+
+    @Override
+    public int executeInt(EvalTreeVisitor visitor, @Out Context context) {
+        var l = node.left.acceptInt(visitor, context);
+        var r = node.right.acceptInt(visitor, context);
+        if (r == 0) {
+            error("runtime.error.divide.zero", pos);
+        }
+        return l / r;
+    }
+}
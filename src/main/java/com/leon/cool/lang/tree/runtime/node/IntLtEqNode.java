@@ -0,0 +1,45 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.LtEq;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class IntLtEqNode implements SpecializedNode {
+
+    private final LtEq node;
+
+    public IntLtEqNode(LtEq node) {
+        this.node = node;
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        return coolBool(executeBool(visitor, context));
+    }
+
+    @Override
+    public boolean executeBool(EvalTreeVisitor visitor, @Out Context context) {
+        return node.left.acceptInt(visitor, context) <= node.right.acceptInt(visitor, context);
+    }
+}
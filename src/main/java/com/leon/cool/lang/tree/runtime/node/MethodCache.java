@@ -0,0 +1,141 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.declaration.MethodDeclaration;
+import com.leon.cool.lang.type.Type;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class MethodCache {
+
+    /**
+     * 一个调用点最多缓存的receiver类型数，超过后转为megamorphic
+     */
+    public static final int POLYMORPHIC_LIMIT = 4;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    public enum State {
+        UNINITIALIZED, MONOMORPHIC, POLYMORPHIC, MEGAMORPHIC
+    }
+
+    private final TreeSupport treeSupport;
+    private final int slot;
+
+    /**
+     * 按receiver类型缓存的lookup结果，类型是intern过的，用==比较。只会整体替换，不会原地修改
+     */
+    private volatile Entry[] entries = EMPTY;
+    private volatile boolean megamorphic;
+
+    /**
+     * hits: 命中缓存的次数，misses: 做了完整lookup的次数(megamorphic之后每次都算miss)，
+     * transitions: 状态变化的次数(UNINITIALIZED -> MONOMORPHIC -> POLYMORPHIC -> MEGAMORPHIC)
+     */
+    public long hits;
+    public long misses;
+    public long transitions;
+
+    /**
+     * @param slot 类型检查时选出的重载方法的vtable槽位
+     */
+    public MethodCache(TreeSupport treeSupport, int slot) {
+        this.treeSupport = treeSupport;
+        this.slot = slot;
+        treeSupport.inlineCaches.add(this);
+    }
+
+    /**
+     * 先查这个调用点缓存的receiver类型，没命中的话取receiver类型vtable里的方法并加入缓存
+     */
+    public MethodDeclaration lookup(Type type) {
+        if (!megamorphic) {
+            for (var entry : entries) {
+                if (entry.type == type) {
+                    hits++;
+                    return entry.target;
+                }
+            }
+        }
+        misses++;
+        var methodDeclaration = treeSupport.lookupVirtual(type, slot);
+        update(new Entry(type, methodDeclaration));
+        return methodDeclaration;
+    }
+
+    public State state() {
+        if (megamorphic) return State.MEGAMORPHIC;
+        switch (entries.length) {
+            case 0:
+                return State.UNINITIALIZED;
+            case 1:
+                return State.MONOMORPHIC;
+            default:
+                return State.POLYMORPHIC;
+        }
+    }
+
+    /**
+     * @return 所有调用点按状态的分布以及hit，miss，transition的总数
+     */
+    public static String statistics(Collection<MethodCache> caches) {
+        var states = new long[State.values().length];
+        long hits = 0, misses = 0, transitions = 0;
+        for (var cache : caches) {
+            states[cache.state().ordinal()]++;
+            hits += cache.hits;
+            misses += cache.misses;
+            transitions += cache.transitions;
+        }
+        var builder = new StringBuilder();
+        builder.append("inline caches: ").append(caches.size()).append(" sites");
+        for (var state : State.values()) {
+            builder.append(", ").append(state.name().toLowerCase()).append(" ").append(states[state.ordinal()]);
+        }
+        builder.append(", hits ").append(hits).append(", misses ").append(misses).append(", transitions ").append(transitions);
+        return builder.toString();
+    }
+
+    private void update(Entry entry) {
+        if (megamorphic) return;
+        var entries = this.entries;
+        if (entries.length == POLYMORPHIC_LIMIT) {
+            this.megamorphic = true;
+            this.entries = EMPTY;
+            transitions++;
+            return;
+        }
+        var next = Arrays.copyOf(entries, entries.length + 1);
+        next[entries.length] = entry;
+        this.entries = next;
+        if (next.length <= 2) transitions++;
+    }
+
+    private static class Entry {
+        private final Type type;
+        private final MethodDeclaration target;
+
+        private Entry(Type type, MethodDeclaration target) {
+            this.type = type;
+            this.target = target;
+        }
+    }
+}
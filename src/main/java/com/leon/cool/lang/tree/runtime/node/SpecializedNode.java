@@ -0,0 +1,46 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolBool;
+import com.leon.cool.lang.object.CoolInt;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public interface SpecializedNode {
+    /**
+     * 特化后的求值，替代EvalTreeVisitor中对应的apply方法
+     */
+    CoolObject execute(EvalTreeVisitor visitor, @Out Context context);
+
+    /**
+     * 结果是Int时不装箱的求值，Int运算的特化节点直接算出int，其他节点拆箱
+     */
+    default int executeInt(EvalTreeVisitor visitor, @Out Context context) {
+        return ((CoolInt) execute(visitor, context)).val;
+    }
+
+    /**
+     * 结果是Bool时不装箱的求值
+     */
+    default boolean executeBool(EvalTreeVisitor visitor, @Out Context context) {
+        return ((CoolBool) execute(visitor, context)).val;
+    }
+}
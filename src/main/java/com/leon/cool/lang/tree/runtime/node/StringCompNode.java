@@ -0,0 +1,48 @@
+package com.leon.cool.lang.tree.runtime.node;
+
+import com.leon.cool.lang.ast.Comp;
+import com.leon.cool.lang.glossary.Out;
+import com.leon.cool.lang.object.CoolString;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.EvalTreeVisitor;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class StringCompNode implements SpecializedNode {
+
+    private final Comp node;
+
+    public StringCompNode(Comp node) {
+        this.node = node;
+    }
+
+    @Override
+    public CoolObject execute(EvalTreeVisitor visitor, @Out Context context) {
+        var l = node.left.accept(visitor, context);
+        var r = node.right.accept(visitor, context);
+        if (l instanceof CoolString && r instanceof CoolString) {
+            return coolBool(((CoolString) l).contentEquals((CoolString) r));
+        }
+        //操作数类型变化，退化成通用版本
+        node.specialized = new GenericCompNode(node);
+        return GenericCompNode.comp(l, r);
+    }
+}
@@ -21,6 +21,17 @@ import static com.leon.cool.lang.Constant.BOOL;
  */
 public class BoolType implements Type {
 
+    private final int id;
+
+    public BoolType(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
     @Override
     public TypeEnum type() {
         return TypeEnum.BOOL;
@@ -21,6 +21,17 @@ import static com.leon.cool.lang.Constant.INT;
  */
 public class IntType implements Type {
 
+    private final int id;
+
+    public IntType(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
     @Override
     public TypeEnum type() {
         return TypeEnum.INT;
@@ -21,6 +21,17 @@ import static com.leon.cool.lang.Constant.NO_TYPE;
  */
 public class NoType implements Type {
 
+    private final int id;
+
+    public NoType(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
     @Override
     public TypeEnum type() {
         return TypeEnum.NO_TYPE;
@@ -20,9 +20,16 @@ package com.leon.cool.lang.type;
 public class ObjectType implements Type {
 
     private final String type;
+    private final int id;
 
-    public ObjectType(String type) {
+    public ObjectType(String type, int id) {
         this.type = type;
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
     }
 
     @Override
@@ -1,7 +1,6 @@
 package com.leon.cool.lang.type;
 
 import static com.leon.cool.lang.Constant.SELF_TYPE;
-import static com.leon.cool.lang.factory.TypeFactory.objectType;
 import static com.leon.cool.lang.support.ErrorSupport.error;
 
 /**
@@ -24,14 +23,23 @@ import static com.leon.cool.lang.support.ErrorSupport.error;
 public class SelfType implements Type {
 
     private final String type;
+    private final int id;
+    private final Type replace;
 
-    public SelfType(String type) {
+    public SelfType(String type, int id, Type replace) {
         this.type = type;
+        this.id = id;
+        this.replace = replace;
+    }
+
+    @Override
+    public int id() {
+        return id;
     }
 
     @Override
     public Type replace() {
-        return objectType(type);
+        return replace;
     }
 
     @Override
@@ -21,6 +21,17 @@ import static com.leon.cool.lang.Constant.STRING;
  */
 public class StringType implements Type {
 
+    private final int id;
+
+    public StringType(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
     @Override
     public TypeEnum type() {
         return TypeEnum.STRING;
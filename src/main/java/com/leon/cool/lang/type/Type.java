@@ -25,4 +25,9 @@ public interface Type {
     }
 
     String className();
+
+    /**
+     * TypeFactory里intern时分配的编号，同一个程序的所有类型共用一套从0开始的连续编号
+     */
+    int id();
 }
@@ -21,6 +21,17 @@ import static com.leon.cool.lang.Constant.VOID;
  */
 public class VoidType implements Type {
 
+    private final int id;
+
+    public VoidType(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
     @Override
     public TypeEnum type() {
         return TypeEnum.VOID;
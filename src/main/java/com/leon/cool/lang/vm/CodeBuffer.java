@@ -0,0 +1,98 @@
+package com.leon.cool.lang.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class CodeBuffer {
+
+    private int[] code = new int[64];
+    private int size = 0;
+    private int intRegisters = 0;
+    private int refRegisters = 1;
+    private int maxIntRegisters = 0;
+    private int maxRefRegisters = 1;
+
+    public int newInt() {
+        maxIntRegisters = Math.max(maxIntRegisters, intRegisters + 1);
+        return intRegisters++;
+    }
+
+    public int newRef() {
+        maxRefRegisters = Math.max(maxRefRegisters, refRegisters + 1);
+        return refRegisters++;
+    }
+
+    /**
+     * 记录当前分配到的寄存器，结果被丢弃的表达式求值完后可以用release回收期间分配的寄存器
+     */
+    public long mark() {
+        return ((long) intRegisters << 32) | refRegisters;
+    }
+
+    public void release(long mark) {
+        intRegisters = (int) (mark >>> 32);
+        refRegisters = (int) mark;
+    }
+
+    public void emit(int... values) {
+        for (var value : values) {
+            if (size == code.length) code = Arrays.copyOf(code, size * 2);
+            code[size++] = value;
+        }
+    }
+
+    public int position() {
+        return size;
+    }
+
+    public Label newLabel() {
+        return new Label();
+    }
+
+    /**
+     * 跳转指令的目标操作数，label未绑定时先占位，绑定后回填
+     */
+    public void label(Label label) {
+        if (label.position >= 0) {
+            emit(label.position);
+        } else {
+            label.fixups.add(size);
+            emit(-1);
+        }
+    }
+
+    public void mark(Label label) {
+        label.position = size;
+        for (var fixup : label.fixups) code[fixup] = size;
+        label.fixups.clear();
+    }
+
+    public void build(VmMethod method) {
+        method.code = Arrays.copyOf(code, size);
+        method.intRegisters = maxIntRegisters;
+        method.refRegisters = maxRefRegisters;
+    }
+
+    public static class Label {
+        private int position = -1;
+        private final List<Integer> fixups = new ArrayList<>();
+    }
+}
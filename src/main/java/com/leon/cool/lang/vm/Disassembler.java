@@ -0,0 +1,116 @@
+package com.leon.cool.lang.vm;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class Disassembler {
+
+    private final VmProgram program;
+
+    public Disassembler(VmProgram program) {
+        this.program = program;
+    }
+
+    public String disassemble() {
+        var builder = new StringBuilder();
+        for (var clazz : program.classes) {
+            builder.append("class ").append(clazz.name);
+            if (clazz.parent != null) builder.append(" inherits ").append(clazz.parent.name);
+            builder.append('\n');
+            builder.append("  ints ").append(clazz.intFields).append('\n');
+            builder.append("  refs ").append(clazz.refFields).append('\n');
+            for (var i = 0; i < clazz.vtable.length; i++) {
+                builder.append("  vtable[").append(i).append("] ").append(clazz.vtable[i]).append('\n');
+            }
+        }
+        for (var method : program.methods) {
+            if (method.code != null) builder.append(disassemble(method));
+        }
+        return builder.toString();
+    }
+
+    public String disassemble(VmMethod method) {
+        var builder = new StringBuilder();
+        builder.append("method #").append(method.id).append(' ').append(method);
+        builder.append(" ints=").append(method.intRegisters).append(" refs=").append(method.refRegisters).append('\n');
+        var code = method.code;
+        var pc = 0;
+        while (pc < code.length) {
+            builder.append(String.format("%6d: ", pc)).append(instruction(code, pc)).append('\n');
+            pc += Opcodes.length(code, pc);
+        }
+        return builder.toString();
+    }
+
+    private String instruction(int[] code, int pc) {
+        var builder = new StringBuilder(Opcodes.NAMES[code[pc]]);
+        var format = Opcodes.FORMATS[code[pc]];
+        for (var i = 0; i < format.length(); i++) {
+            var operand = code[pc + 1 + i];
+            builder.append(i == 0 ? " " : ", ");
+            switch (format.charAt(i)) {
+                case 'i':
+                    builder.append('i').append(operand);
+                    break;
+                case 'r':
+                    builder.append('r').append(operand);
+                    break;
+                case 'd':
+                    builder.append('d').append(operand);
+                    break;
+                case 'k':
+                    builder.append('#').append(operand).append(' ').append(constant(program.constants.get(operand)));
+                    break;
+                case 'l':
+                    builder.append("-> ").append(operand);
+                    break;
+                case 't':
+                    builder.append(program.classes.get(operand).name);
+                    break;
+                case 'm':
+                    builder.append(program.methods.get(operand));
+                    break;
+                case 'n':
+                    builder.append('(');
+                    for (var j = 0; j < operand; j++) {
+                        if (j > 0) builder.append(", ");
+                        builder.append('v').append(code[pc + 2 + i + j]);
+                    }
+                    builder.append(')');
+                    break;
+                default:
+                    builder.append(operand);
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private String constant(Object constant) {
+        if (constant instanceof int[]) {
+            var table = (int[]) constant;
+            var builder = new StringBuilder("{");
+            for (var i = 0; i < table.length; i++) {
+                if (table[i] < 0) continue;
+                if (builder.length() > 1) builder.append(", ");
+                builder.append(program.classes.get(i).name).append(" -> ").append(table[i]);
+            }
+            return builder.append('}').toString();
+        }
+        return "\"" + constant.toString().replace("\n", "\\n").replace("\t", "\\t") + "\"";
+    }
+}
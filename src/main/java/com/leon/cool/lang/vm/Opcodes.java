@@ -0,0 +1,98 @@
+package com.leon.cool.lang.vm;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class Opcodes {
+
+    /**
+     * 寄存器分两组：int寄存器存Int和Bool，ref寄存器存其他值，ref寄存器0是self
+     */
+    public static final int NOP = 0;
+    public static final int ICONST = 1;
+    public static final int IMOVE = 2;
+    public static final int MOVE = 3;
+    public static final int LDC = 4;
+    public static final int NULL = 5;
+    public static final int IADD = 6;
+    public static final int ISUB = 7;
+    public static final int IMUL = 8;
+    public static final int IDIV = 9;
+    public static final int INEG = 10;
+    public static final int ILT = 11;
+    public static final int ILE = 12;
+    public static final int IEQ = 13;
+    public static final int INOT = 14;
+    public static final int REQ = 15;
+    public static final int ISVOID = 16;
+    public static final int BOXI = 17;
+    public static final int BOXB = 18;
+    public static final int UNBOXI = 19;
+    public static final int UNBOXB = 20;
+    public static final int GETI = 21;
+    public static final int GETR = 22;
+    public static final int PUTI = 23;
+    public static final int PUTR = 24;
+    public static final int NEW = 25;
+    public static final int NEWSELF = 26;
+    public static final int JMP = 27;
+    public static final int JF = 28;
+    public static final int INVOKEVIRTUAL = 29;
+    public static final int INVOKESPECIAL = 30;
+    public static final int CASE = 31;
+    public static final int CHECKVOID = 32;
+    public static final int IRET = 33;
+    public static final int RET = 34;
+
+    /**
+     * 操作数格式，每个字符对应一个操作数：
+     * i int寄存器，r ref寄存器，d 结果寄存器(类型由被调方法决定)，c 立即数，k 常量池下标，
+     * l 跳转目标，s 字段槽位，m 方法id(INVOKEVIRTUAL是静态解析到的方法，按它的vtable槽位分派)，t 类id，n 参数个数(后面跟n个参数寄存器)
+     */
+    public static final String[] FORMATS = {
+            "", "ic", "ii", "rr", "rk", "r",
+            "iii", "iii", "iii", "iiik", "ii",
+            "iii", "iii", "iii", "ii", "irr", "ir",
+            "ri", "ri", "ir", "ir",
+            "is", "rs", "si", "sr",
+            "rt", "r", "l", "il",
+            "dmrkkn", "dmrkkn", "rkk", "rk", "i", "r"
+    };
+
+    public static final String[] NAMES = {
+            "NOP", "ICONST", "IMOVE", "MOVE", "LDC", "NULL",
+            "IADD", "ISUB", "IMUL", "IDIV", "INEG",
+            "ILT", "ILE", "IEQ", "INOT", "REQ", "ISVOID",
+            "BOXI", "BOXB", "UNBOXI", "UNBOXB",
+            "GETI", "GETR", "PUTI", "PUTR",
+            "NEW", "NEWSELF", "JMP", "JF",
+            "INVOKEVIRTUAL", "INVOKESPECIAL", "CASE", "CHECKVOID", "IRET", "RET"
+    };
+
+    private Opcodes() {
+    }
+
+    /**
+     * 指令长度(包含opcode本身)
+     */
+    public static int length(int[] code, int pc) {
+        var format = FORMATS[code[pc]];
+        var length = 1 + format.length();
+        if (format.endsWith("n")) length += code[pc + format.length()];
+        return length;
+    }
+}
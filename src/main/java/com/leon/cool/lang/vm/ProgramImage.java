@@ -0,0 +1,245 @@
+package com.leon.cool.lang.vm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.leon.cool.lang.support.ErrorSupport.error;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class ProgramImage {
+
+    /**
+     * .coolc文件格式:
+     * magic(4) version(2)
+     * constants: count, (tag value)*
+     * methods: count, (owner name paramTypes returnType intParams intReturn slot nativeId intRegisters refRegisters code)*
+     * classes: count, (name parentId intFields refFields refDefaults vtable initId)*
+     * mainClassId mainMethodId
+     * refDefaults里每个默认值写成tag加值：TAG_NULL表示void，TAG_STRING后面跟字符串
+     * 所有长度和个数都在分配之前按剩余字节数检查，损坏的文件报image.error.format
+     */
+    public static final int MAGIC = 0x434F4F4C;
+    public static final int VERSION = 3;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_TABLE = 2;
+
+    private ProgramImage() {
+    }
+
+    public static void write(VmProgram program, Path path) {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(program.constants.size());
+            for (var constant : program.constants) {
+                if (constant instanceof String) {
+                    out.writeByte(TAG_STRING);
+                    writeString(out, (String) constant);
+                } else {
+                    out.writeByte(TAG_TABLE);
+                    writeInts(out, (int[]) constant);
+                }
+            }
+            out.writeInt(program.methods.size());
+            for (var method : program.methods) {
+                writeString(out, method.owner);
+                writeString(out, method.name);
+                writeStrings(out, method.paramTypes);
+                writeString(out, method.returnType);
+                for (var intParam : method.intParams) out.writeBoolean(intParam);
+                out.writeBoolean(method.intReturn);
+                out.writeInt(method.slot);
+                out.writeInt(method.nativeId);
+                out.writeInt(method.intRegisters);
+                out.writeInt(method.refRegisters);
+                writeInts(out, method.code == null ? new int[0] : method.code);
+            }
+            out.writeInt(program.classes.size());
+            for (var clazz : program.classes) {
+                writeString(out, clazz.name);
+                out.writeInt(clazz.parent == null ? -1 : clazz.parent.id);
+                writeStrings(out, clazz.intFields);
+                writeStrings(out, clazz.refFields);
+                for (var refDefault : clazz.refDefaults) {
+                    if (refDefault == null) {
+                        out.writeByte(TAG_NULL);
+                    } else if (refDefault instanceof String) {
+                        out.writeByte(TAG_STRING);
+                        writeString(out, (String) refDefault);
+                    } else {
+                        error("unexpected.error");
+                    }
+                }
+                out.writeInt(clazz.vtable.length);
+                for (var method : clazz.vtable) out.writeInt(method.id);
+                out.writeInt(clazz.init == null ? -1 : clazz.init.id);
+            }
+            out.writeInt(program.mainClass == null ? -1 : program.mainClass.id);
+            out.writeInt(program.mainMethod == null ? -1 : program.mainMethod.id);
+        } catch (IOException e) {
+            error("image.error.io", path);
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            error("image.error.io", path);
+        }
+    }
+
+    /**
+     * 用只读的内存映射读取，不经过词法分析，语法分析和类型检查
+     */
+    public static VmProgram read(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (IOException e) {
+            error("image.error.io", path);
+        } catch (RuntimeException e) {
+            error("image.error.format", path);
+        }
+        return null;
+    }
+
+    private static VmProgram read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) throw new IllegalStateException();
+        var program = new VmProgram();
+        //每个常量至少有tag和长度
+        var constants = readLength(buffer, 5);
+        for (var i = 0; i < constants; i++) {
+            var tag = buffer.get();
+            if (tag == TAG_STRING) {
+                program.constants.add(readString(buffer));
+            } else if (tag == TAG_TABLE) {
+                program.constants.add(readInts(buffer));
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+        var methods = readLength(buffer, 1);
+        for (var i = 0; i < methods; i++) {
+            var owner = readString(buffer);
+            var name = readString(buffer);
+            var paramTypes = readStrings(buffer);
+            var returnType = readString(buffer);
+            var intParams = new boolean[paramTypes.size()];
+            for (var j = 0; j < intParams.length; j++) intParams[j] = buffer.get() != 0;
+            var method = new VmMethod(i, owner, name, paramTypes, returnType, intParams, buffer.get() != 0);
+            method.slot = buffer.getInt();
+            method.nativeId = buffer.getInt();
+            method.intRegisters = buffer.getInt();
+            method.refRegisters = buffer.getInt();
+            var code = readInts(buffer);
+            //执行时按寄存器个数分配frame，每个寄存器不是参数就至少在一条指令里出现
+            var limit = code.length + paramTypes.size() + 1;
+            if (method.intRegisters < 0 || method.intRegisters > limit || method.refRegisters < 0 || method.refRegisters > limit) {
+                throw new IllegalStateException();
+            }
+            if (method.nativeId == VmMethod.NATIVE_NONE) method.code = code;
+            program.methods.add(method);
+        }
+        var classes = readLength(buffer, 1);
+        for (var i = 0; i < classes; i++) {
+            var name = readString(buffer);
+            var parentId = buffer.getInt();
+            var clazz = new VmClass(name, i, parentId < 0 ? null : program.classes.get(parentId));
+            clazz.intFields.addAll(readStrings(buffer));
+            clazz.refFields.addAll(readStrings(buffer));
+            clazz.refDefaults = new Object[clazz.refFields.size()];
+            for (var j = 0; j < clazz.refDefaults.length; j++) {
+                var tag = buffer.get();
+                if (tag == TAG_STRING) {
+                    clazz.refDefaults[j] = readString(buffer);
+                } else if (tag != TAG_NULL) {
+                    throw new IllegalStateException();
+                }
+            }
+            clazz.vtable = new VmMethod[readLength(buffer, 4)];
+            for (var j = 0; j < clazz.vtable.length; j++) clazz.vtable[j] = program.methods.get(buffer.getInt());
+            var initId = buffer.getInt();
+            if (initId >= 0) clazz.init = program.methods.get(initId);
+            program.classes.add(clazz);
+        }
+        var mainClassId = buffer.getInt();
+        var mainMethodId = buffer.getInt();
+        if (mainClassId >= 0) program.mainClass = program.classes.get(mainClassId);
+        if (mainMethodId >= 0) program.mainMethod = program.methods.get(mainMethodId);
+        return program;
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        var bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strs) throws IOException {
+        out.writeInt(strs.size());
+        for (var str : strs) writeString(out, str);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        out.writeInt(ints.length);
+        for (var value : ints) out.writeInt(value);
+    }
+
+    /**
+     * 读出长度或者个数，负数或者剩下的字节不够放下这么多元素时说明文件损坏
+     *
+     * @param elementSize 每个元素至少占的字节数
+     */
+    private static int readLength(ByteBuffer buffer, int elementSize) {
+        var length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / elementSize) throw new IllegalStateException();
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var bytes = new byte[readLength(buffer, 1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        //每个字符串至少有长度
+        var size = readLength(buffer, 4);
+        var strs = new ArrayList<String>(size);
+        for (var i = 0; i < size; i++) strs.add(readString(buffer));
+        return strs;
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        var ints = new int[readLength(buffer, 4)];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + ints.length * 4);
+        return ints;
+    }
+}
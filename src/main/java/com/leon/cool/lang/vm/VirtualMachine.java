@@ -0,0 +1,437 @@
+package com.leon.cool.lang.vm;
+
+import com.leon.cool.lang.Constant;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolObject;
+import static com.leon.cool.lang.support.ErrorSupport.error;
+import static com.leon.cool.lang.vm.Opcodes.*;
+import static com.leon.cool.lang.vm.VmMethod.*;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class VirtualMachine implements Closeable {
+
+    private final VmProgram program;
+    private final Object[] constants;
+    private final VmMethod[] methods;
+    private final VmMethod[][] inits;
+    private final VmClass intClass;
+    private final VmClass boolClass;
+    private final VmClass stringClass;
+    private BufferedReader reader;
+
+    /**
+     * 调用栈，sp是栈帧个数
+     */
+    private Frame[] stack = new Frame[64];
+    private int sp;
+
+    /**
+     * 方法返回值，按被调方法的返回类型取其中一个
+     */
+    private int intResult;
+    private Object refResult;
+
+    /**
+     * 栈帧返回值不写回调用者，属性初始化方法用
+     */
+    private static final int NO_DEST = -1;
+
+    public VirtualMachine(VmProgram program) {
+        this.program = program;
+        this.constants = program.constants.toArray();
+        this.methods = program.methods.toArray(new VmMethod[0]);
+        this.inits = new VmMethod[program.classes.size()][];
+        for (var clazz : program.classes) {
+            inits[clazz.id] = clazz.initChain().toArray(new VmMethod[0]);
+        }
+        this.intClass = program.lookupClass(Constant.INT);
+        this.boolClass = program.lookupClass(Constant.BOOL);
+        this.stringClass = program.lookupClass(Constant.STRING);
+    }
+
+    public void run() {
+        if (program.mainMethod == null) return;
+        sp = 0;
+        var main = new VmObject(program.mainClass);
+        push(program.mainMethod, main, NO_DEST);
+        init(main);
+        execute();
+    }
+
+    /**
+     * 解释循环，COOL方法调用不再递归进入execute，而是在stack上压入新的栈帧后切换到被调方法，
+     * 返回时弹出栈帧并把返回值写回调用者的dest寄存器，递归深度只受堆大小限制
+     */
+    private void execute() {
+        frames:
+        while (sp > 0) {
+            final var frame = stack[sp - 1];
+            final var code = frame.method.code;
+            final var ints = frame.ints;
+            final var refs = frame.refs;
+            var pc = frame.pc;
+            while (true) {
+                switch (code[pc]) {
+                    case NOP:
+                        pc += 1;
+                        break;
+                    case ICONST:
+                        ints[code[pc + 1]] = code[pc + 2];
+                        pc += 3;
+                        break;
+                    case IMOVE:
+                        ints[code[pc + 1]] = ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case MOVE:
+                        refs[code[pc + 1]] = refs[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case LDC:
+                        refs[code[pc + 1]] = constants[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case NULL:
+                        refs[code[pc + 1]] = null;
+                        pc += 2;
+                        break;
+                    case IADD:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] + ints[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case ISUB:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] - ints[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case IMUL:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] * ints[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case IDIV: {
+                        var divisor = ints[code[pc + 3]];
+                        if (divisor == 0) error("runtime.error.divide.zero", constants[code[pc + 4]]);
+                        ints[code[pc + 1]] = ints[code[pc + 2]] / divisor;
+                        pc += 5;
+                        break;
+                    }
+                    case INEG:
+                        ints[code[pc + 1]] = -ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case ILT:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] < ints[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case ILE:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] <= ints[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case IEQ:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] == ints[code[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case INOT:
+                        ints[code[pc + 1]] = ints[code[pc + 2]] ^ 1;
+                        pc += 3;
+                        break;
+                    case REQ:
+                        ints[code[pc + 1]] = eq(refs[code[pc + 2]], refs[code[pc + 3]]) ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case ISVOID:
+                        ints[code[pc + 1]] = refs[code[pc + 2]] == null ? 1 : 0;
+                        pc += 3;
+                        break;
+                    case BOXI:
+                        refs[code[pc + 1]] = ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case BOXB:
+                        refs[code[pc + 1]] = ints[code[pc + 2]] != 0;
+                        pc += 3;
+                        break;
+                    case UNBOXI:
+                        ints[code[pc + 1]] = (Integer) refs[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case UNBOXB:
+                        ints[code[pc + 1]] = (Boolean) refs[code[pc + 2]] ? 1 : 0;
+                        pc += 3;
+                        break;
+                    case GETI:
+                        ints[code[pc + 1]] = ((VmObject) refs[0]).ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case GETR:
+                        refs[code[pc + 1]] = ((VmObject) refs[0]).refs[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case PUTI:
+                        ((VmObject) refs[0]).ints[code[pc + 1]] = ints[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case PUTR:
+                        ((VmObject) refs[0]).refs[code[pc + 1]] = refs[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case NEW:
+                    case NEWSELF: {
+                        var clazz = code[pc] == NEW ? program.classes.get(code[pc + 2]) : classOf(refs[0]);
+                        var obj = instantiate(clazz);
+                        refs[code[pc + 1]] = obj;
+                        pc += code[pc] == NEW ? 3 : 2;
+                        //属性初始化方法压栈后先执行，全部返回后调用者才会读到dest寄存器
+                        if (obj instanceof VmObject && inits[clazz.id].length > 0) {
+                            frame.pc = pc;
+                            init((VmObject) obj);
+                            continue frames;
+                        }
+                        break;
+                    }
+                    case JMP:
+                        pc = code[pc + 1];
+                        break;
+                    case JF:
+                        pc = ints[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                        break;
+                    case INVOKEVIRTUAL:
+                    case INVOKESPECIAL: {
+                        var receiver = refs[code[pc + 3]];
+                        if (receiver == null) error("runtime.error.dispatch.void", constants[code[pc + 4]]);
+                        var method = methods[code[pc + 2]];
+                        var target = code[pc] == INVOKEVIRTUAL ? classOf(receiver).vtable[method.slot] : method;
+                        var n = code[pc + 6];
+                        var args = pc + 7;
+                        if (target.nativeId != NATIVE_NONE) {
+                            invokeNative(target, receiver, code, args, ints, refs, pc);
+                            if (target.intReturn) {
+                                ints[code[pc + 1]] = intResult;
+                            } else {
+                                refs[code[pc + 1]] = refResult;
+                            }
+                            pc = args + n;
+                            break;
+                        }
+                        /**
+                         * 调用指令格式: op dest target receiver kvoid krange n args...
+                         * 调用者从下一条指令继续，实参拷到被调方法的寄存器
+                         */
+                        frame.pc = args + n;
+                        var callee = push(target, receiver, code[pc + 1]);
+                        var ip = 0;
+                        var rp = 1;
+                        for (var i = 0; i < n; i++) {
+                            if (target.intParams[i]) {
+                                callee.ints[ip++] = ints[code[args + i]];
+                            } else {
+                                callee.refs[rp++] = refs[code[args + i]];
+                            }
+                        }
+                        continue frames;
+                    }
+                    case CASE: {
+                        var obj = refs[code[pc + 1]];
+                        if (obj == null) error("runtime.error.case", constants[code[pc + 3]]);
+                        var target = ((int[]) constants[code[pc + 2]])[classOf(obj).id];
+                        if (target < 0) error("runtime.error.case", constants[code[pc + 3]]);
+                        pc = target;
+                        break;
+                    }
+                    case CHECKVOID:
+                        if (refs[code[pc + 1]] == null) error("runtime.error.void", constants[code[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case IRET: {
+                        var value = ints[code[pc + 1]];
+                        var dest = pop(frame);
+                        if (dest != NO_DEST) stack[sp - 1].ints[dest] = value;
+                        continue frames;
+                    }
+                    case RET: {
+                        var value = refs[code[pc + 1]];
+                        var dest = pop(frame);
+                        if (dest != NO_DEST) stack[sp - 1].refs[dest] = value;
+                        continue frames;
+                    }
+                    default:
+                        error("unexpected.error");
+                }
+            }
+        }
+    }
+
+    /**
+     * 压入method的栈帧，receiver放在refs[0]，dest是返回值在调用者中的寄存器
+     */
+    private Frame push(VmMethod method, Object receiver, int dest) {
+        if (sp == stack.length) stack = Arrays.copyOf(stack, sp << 1);
+        var frame = stack[sp];
+        if (frame == null) stack[sp] = frame = new Frame();
+        sp++;
+        frame.method = method;
+        frame.pc = 0;
+        frame.ints = new int[method.intRegisters];
+        frame.refs = new Object[method.refRegisters];
+        frame.refs[0] = receiver;
+        frame.dest = dest;
+        return frame;
+    }
+
+    /**
+     * 弹出栈帧，栈帧对象留着复用，寄存器释放掉
+     *
+     * @return 返回值在调用者中的寄存器
+     */
+    private int pop(Frame frame) {
+        sp--;
+        frame.ints = null;
+        frame.refs = null;
+        return frame.dest;
+    }
+
+    private void invokeNative(VmMethod target, Object receiver, int[] code, int args, int[] ints, Object[] refs, int pc) {
+        switch (target.nativeId) {
+            case NATIVE_ABORT:
+                coolObject().abort();
+                refResult = receiver;
+                break;
+            case NATIVE_TYPE_NAME:
+                refResult = classOf(receiver).name;
+                break;
+            case NATIVE_COPY:
+                refResult = receiver instanceof VmObject ? ((VmObject) receiver).copy() : receiver;
+                break;
+            case NATIVE_OUT_STRING:
+                System.out.print((String) refs[code[args]]);
+                refResult = receiver;
+                break;
+            case NATIVE_OUT_INT:
+                System.out.print(ints[code[args]]);
+                refResult = receiver;
+                break;
+            case NATIVE_IN_STRING:
+                refResult = inString();
+                break;
+            case NATIVE_IN_INT:
+                intResult = inInt();
+                break;
+            case NATIVE_LENGTH:
+                intResult = ((String) receiver).length();
+                break;
+            case NATIVE_CONCAT:
+                refResult = ((String) receiver).concat((String) refs[code[args]]);
+                break;
+            case NATIVE_SUBSTR:
+                try {
+                    var begin = ints[code[args]];
+                    refResult = ((String) receiver).substring(begin, begin + ints[code[args + 1]]);
+                } catch (StringIndexOutOfBoundsException e) {
+                    error("runtime.error.range", constants[code[pc + 5]]);
+                }
+                break;
+            default:
+                error("unexpected.error");
+        }
+    }
+
+    private Object instantiate(VmClass clazz) {
+        if (clazz == intClass) return 0;
+        if (clazz == boolClass) return false;
+        if (clazz == stringClass) return "";
+        return new VmObject(clazz);
+    }
+
+    /**
+     * 父类的属性初始化方法先执行，所以按initChain的逆序压栈
+     */
+    private void init(VmObject obj) {
+        var chain = inits[obj.clazz.id];
+        for (var i = chain.length - 1; i >= 0; i--) {
+            push(chain[i], obj, NO_DEST);
+        }
+    }
+
+    private VmClass classOf(Object obj) {
+        if (obj instanceof VmObject) return ((VmObject) obj).clazz;
+        if (obj instanceof Integer) return intClass;
+        if (obj instanceof Boolean) return boolClass;
+        return stringClass;
+    }
+
+    /**
+     * 基本类型比较值，否则比较引用
+     */
+    private static boolean eq(Object l, Object r) {
+        if (l instanceof Integer || l instanceof Boolean || l instanceof String) {
+            return l.equals(r);
+        }
+        return l == r;
+    }
+
+    private String inString() {
+        try {
+            var str = reader().readLine();
+            return str == null ? "" : str;
+        } catch (Exception e) {
+            error("unexpected.error");
+        }
+        return "";
+    }
+
+    private int inInt() {
+        try {
+            return Integer.parseInt(reader().readLine());
+        } catch (Exception e) {
+            error("unexpected.error");
+        }
+        return 0;
+    }
+
+    private BufferedReader reader() {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(System.in));
+        }
+        return reader;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (reader != null) reader.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * 栈帧，pc是切换到其他栈帧时保存的下一条指令
+     */
+    private static class Frame {
+        private VmMethod method;
+        private int pc;
+        private int[] ints;
+        private Object[] refs;
+        private int dest;
+    }
+}
@@ -0,0 +1,66 @@
+package com.leon.cool.lang.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class VmClass {
+
+    public final String name;
+    public final int id;
+    public final VmClass parent;
+
+    /**
+     * 按槽位排列的属性名，父类属性在前
+     */
+    public final List<String> intFields = new ArrayList<>();
+    public final List<String> refFields = new ArrayList<>();
+
+    /**
+     * ref属性的默认值，String属性是""其余是void
+     */
+    public Object[] refDefaults;
+
+    public VmMethod[] vtable = new VmMethod[0];
+
+    /**
+     * 本类属性的初始化代码，没有属性初始化表达式时为null
+     */
+    public VmMethod init;
+
+    public VmClass(String name, int id, VmClass parent) {
+        this.name = name;
+        this.id = id;
+        this.parent = parent;
+    }
+
+    /**
+     * 从根类到本类依次执行的属性初始化
+     */
+    public List<VmMethod> initChain() {
+        var chain = parent == null ? new ArrayList<VmMethod>() : parent.initChain();
+        if (init != null) chain.add(init);
+        return chain;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,74 @@
+package com.leon.cool.lang.vm;
+
+import java.util.List;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class VmMethod {
+
+    /**
+     * 内建方法编号
+     */
+    public static final int NATIVE_NONE = -1;
+    public static final int NATIVE_ABORT = 0;
+    public static final int NATIVE_TYPE_NAME = 1;
+    public static final int NATIVE_COPY = 2;
+    public static final int NATIVE_OUT_STRING = 3;
+    public static final int NATIVE_OUT_INT = 4;
+    public static final int NATIVE_IN_STRING = 5;
+    public static final int NATIVE_IN_INT = 6;
+    public static final int NATIVE_LENGTH = 7;
+    public static final int NATIVE_CONCAT = 8;
+    public static final int NATIVE_SUBSTR = 9;
+
+    public final int id;
+    public final String owner;
+    public final String name;
+    public final List<String> paramTypes;
+    public final String returnType;
+
+    /**
+     * 参数是否放在int寄存器，返回值是否是int
+     */
+    public final boolean[] intParams;
+    public final boolean intReturn;
+
+    /**
+     * vtable槽位，属性初始化方法是-1
+     */
+    public int slot = -1;
+    public int nativeId = NATIVE_NONE;
+    public int[] code;
+    public int intRegisters;
+    public int refRegisters;
+
+    public VmMethod(int id, String owner, String name, List<String> paramTypes, String returnType, boolean[] intParams, boolean intReturn) {
+        this.id = id;
+        this.owner = owner;
+        this.name = name;
+        this.paramTypes = paramTypes;
+        this.returnType = returnType;
+        this.intParams = intParams;
+        this.intReturn = intReturn;
+    }
+
+    @Override
+    public String toString() {
+        return owner + "." + name + paramTypes.toString().replace('[', '(').replace(']', ')') + ":" + returnType;
+    }
+}
@@ -0,0 +1,44 @@
+package com.leon.cool.lang.vm;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class VmObject {
+
+    public final VmClass clazz;
+    public final int[] ints;
+    public final Object[] refs;
+
+    public VmObject(VmClass clazz) {
+        this.clazz = clazz;
+        this.ints = new int[clazz.intFields.size()];
+        this.refs = clazz.refDefaults.clone();
+    }
+
+    private VmObject(VmObject obj) {
+        this.clazz = obj.clazz;
+        this.ints = obj.ints.clone();
+        this.refs = obj.refs.clone();
+    }
+
+    /**
+     * 浅拷贝
+     */
+    public VmObject copy() {
+        return new VmObject(this);
+    }
+}
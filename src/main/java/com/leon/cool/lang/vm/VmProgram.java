@@ -0,0 +1,49 @@
+package com.leon.cool.lang.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class VmProgram {
+
+    /**
+     * 按类id排列
+     */
+    public final List<VmClass> classes = new ArrayList<>();
+
+    /**
+     * 按方法id排列
+     */
+    public final List<VmMethod> methods = new ArrayList<>();
+
+    /**
+     * 常量池，元素是String(字符串常量和错误位置)或者int[](case跳转表)
+     */
+    public final List<Object> constants = new ArrayList<>();
+
+    public VmClass mainClass;
+    public VmMethod mainMethod;
+
+    public VmClass lookupClass(String name) {
+        for (var clazz : classes) {
+            if (clazz.name.equals(name)) return clazz;
+        }
+        return null;
+    }
+}
@@ -3,11 +3,15 @@
  * @since 1.0.0
  */
 module com.leon.cool.lang {
+    requires java.compiler;
     requires java.logging;
     exports com.leon.cool.lang;
     exports com.leon.cool.lang.ast;
+    exports com.leon.cool.lang.c;
+    exports com.leon.cool.lang.cache;
     exports com.leon.cool.lang.factory;
     exports com.leon.cool.lang.glossary;
+    exports com.leon.cool.lang.jvm;
     exports com.leon.cool.lang.object;
     exports com.leon.cool.lang.parser;
     exports com.leon.cool.lang.support;
@@ -19,6 +23,8 @@ module com.leon.cool.lang {
     exports com.leon.cool.lang.tree.compile.impl;
     exports com.leon.cool.lang.tree.runtime;
     exports com.leon.cool.lang.tree.runtime.impl;
+    exports com.leon.cool.lang.tree.runtime.node;
     exports com.leon.cool.lang.type;
     exports com.leon.cool.lang.util;
+    exports com.leon.cool.lang.vm;
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+/*
+ * Copyright leon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+#include <limits.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+
+#include "cool_runtime.h"
+
+Frame *cool_frames = 0;
+const char *cool_range_error = "Substring out of range.";
+
+static const Class *int_class;
+static const Class *bool_class;
+static const Class *string_class;
+static Obj *empty_string;
+
+/* all collectable objects */
+static Obj *heap = 0;
+static long live = 0;
+#ifndef COOL_GC_THRESHOLD
+#define COOL_GC_THRESHOLD 100000
+#endif
+static long threshold = COOL_GC_THRESHOLD;
+
+static Obj **mark_stack = 0;
+static long mark_size = 0;
+static long mark_capacity = 0;
+
+void cool_init(const Class *i, const Class *b, const Class *s) {
+    int_class = i;
+    bool_class = b;
+    string_class = s;
+    empty_string = cool_string_const("", 0);
+}
+
+void cool_fail(const char *msg) {
+    fflush(stdout);
+    fprintf(stderr, "%s\n", msg);
+    exit(1);
+}
+
+static void *checked_malloc(size_t size) {
+    void *p = malloc(size == 0 ? 1 : size);
+    if (!p) cool_fail("Out of memory.");
+    return p;
+}
+
+static void push_mark(Obj *obj) {
+    if (!obj || obj->marked) return;
+    obj->marked = 1;
+    if (mark_size == mark_capacity) {
+        mark_capacity = mark_capacity == 0 ? 1024 : mark_capacity * 2;
+        mark_stack = realloc(mark_stack, mark_capacity * sizeof(Obj *));
+        if (!mark_stack) cool_fail("Out of memory.");
+    }
+    mark_stack[mark_size++] = obj;
+}
+
+static void collect(void) {
+    Frame *frame;
+    Obj **link;
+    int i;
+    for (frame = cool_frames; frame; frame = frame->prev) {
+        for (i = 0; i < frame->n; i++) push_mark(frame->refs[i]);
+    }
+    while (mark_size > 0) {
+        Obj *obj = mark_stack[--mark_size];
+        for (i = 0; i < obj->cls->nrefs; i++) push_mark(obj->refs[i]);
+    }
+    live = 0;
+    link = &heap;
+    while (*link) {
+        Obj *obj = *link;
+        if (obj->marked) {
+            obj->marked = 0;
+            live++;
+            link = &obj->next;
+        } else {
+            *link = obj->next;
+            if (obj->cls == string_class) free(obj->chars);
+            free(obj);
+        }
+    }
+    if (threshold < live * 2) threshold = live * 2;
+}
+
+static Obj *allocate(const Class *cls, int nrefs, int nints) {
+    Obj *obj;
+    if (live >= threshold) collect();
+    obj = checked_malloc(sizeof(Obj) + nrefs * sizeof(Obj *) + nints * sizeof(int));
+    memset(obj, 0, sizeof(Obj) + nrefs * sizeof(Obj *) + nints * sizeof(int));
+    obj->cls = cls;
+    obj->refs = (Obj **) (obj + 1);
+    obj->ints = (int *) (obj->refs + nrefs);
+    obj->next = heap;
+    heap = obj;
+    live++;
+    return obj;
+}
+
+static Obj *new_string(char *chars, int len) {
+    Obj *obj = allocate(string_class, 0, 0);
+    obj->chars = chars;
+    obj->len = len;
+    return obj;
+}
+
+Obj *cool_string_const(const char *chars, int len) {
+    /* constants are not linked into the heap and never collected */
+    Obj *obj = checked_malloc(sizeof(Obj));
+    memset(obj, 0, sizeof(Obj));
+    obj->cls = string_class;
+    obj->len = len;
+    obj->chars = checked_malloc(len);
+    memcpy(obj->chars, chars, len);
+    obj->marked = 1;
+    return obj;
+}
+
+Obj *cool_new(const Class *cls) {
+    Obj *obj;
+    int i;
+    if (cls == int_class) return cool_box_int(0);
+    if (cls == bool_class) return cool_box_bool(0);
+    if (cls == string_class) return empty_string;
+    obj = allocate(cls, cls->nrefs, cls->nints);
+    for (i = 0; i < cls->nrefs; i++) {
+        if (cls->ref_defaults[i]) obj->refs[i] = empty_string;
+    }
+    if (cls->ctor) cls->ctor(obj);
+    return obj;
+}
+
+Obj *cool_box_int(int value) {
+    Obj *obj = allocate(int_class, 0, 0);
+    obj->ival = value;
+    return obj;
+}
+
+Obj *cool_box_bool(int value) {
+    Obj *obj = allocate(bool_class, 0, 0);
+    obj->ival = value;
+    return obj;
+}
+
+int cool_eq(Obj *l, Obj *r) {
+    if (l == r) return 1;
+    if (!l || !r || l->cls != r->cls) return 0;
+    if (l->cls == int_class || l->cls == bool_class) return l->ival == r->ival;
+    if (l->cls == string_class) return l->len == r->len && memcmp(l->chars, r->chars, l->len) == 0;
+    return 0;
+}
+
+int cool_div(int l, int r, const char *msg) {
+    if (r == 0) cool_fail(msg);
+    if (l == INT_MIN && r == -1) return INT_MIN;
+    return l / r;
+}
+
+Obj *cool_Object_abort(Obj *self) {
+    printf("Object abort and exit.\n");
+    fflush(stdout);
+    exit(0);
+    return self;
+}
+
+Obj *cool_Object_type_name(Obj *self) {
+    const char *name = self->cls->name;
+    int len = (int) strlen(name);
+    char *chars = checked_malloc(len);
+    memcpy(chars, name, len);
+    return new_string(chars, len);
+}
+
+Obj *cool_Object_copy(Obj *self) {
+    Obj *obj;
+    if (self->cls == int_class || self->cls == bool_class || self->cls == string_class) return self;
+    obj = allocate(self->cls, self->cls->nrefs, self->cls->nints);
+    memcpy(obj->refs, self->refs, self->cls->nrefs * sizeof(Obj *));
+    memcpy(obj->ints, self->ints, self->cls->nints * sizeof(int));
+    return obj;
+}
+
+Obj *cool_IO_out_string(Obj *self, Obj *x) {
+    fwrite(x->chars, 1, x->len, stdout);
+    return self;
+}
+
+Obj *cool_IO_out_int(Obj *self, int x) {
+    printf("%d", x);
+    return self;
+}
+
+/* reads one line without the line terminator, -1 on EOF */
+static int read_line(char **out) {
+    int capacity = 64, len = 0, c;
+    char *chars = checked_malloc(capacity);
+    fflush(stdout);
+    while ((c = getchar()) != EOF && c != '\n') {
+        if (len == capacity) {
+            capacity *= 2;
+            chars = realloc(chars, capacity);
+            if (!chars) cool_fail("Out of memory.");
+        }
+        chars[len++] = (char) c;
+    }
+    if (len > 0 && chars[len - 1] == '\r') len--;
+    if (c == EOF && len == 0) {
+        free(chars);
+        return -1;
+    }
+    *out = chars;
+    return len;
+}
+
+Obj *cool_IO_in_string(Obj *self) {
+    char *chars;
+    int len = read_line(&chars);
+    (void) self;
+    if (len < 0) return empty_string;
+    return new_string(chars, len);
+}
+
+int cool_IO_in_int(Obj *self) {
+    char *chars, *end;
+    long value;
+    int len = read_line(&chars);
+    (void) self;
+    if (len <= 0) cool_fail("Unexpected error.");
+    chars = realloc(chars, len + 1);
+    chars[len] = 0;
+    value = strtol(chars, &end, 10);
+    if (*end != 0 || value > INT_MAX || value < INT_MIN) cool_fail("Unexpected error.");
+    free(chars);
+    return (int) value;
+}
+
+int cool_String_length(Obj *self) {
+    return self->len;
+}
+
+Obj *cool_String_concat(Obj *self, Obj *s) {
+    int len = self->len + s->len;
+    char *chars = checked_malloc(len);
+    memcpy(chars, self->chars, self->len);
+    memcpy(chars + self->len, s->chars, s->len);
+    return new_string(chars, len);
+}
+
+Obj *cool_String_substr(Obj *self, int i, int l) {
+    long end = (long) i + l;
+    char *chars;
+    if (i < 0 || l < 0 || end > self->len) cool_fail(cool_range_error);
+    chars = checked_malloc(l);
+    memcpy(chars, self->chars + i, l);
+    return new_string(chars, l);
+}
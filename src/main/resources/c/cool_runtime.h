@@ -0,0 +1,84 @@
+/*
+ * Copyright leon
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * COOL native runtime: objects, vtables, strings and a mark-sweep collector.
+ */
+#ifndef COOL_RUNTIME_H
+#define COOL_RUNTIME_H
+
+typedef struct Obj Obj;
+typedef void (*Method)(void);
+
+typedef struct Class {
+    const char *name;
+    int id;
+    const struct Class *parent;
+    int nints;
+    int nrefs;
+    /* one byte per ref field, 1 means the default value is "" */
+    const char *ref_defaults;
+    const Method *vtable;
+    /* runs the attribute initializers from the root class down, may be 0 */
+    void (*ctor)(Obj *self);
+} Class;
+
+struct Obj {
+    const Class *cls;
+    Obj *next;
+    int marked;
+    /* Int and Bool value */
+    int ival;
+    /* String value */
+    int len;
+    char *chars;
+    Obj **refs;
+    int *ints;
+};
+
+/* every generated function registers its ref registers as GC roots */
+typedef struct Frame {
+    struct Frame *prev;
+    int n;
+    Obj **refs;
+} Frame;
+
+extern Frame *cool_frames;
+extern const char *cool_range_error;
+
+#define COOL_ENTER(regs, count) Frame frame_; frame_.prev = cool_frames; frame_.n = (count); frame_.refs = (regs); cool_frames = &frame_
+#define COOL_LEAVE() cool_frames = frame_.prev
+
+void cool_init(const Class *int_class, const Class *bool_class, const Class *string_class);
+void cool_fail(const char *msg);
+
+Obj *cool_new(const Class *cls);
+Obj *cool_box_int(int value);
+Obj *cool_box_bool(int value);
+Obj *cool_string_const(const char *chars, int len);
+int cool_eq(Obj *l, Obj *r);
+int cool_div(int l, int r, const char *msg);
+
+Obj *cool_Object_abort(Obj *self);
+Obj *cool_Object_type_name(Obj *self);
+Obj *cool_Object_copy(Obj *self);
+Obj *cool_IO_out_string(Obj *self, Obj *x);
+Obj *cool_IO_out_int(Obj *self, int x);
+Obj *cool_IO_in_string(Obj *self);
+int cool_IO_in_int(Obj *self);
+int cool_String_length(Obj *self);
+Obj *cool_String_concat(Obj *self, Obj *s);
+Obj *cool_String_substr(Obj *self, int i, int l);
+
+#endif
@@ -0,0 +1,166 @@
+package com.leon.cool.lang;
+
+import com.leon.cool.lang.c.TestNativeCompiler;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.util.FileUtil;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.ExpectedSystemExit;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.contrib.java.lang.system.TextFromStandardInputStream;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+@RunWith(Parameterized.class)
+public class TestBackend {
+    @Rule
+    public final TextFromStandardInputStream systemInMock = TextFromStandardInputStream.emptyStandardInputStream();
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Rule
+    public final ExpectedSystemExit exit = ExpectedSystemExit.none();
+
+    @Parameterized.Parameter
+    public Backend backend;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Backend> backends() {
+        return Arrays.asList(Backend.values());
+    }
+
+    @Before
+    public void setUp() {
+        //没有C编译器的环境跳过
+        if (backend == Backend.C) assumeTrue(TestNativeCompiler.hasCompiler());
+    }
+
+    @Test
+    public void testHello() {
+        assertBackend("hello.cl", "");
+    }
+
+    @Test
+    public void testArith() {
+        assertBackend("arith.cl", "q");
+    }
+
+    @Test
+    public void testBookList() {
+        assertBackend("book_list.cl", "");
+    }
+
+    @Test
+    public void testCell() {
+        assertBackend("cell.cl", "");
+    }
+
+    @Test
+    public void testComplex() {
+        assertBackend("complex.cl", "");
+    }
+
+    @Test
+    public void testCool() {
+        assertBackend("cool.cl", "");
+    }
+
+    @Test
+    public void testFactorial() {
+        assertBackend("factorial.cl", "10\n");
+    }
+
+    @Test
+    public void testHairyscary() {
+        assertBackend("hairyscary.cl", "");
+    }
+
+    @Test
+    public void testIO() {
+        assertBackend("io.cl", "");
+    }
+
+    @Test
+    public void testLam() {
+        assertBackend("lam.cl", "");
+    }
+
+    @Test
+    public void testList() {
+        assertBackend("list.cl", "");
+    }
+
+    @Test
+    public void testNewComplex() {
+        assertBackend("new_complex.cl", "");
+    }
+
+    @Test
+    public void testPalindrome() {
+        assertBackend("palindrome.cl", "aabaa");
+    }
+
+    @Test
+    public void testPrimes() {
+        String str = FileUtil.readJarFile("primes.cl");
+        if (backend == Backend.C) {
+            //abort只结束本地进程
+            Bootstrap.run(str, backend);
+            assertTrue(systemOutRule.getLog().startsWith("2 is trivially prime.\n3 is prime.\n"));
+            assertTrue(systemOutRule.getLog().endsWith("499 is prime.\nObject abort and exit.\n"));
+            return;
+        }
+        exit.expectSystemExit();
+        exit.checkAssertionAfterwards(() -> {
+            assertTrue(systemOutRule.getLog().startsWith("2 is trivially prime.\n3 is prime.\n"));
+            assertTrue(systemOutRule.getLog().contains("499 is prime.\n"));
+        });
+        Bootstrap.run(str, backend);
+    }
+
+    @Test
+    public void testSortList() {
+        assertBackend("sort_list.cl", "5");
+    }
+
+    /**
+     * 同一个程序分别用解释器和backend执行，输出必须一致
+     */
+    private void assertBackend(String file, String input) {
+        var str = FileUtil.readJarFile(file);
+        systemInMock.provideText(input);
+        Bootstrap.run(str, Backend.INTERPRETER);
+        var expected = systemOutRule.getLog();
+        systemOutRule.clearLog();
+        systemInMock.provideText(input);
+        Bootstrap.run(str, backend);
+        assertEquals(expected, systemOutRule.getLog());
+    }
+}
@@ -0,0 +1,61 @@
+package com.leon.cool.lang.c;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.glossary.Backend;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+public class TestNativeCompiler {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Before
+    public void setUp() {
+        //没有C编译器的环境跳过
+        assumeTrue(hasCompiler());
+    }
+
+    @Test
+    public void testRuntimeError() {
+        var str = "class Main inherits IO { main(): Object { out_int(1 / 0) }; };\n";
+        try {
+            Bootstrap.run(str, Backend.C);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Division by zero"));
+        }
+    }
+
+    public static boolean hasCompiler() {
+        try {
+            return new ProcessBuilder(System.getenv().getOrDefault("CC", "cc"), "--version").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.leon.cool.lang.cache;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.Configuration;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.util.FileUtil;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.contrib.java.lang.system.TextFromStandardInputStream;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+public class TestCompileCache {
+    @Rule
+    public final TextFromStandardInputStream systemInMock = TextFromStandardInputStream.emptyStandardInputStream();
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHello() throws IOException {
+        assertCache("hello.cl", "", Backend.INTERPRETER);
+    }
+
+    @Test
+    public void testArith() throws IOException {
+        assertCache("arith.cl", "q", Backend.INTERPRETER);
+    }
+
+    @Test
+    public void testHairyscary() throws IOException {
+        assertCache("hairyscary.cl", "", Backend.INTERPRETER);
+    }
+
+    @Test
+    public void testLam() throws IOException {
+        assertCache("lam.cl", "", Backend.CLOSURE);
+    }
+
+    @Test
+    public void testSortList() throws IOException {
+        assertCache("sort_list.cl", "5", Backend.VM);
+    }
+
+    @Test
+    public void testKey() {
+        var str = FileUtil.readJarFile("hello.cl");
+        assertEquals(CompileCache.key(str), CompileCache.key(str));
+        assertNotEquals(CompileCache.key(str), CompileCache.key(str + "\n"));
+        assertEquals(64, CompileCache.key(str).length());
+    }
+
+    @Test
+    public void testInvalidEntry() throws IOException {
+        var str = FileUtil.readJarFile("hello.cl");
+        var cache = new CompileCache(folder.getRoot().toPath());
+        Files.write(cache.path(str), new byte[]{1, 2, 3});
+        try (var treeSupport = new TreeSupport()) {
+            assertNull(cache.load(str, treeSupport));
+            assertTrue(treeSupport.classGraph.isEmpty());
+            assertTrue(treeSupport.methodGraph.isEmpty());
+        }
+        assertTrue(Files.notExists(cache.path(str)));
+    }
+
+    /**
+     * 写了一半的缓存：头部合法但语法树或者graph读到一半就结束了
+     */
+    @Test
+    public void testTruncatedEntry() throws IOException {
+        var str = FileUtil.readJarFile("hairyscary.cl");
+        var cache = new CompileCache(folder.getRoot().toPath());
+        try (var treeSupport = new TreeSupport()) {
+            var expr = Bootstrap.parse(str);
+            assertTrue(Bootstrap.check(expr, treeSupport));
+            cache.store(str, expr, treeSupport);
+        }
+        var bytes = Files.readAllBytes(cache.path(str));
+        for (var length : new int[]{bytes.length / 4, bytes.length / 2, bytes.length - 1}) {
+            Files.write(cache.path(str), Arrays.copyOf(bytes, length));
+            try (var treeSupport = new TreeSupport()) {
+                assertNull(cache.load(str, treeSupport));
+                assertTrue(treeSupport.classGraph.isEmpty());
+                assertTrue(treeSupport.methodGraph.isEmpty());
+                assertTrue(treeSupport.attrGraph.isEmpty());
+                assertTrue(treeSupport.symbolTables.isEmpty());
+            }
+            assertTrue(Files.notExists(cache.path(str)));
+        }
+    }
+
+    @Test
+    public void testBuildVersion() {
+        assertNotNull(CompileCache.buildVersion());
+        assertFalse(CompileCache.buildVersion().contains("${"));
+        assertTrue(CompileCache.compilerVersion().endsWith(CompileCache.buildVersion()));
+    }
+
+    /**
+     * 超过大小上限时删除最久没用过的缓存，命中会刷新修改时间
+     */
+    @Test
+    public void testEvict() throws IOException {
+        var a = FileUtil.readJarFile("hello.cl");
+        var b = FileUtil.readJarFile("cell.cl");
+        var c = FileUtil.readJarFile("factorial.cl");
+        var directory = folder.newFolder().toPath();
+        var unlimited = new CompileCache(directory, Long.MAX_VALUE);
+        store(unlimited, a);
+        store(unlimited, b);
+        var other = new CompileCache(folder.newFolder().toPath(), Long.MAX_VALUE);
+        store(other, c);
+        var now = System.currentTimeMillis();
+        Files.setLastModifiedTime(unlimited.path(a), FileTime.fromMillis(now - 20000));
+        Files.setLastModifiedTime(unlimited.path(b), FileTime.fromMillis(now - 10000));
+
+        var limit = Files.size(unlimited.path(a)) + Files.size(unlimited.path(b)) + Files.size(other.path(c)) - 1;
+        var cache = new CompileCache(directory, limit);
+        try (var treeSupport = new TreeSupport()) {
+            assertNotNull(cache.load(a, treeSupport));
+        }
+        store(cache, c);
+        assertTrue(Files.exists(cache.path(a)));
+        assertTrue(Files.notExists(cache.path(b)));
+        assertTrue(Files.exists(cache.path(c)));
+    }
+
+    private static void store(CompileCache cache, String str) {
+        try (var treeSupport = new TreeSupport()) {
+            var expr = Bootstrap.parse(str);
+            assertTrue(Bootstrap.check(expr, treeSupport));
+            cache.store(str, expr, treeSupport);
+        }
+    }
+
+    /**
+     * 第一次执行写缓存，第二次从缓存加载，输出必须和不用缓存时一致
+     */
+    private void assertCache(String file, String input, Backend backend) throws IOException {
+        var str = FileUtil.readJarFile(file);
+        systemInMock.provideText(input);
+        Bootstrap.run(str, backend);
+        var expected = systemOutRule.getLog();
+
+        var configuration = new Configuration();
+        configuration.backend = backend;
+        configuration.cacheDirectory = folder.newFolder().toPath();
+        var cache = new CompileCache(configuration.cacheDirectory);
+        try (var treeSupport = new TreeSupport()) {
+            assertNull(cache.load(str, treeSupport));
+        }
+        for (var i = 0; i < 2; i++) {
+            systemOutRule.clearLog();
+            systemInMock.provideText(input);
+            Bootstrap.run(str, configuration);
+            assertEquals(expected, systemOutRule.getLog());
+            assertTrue(Files.isRegularFile(cache.path(str)));
+        }
+        try (var treeSupport = new TreeSupport()) {
+            assertNotNull(cache.load(str, treeSupport));
+            assertTrue(treeSupport.classGraph.containsKey("Main"));
+            assertTrue(treeSupport.methodGraph.get("Main").stream().allMatch(e -> e.declaration != null));
+        }
+    }
+}
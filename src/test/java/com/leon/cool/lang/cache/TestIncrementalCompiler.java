@@ -0,0 +1,179 @@
+package com.leon.cool.lang.cache;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.impl.EvalTreeScanner;
+import com.leon.cool.lang.util.FileUtil;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.contrib.java.lang.system.TextFromStandardInputStream;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+public class TestIncrementalCompiler {
+    @Rule
+    public final TextFromStandardInputStream systemInMock = TextFromStandardInputStream.emptyStandardInputStream();
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    private static final String PROGRAM = "class A {\n" +
+            "    f() : Int { 1 };\n" +
+            "};\n" +
+            "class B inherits A {\n" +
+            "    g() : Int { f() + 1 };\n" +
+            "};\n" +
+            "class C {\n" +
+            "    a : A <- new A;\n" +
+            "    h() : Int { a.f() };\n" +
+            "};\n" +
+            "class D {\n" +
+            "    s() : String { \"d\" };\n" +
+            "};\n" +
+            "class Main inherits IO {\n" +
+            "    main() : Object { {\n" +
+            "        out_int(new B.g());\n" +
+            "        out_int(new C.h());\n" +
+            "        out_string(new D.s());\n" +
+            "    } };\n" +
+            "};\n";
+
+    @Test
+    public void testUnchanged() {
+        try (var compiler = new IncrementalCompiler()) {
+            assertNotNull(compiler.compile(PROGRAM));
+            assertTrue(compiler.recompiled.containsAll(Set.of("Object", "IO", "A", "B", "C", "D", "Main")));
+            assertNotNull(compiler.compile(PROGRAM));
+            assertEquals(Set.of(), compiler.recompiled);
+            assertEquals("21d", run(compiler));
+        }
+    }
+
+    @Test
+    public void testBodyChanged() {
+        try (var compiler = new IncrementalCompiler()) {
+            compiler.compile(PROGRAM);
+            assertNotNull(compiler.compile(PROGRAM.replace("\"d\"", "\"e\"")));
+            assertEquals(Set.of("D"), compiler.recompiled);
+            assertEquals("21e", run(compiler));
+        }
+    }
+
+    @Test
+    public void testDependents() {
+        try (var compiler = new IncrementalCompiler()) {
+            compiler.compile(PROGRAM);
+            assertNotNull(compiler.compile(PROGRAM.replace("f() : Int { 1 }", "f() : Int { 2 }")));
+            assertEquals(Set.of("A"), compiler.recompiled);
+            assertEquals("32d", run(compiler));
+            assertNotNull(compiler.compile(PROGRAM.replace("f() : Int { 1 }", "f(x : Int) : Int { x }").replace("f() + 1", "f(1) + 1").replace("a.f()", "a.f(2)")));
+            //A的接口变了：B是子类，C通过属性调用A的方法，Main用到了B
+            assertEquals(Set.of("A", "B", "C", "Main"), compiler.recompiled);
+            assertEquals("22d", run(compiler));
+        }
+    }
+
+    @Test
+    public void testMoved() {
+        try (var compiler = new IncrementalCompiler()) {
+            compiler.compile(PROGRAM);
+            assertNotNull(compiler.compile("\n\n" + PROGRAM + "class E {};\n"));
+            assertEquals(Set.of("E"), compiler.recompiled);
+            //没改动的类也用新语法树上的位置
+            var expected = Bootstrap.parse("\n\n" + PROGRAM).classDef;
+            var classDefs = compiler.program().classDef;
+            for (var i = 0; i < expected.size(); i++) {
+                assertEquals(String.valueOf(expected.get(i).starPos), String.valueOf(classDefs.get(i).starPos));
+            }
+            assertEquals("21d", run(compiler));
+        }
+    }
+
+    /**
+     * 复用的调用点上是上一次编译分配的槽位，新的签名只能接在后面
+     */
+    @Test
+    public void testSlots() {
+        try (var compiler = new IncrementalCompiler()) {
+            compiler.compile(PROGRAM);
+            var signatures = compiler.treeSupport().signatures();
+            assertNotNull(compiler.compile(PROGRAM + "class E {\n    a() : Int { 1 };\n    b(x : Int) : Int { x };\n    c() : Int { 3 };\n};\n"));
+            assertEquals(Set.of("E"), compiler.recompiled);
+            assertEquals("21d", run(compiler));
+            var next = compiler.treeSupport().signatures();
+            assertEquals(signatures, next.subList(0, signatures.size()));
+            assertEquals(signatures.size() + 3, next.size());
+        }
+    }
+
+    @Test
+    public void testTypeError() {
+        try (var compiler = new IncrementalCompiler()) {
+            var program = compiler.compile(PROGRAM);
+            assertNull(compiler.compile(PROGRAM.replace("a.f()", "a.g()")));
+            assertTrue(program == compiler.program());
+            assertNotNull(compiler.compile(PROGRAM.replace("\"d\"", "\"e\"")));
+            assertEquals(Set.of("D"), compiler.recompiled);
+            assertEquals("21e", run(compiler));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testDuplicated() {
+        try (var compiler = new IncrementalCompiler()) {
+            compiler.compile(PROGRAM);
+            compiler.compile(PROGRAM + "class D {\n    s() : String { \"d\" };\n};\n");
+        }
+    }
+
+    @Test
+    public void testSamples() {
+        for (var file : new String[]{"arith.cl", "hairyscary.cl", "lam.cl", "life.cl", "cool.cl"}) {
+            var str = FileUtil.readJarFile(file);
+            systemInMock.provideText("q\n");
+            Bootstrap.run(str);
+            var expected = systemOutRule.getLog();
+            systemOutRule.clearLog();
+            try (var compiler = new IncrementalCompiler()) {
+                compiler.compile(str);
+                assertNotNull(compiler.compile(str + "\nclass Unused {};\n"));
+                assertEquals(Set.of("Unused"), compiler.recompiled);
+                systemInMock.provideText("q\n");
+                assertEquals(expected, run(compiler));
+            }
+        }
+    }
+
+    private String run(IncrementalCompiler compiler) {
+        systemOutRule.clearLog();
+        compiler.program().accept(new EvalTreeScanner(compiler.treeSupport()), new Context(null, null));
+        var log = systemOutRule.getLog();
+        systemOutRule.clearLog();
+        return log;
+    }
+}
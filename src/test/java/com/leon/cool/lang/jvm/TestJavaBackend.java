@@ -0,0 +1,63 @@
+package com.leon.cool.lang.jvm;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.util.FileUtil;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+public class TestJavaBackend {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Test
+    public void testSource() {
+        var sources = Bootstrap.javaSource(FileUtil.readJarFile("hairyscary.cl"));
+        var bazz = sources.get("cool.Bazz");
+        assertTrue(bazz.startsWith("package cool;\n\npublic class Bazz extends com.leon.cool.lang.jvm.JvmIO {\n    public int h;\n"));
+        assertTrue(bazz.contains("    public int Bazz$doh() {\n        int i = this.h;\n"));
+        assertTrue(bazz.contains("    public int doh() {\n        return Bazz$doh();\n    }\n"));
+        assertTrue(bazz.contains("    public java.lang.Object $$new$SELF_TYPE() {\n        return $$new();\n    }\n"));
+        assertTrue(sources.get("cool.Foo").startsWith("package cool;\n\npublic class Foo extends Bazz {\n"));
+        assertTrue(sources.get("cool.Foo").contains("        this.Bazz$$init();\n"));
+        assertTrue(sources.get("cool.Main").contains("    public static void main(java.lang.String[] args) {\n        $$new().main();\n    }\n"));
+    }
+
+    /**
+     * 合成的属性初始化方法不能和COOL方法init重名
+     */
+    @Test
+    public void testSyntheticNames() {
+        var str = "class A { x : Int <- 2; init() : Int { x + 1 }; };\n" +
+                "class Main inherits IO { main() : Object { out_int(new A.init()) }; };\n";
+        Bootstrap.run(str, Backend.JAVA);
+        assertEquals("3", systemOutRule.getLog());
+        systemOutRule.clearLog();
+        Bootstrap.run(str, Backend.JVM);
+        assertEquals("3", systemOutRule.getLog());
+    }
+
+}
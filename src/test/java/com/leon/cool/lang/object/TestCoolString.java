@@ -0,0 +1,95 @@
+package com.leon.cool.lang.object;
+
+import com.leon.cool.lang.support.TreeSupport;
+import org.junit.Test;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
+import static com.leon.cool.lang.factory.ObjectFactory.coolString;
+import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestCoolString {
+
+    /**
+     * 反复拼接得到很深的concat树，展开时不能栈溢出
+     */
+    @Test
+    public void testConcat() {
+        var s = coolString("");
+        var expected = new StringBuilder();
+        for (var i = 0; i < 100000; i++) {
+            s = s.concat(coolString(i % 10 + ""));
+            expected.append(i % 10);
+        }
+        assertEquals(100000, s.length().val);
+        assertEquals(expected.toString(), s.str());
+        assertTrue(s.contentEquals(coolString(expected.toString())));
+        assertEquals(expected.toString().hashCode(), s.hashCode());
+    }
+
+    @Test
+    public void testSubstr() {
+        var digits = new StringBuilder();
+        var letters = new StringBuilder();
+        for (var i = 0; i < 10; i++) {
+            digits.append("0123456789");
+            letters.append("abcdefghij");
+        }
+        var s = coolString(digits.toString()).concat(coolString(letters.toString()));
+        var sub = s.substr(coolInt(95), coolInt(10), "");
+        assertEquals("56789abcde", sub.str());
+        assertEquals("789a", sub.substr(coolInt(2), coolInt(4), "").str());
+        assertEquals("", sub.substr(coolInt(10), coolInt(0), "").str());
+        assertTrue(sub.contentEquals(coolString("56789abcde")));
+        assertFalse(sub.contentEquals(coolString("56789abcdf")));
+        assertEquals("56789abcde!", sub.concat(coolString("!")).str());
+        for (var range : new int[][]{{-1, 1}, {5, 6}, {0, -1}, {11, 0}}) {
+            try {
+                sub.substr(coolInt(range[0]), coolInt(range[1]), "");
+                fail();
+            } catch (RuntimeException ignore) {
+            }
+        }
+    }
+
+    @Test
+    public void testIntern() {
+        try (var treeSupport = new TreeSupport()) {
+            assertSame(treeSupport.internString("hello"), treeSupport.internString(new String("hello")));
+            assertSame(coolStringDefault(), coolString("abc").substr(coolInt(1), coolInt(0), ""));
+            assertSame(coolString('b'), coolString("abc").substr(coolInt(1), coolInt(1), ""));
+            assertSame(coolString('c'), treeSupport.internString("c"));
+            var hello = treeSupport.internString("hello");
+            var world = coolString("world");
+            world.hashCode();
+            assertFalse(hello.contentEquals(world));
+            assertTrue(hello.contentEquals(coolString("hel").concat(coolString("lo"))));
+            //字符串表只在一次执行中有效
+            try (var other = new TreeSupport()) {
+                assertNotSame(hello, other.internString("hello"));
+            }
+        }
+    }
+}
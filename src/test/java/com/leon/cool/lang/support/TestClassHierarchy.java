@@ -0,0 +1,129 @@
+package com.leon.cool.lang.support;
+
+import com.leon.cool.lang.factory.TypeFactory;
+import com.leon.cool.lang.support.infrastructure.ClassHierarchy;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static com.leon.cool.lang.factory.TypeFactory.integerType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestClassHierarchy {
+
+    private final TypeFactory types = new TypeFactory();
+
+    private ClassHierarchy hierarchy() {
+        var classGraph = new HashMap<String, String>();
+        classGraph.put("Object", null);
+        classGraph.put("IO", "Object");
+        classGraph.put("A", "IO");
+        classGraph.put("B", "A");
+        classGraph.put("C", "A");
+        classGraph.put("D", "B");
+        classGraph.put("F", "Object");
+        //父类未定义的类当作根
+        classGraph.put("E", "Undefined");
+        for (var i = 0; i < 100; i++) classGraph.put("L" + (i + 1), "L" + i);
+        classGraph.put("L0", "C");
+        return new ClassHierarchy(classGraph, types);
+    }
+
+    @Test
+    public void testSubclass() {
+        var hierarchy = hierarchy();
+        assertTrue(hierarchy.isSubclass("D", "Object"));
+        assertTrue(hierarchy.isSubclass("D", "A"));
+        assertTrue(hierarchy.isSubclass("D", "D"));
+        assertFalse(hierarchy.isSubclass("A", "D"));
+        assertFalse(hierarchy.isSubclass("D", "C"));
+        assertTrue(hierarchy.isSubclass("L100", "C"));
+        assertFalse(hierarchy.isSubclass("L100", "B"));
+        assertFalse(hierarchy.isSubclass("E", "Object"));
+        assertTrue(hierarchy.isSubclass("Undefined", "Undefined"));
+        assertFalse(hierarchy.isSubclass("Undefined", "Object"));
+        assertEquals(104, hierarchy.depth("L100"));
+        assertEquals(-1, hierarchy.id("Undefined"));
+    }
+
+    @Test
+    public void testLca() {
+        var hierarchy = hierarchy();
+        assertEquals("A", hierarchy.lca("D", "C"));
+        assertEquals("A", hierarchy.lca("L100", "D"));
+        assertEquals("C", hierarchy.lca("L100", "C"));
+        assertEquals("L3", hierarchy.lca("L3", "L77"));
+        assertEquals("IO", hierarchy.lca("IO", "L50"));
+        assertEquals("Object", hierarchy.lca("F", "L50"));
+        assertEquals("B", hierarchy.lca("B", "B"));
+        assertNull(hierarchy.lca("E", "A"));
+    }
+
+    @Test
+    public void testNearest() {
+        var hierarchy = hierarchy();
+        var branches = new int[]{hierarchy.id("Object"), hierarchy.id("B"), hierarchy.id("A")};
+        assertEquals(1, hierarchy.nearest(hierarchy.id("D"), branches));
+        assertEquals(2, hierarchy.nearest(hierarchy.id("L9"), branches));
+        assertEquals(0, hierarchy.nearest(hierarchy.id("IO"), branches));
+        assertEquals(-1, hierarchy.nearest(hierarchy.id("E"), branches));
+        assertEquals(-1, hierarchy.nearest(-1, branches));
+    }
+
+    /**
+     * 类型是intern过的，按类型编号查类的编号
+     */
+    @Test
+    public void testTypes() {
+        assertSame(types.objectType("A"), types.objectType("A"));
+        assertSame(integerType(), types.objectType("Int"));
+        assertSame(types.selfType("A"), types.objectType("SELF_TYPE", "A"));
+        assertNotEquals(types.objectType("A").id(), types.objectType("B").id());
+        var hierarchy = hierarchy();
+        assertEquals(hierarchy.id("D"), hierarchy.id(types.objectType("D")));
+        assertEquals(-1, hierarchy.id(types.objectType("NotInHierarchy")));
+        assertTrue(hierarchy.isSubclass(types.objectType("L100"), types.objectType("A")));
+        assertSame(types.objectType("A"), hierarchy.lca(types.objectType("L100"), types.objectType("D")));
+        assertSame(types.objectType("Object"), hierarchy.lca(types.objectType("F"), types.objectType("IO")));
+    }
+
+    /**
+     * 每个程序一套类型编号，不会随着执行过的程序变多而增长
+     */
+    @Test
+    public void testPerProgram() {
+        var other = new TypeFactory();
+        assertEquals(types.count(), other.count());
+        assertEquals(types.objectType("A").id(), other.objectType("A").id());
+        assertNotSame(types.objectType("A"), other.objectType("A"));
+        assertSame(other.objectType("A"), other.of(types.objectType("A")));
+        assertSame(other.selfType("A"), other.of(types.selfType("A")));
+        assertSame(types.objectType("Object"), other.objectType("Object"));
+        other.objectType("Misspelled");
+        assertEquals(types.count() + 1, other.count());
+        assertTrue(new TypeFactory().count() < types.count());
+    }
+}
@@ -0,0 +1,83 @@
+package com.leon.cool.lang.support;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.Configuration;
+import com.leon.cool.lang.glossary.Backend;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestIntrinsic {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Test
+    public void testLookup() {
+        assertEquals(Intrinsic.OBJECT_TYPE_NAME, Intrinsic.lookup("Object", "type_name"));
+        assertEquals(Intrinsic.IO_OUT_STRING, Intrinsic.lookup("IO", "out_string"));
+        assertEquals(Intrinsic.STRING_SUBSTR, Intrinsic.lookup("String", "substr"));
+        assertEquals(Intrinsic.NONE, Intrinsic.lookup("Main", "length"));
+        assertEquals(Intrinsic.NONE, Intrinsic.lookup("IO", "length"));
+    }
+
+    /**
+     * 子类重写的内置方法执行方法体
+     */
+    @Test
+    public void testOverride() {
+        Bootstrap.run("class Main inherits IO {\n" +
+                "    out_string(s : String) : SELF_TYPE { { out_int(s.length()); self; } };\n" +
+                "    main() : Object { { out_string(\"abc\"); self@IO.out_string(\"abc\".concat(\"d\").substr(1, 2)); out_string(type_name()); } };\n" +
+                "};\n");
+        assertEquals("3bc4", systemOutRule.getLog());
+    }
+
+    /**
+     * 同一个调用点先后分派到builtin方法和重写的方法，参数按从左到右的顺序求值
+     */
+    @Test
+    public void testArguments() {
+        var str = "class A inherits IO {\n" +
+                "    out_string(s : String) : SELF_TYPE { { out_int(s.length()); self; } };\n" +
+                "};\n" +
+                "class Main inherits IO {\n" +
+                "    n : Int;\n" +
+                "    next() : Int { n <- n + 1 };\n" +
+                "    sum(a : Int, b : Int, c : Int) : Int { a * 100 + b * 10 + c };\n" +
+                "    main() : Object { let i : Int <- 0, io : IO in while i < 3 loop {\n" +
+                "        n <- 0;\n" +
+                "        io <- if i = 1 then new A else new IO fi;\n" +
+                "        io.out_string(\"xyz\".substr(next() - 1, next() - 1));\n" +
+                "        out_int(sum(next(), next(), next()));\n" +
+                "        i <- i + 1;\n" +
+                "    } pool };\n" +
+                "};\n";
+        Bootstrap.run(str);
+        Bootstrap.run(str, Backend.CLOSURE);
+        var configuration = new Configuration();
+        configuration.tiered = true;
+        configuration.invocationThreshold = 1;
+        configuration.backEdgeThreshold = 1;
+        Bootstrap.run(str, configuration);
+        assertEquals("x3451345x345x3451345x345x3451345x345", systemOutRule.getLog());
+    }
+}
@@ -0,0 +1,109 @@
+package com.leon.cool.lang.support;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.support.declaration.AttrDeclaration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolStringDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestObjectLayout {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    private static final String PROGRAM = "class A { a : Int <- 1; s : String; get() : Int { a }; set(v : Int) : A { { a <- v; self; } }; };\n" +
+            "class B inherits A { b : A <- new A; c : Int <- a + 1; };\n" +
+            "class C inherits A { d : Bool <- true; };\n" +
+            "class Main inherits IO {\n" +
+            "    main() : Object { let x : B <- new B, y : A <- x.copy() in {\n" +
+            "        x.set(5);\n" +
+            "        out_int(x.get()); out_int(y.get());\n" +
+            "        case y of b : B => out_int(b.get() + 10); esac;\n" +
+            "        out_int(new C.set(7).get());\n" +
+            "    } };\n" +
+            "};\n";
+
+    @Test
+    public void testLayout() {
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(Bootstrap.parse(PROGRAM), treeSupport));
+            assertEquals("a,s", names(treeSupport.layout(treeSupport.types.objectType("A"))));
+            assertEquals("a,s,b,c", names(treeSupport.layout(treeSupport.types.objectType("B"))));
+            assertEquals("a,s,d", names(treeSupport.layout(treeSupport.types.objectType("C"))));
+            assertEquals("", names(treeSupport.layout(treeSupport.types.objectType("Main"))));
+            //父类的属性在所有子类中槽位相同
+            assertEquals(0, treeSupport.fieldSlot("B", "a"));
+            assertEquals(0, treeSupport.fieldSlot("C", "a"));
+            assertEquals(3, treeSupport.fieldSlot("B", "c"));
+            assertEquals(-1, treeSupport.fieldSlot("C", "c"));
+        }
+    }
+
+    @Test
+    public void testPlan() {
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(Bootstrap.parse(PROGRAM), treeSupport));
+            var plan = treeSupport.plan(treeSupport.types.objectType("B"));
+            assertEquals(4, plan.defaults.length);
+            assertSame(coolIntDefault(), plan.defaults[0]);
+            assertSame(coolStringDefault(), plan.defaults[1]);
+            assertSame(coolVoid(), plan.defaults[2]);
+            //只有带初始化表达式的属性，父类的在前
+            assertArrayEquals(new int[]{0, 2, 3}, plan.slots);
+            assertEquals(0, treeSupport.plan(treeSupport.types.objectType("Main")).slots.length);
+        }
+    }
+
+    /**
+     * copy之后两个对象的属性互不影响
+     */
+    @Test
+    public void testInterpreter() {
+        Bootstrap.run(PROGRAM);
+        assertEquals("51117", systemOutRule.getLog());
+    }
+
+    @Test
+    public void testClosure() {
+        Bootstrap.run(PROGRAM, Backend.CLOSURE);
+        assertEquals("51117", systemOutRule.getLog());
+    }
+
+    @Test
+    public void testJvm() {
+        Bootstrap.run(PROGRAM, Backend.JVM);
+        assertEquals("51117", systemOutRule.getLog());
+    }
+
+    private static String names(AttrDeclaration[] layout) {
+        return Arrays.stream(layout).map(e -> e.id).collect(Collectors.joining(","));
+    }
+}
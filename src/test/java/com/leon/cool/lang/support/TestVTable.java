@@ -0,0 +1,103 @@
+package com.leon.cool.lang.support;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.ast.StaticDispatch;
+import com.leon.cool.lang.tree.compile.TreeScanner;
+import com.leon.cool.lang.util.FileUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestVTable {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Test
+    public void testSlots() {
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(Bootstrap.parse(FileUtil.readJarFile("tree/specialize.cl")), treeSupport));
+            var same = treeSupport.signatureSlot("same", List.of("Object", "Object"));
+            var outString = treeSupport.signatureSlot("out_string", List.of("String"));
+            assertEquals(-1, treeSupport.signatureSlot("undefined", List.of()));
+            assertEquals(-1, treeSupport.signatureSlot("same", List.of("Object")));
+            assertEquals(TreeSupport.MAIN_SLOT, treeSupport.signatureSlot("main", List.of()));
+            //所有类共用槽位，子类继承来的方法在同一个槽位
+            assertEquals("Main", treeSupport.lookupVirtual("Main", same).owner);
+            assertEquals("IO", treeSupport.lookupVirtual("Main", outString).owner);
+            assertEquals("IO", treeSupport.lookupVirtual("B", outString).owner);
+            assertNull(treeSupport.lookupVirtual("A", same));
+            //重载的方法每个签名一个槽位
+            var showInt = treeSupport.signatureSlot("show", List.of("Int"));
+            var showString = treeSupport.signatureSlot("show", List.of("String"));
+            assertNotEquals(showInt, showString);
+            assertEquals("A", treeSupport.lookupVirtual("A", showInt).owner);
+            assertEquals("B", treeSupport.lookupVirtual("B", showInt).owner);
+            assertEquals("A", treeSupport.lookupVirtual("B", showString).owner);
+            assertNull(treeSupport.lookupVirtual("Main", showInt));
+        }
+    }
+
+    /**
+     * 类型检查时按实参的静态类型选出重载方法，调用点上记下它的槽位
+     */
+    @Test
+    public void testSignature() {
+        var expr = Bootstrap.parse("class A inherits IO {\n" +
+                "    f(x : Int) : Object { out_string(\"Int \") };\n" +
+                "    f(x : Object) : Object { out_string(\"Object \") };\n" +
+                "};\n" +
+                "class Main {\n" +
+                "    main() : Object { let a : A <- new A, o : Object <- 1 in { a.f(1); a.f(o); } };\n" +
+                "};\n");
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(expr, treeSupport));
+            var slots = new ArrayList<Integer>();
+            expr.accept(new TreeScanner(treeSupport) {
+                @Override
+                public void applyStaticDispatch(StaticDispatch staticDispatch) {
+                    super.applyStaticDispatch(staticDispatch);
+                    slots.add(staticDispatch.slot);
+                }
+            });
+            assertEquals(List.of(treeSupport.signatureSlot("f", List.of("Int")), treeSupport.signatureSlot("f", List.of("Object"))), slots);
+        }
+    }
+
+    /**
+     * 实参是void的时候也能调用没有重载的方法
+     */
+    @Test
+    public void testVoidArgument() {
+        Bootstrap.run("class A { f(a : A) : Int { 1 }; };\n" +
+                "class Main inherits IO {\n" +
+                "    a : A;\n" +
+                "    main() : Object { out_int(new A.f(a)) };\n" +
+                "};\n");
+        assertEquals("1", systemOutRule.getLog());
+    }
+}
@@ -1,11 +1,17 @@
 package com.leon.cool.lang.tokenizer;
 
+import com.leon.cool.lang.Constant;
 import com.leon.cool.lang.glossary.TokenKind;
 import com.leon.cool.lang.util.FileUtil;
 import net.jcip.annotations.NotThreadSafe;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * Copyright leon
@@ -69,4 +75,34 @@ public class TestTokenizer {
                 "Token{name='}', kind='}', startPos=Pos{row=7, column=1}, endPos=Pos{row=7, column=2}}\n" +
                 "Token{name=';', kind=';', startPos=Pos{row=7, column=2}, endPos=Pos{row=7, column=3}}\n", sb.toString());
     }
+
+    @Test
+    public void testSymbols() {
+        var symbols = new Symbols();
+        var names = symbols(new CoolTokenizer("class Main { x : Int <- 1; f() : Int { x + x }; g() : SELF_TYPE { self }; };".toCharArray(), symbols));
+        assertSame(Constant.SELF, names.get("self"));
+        assertSame(Constant.SELF_TYPE, names.get("SELF_TYPE"));
+        assertSame(Constant.INT, names.get("Int"));
+        //同一个符号表解析出来的同名符号是同一个引用，字符串字面量不放进符号表
+        var size = symbols.size();
+        var same = symbols(new CoolTokenizer("class Main { x : String <- \"literal\"; };".toCharArray(), symbols));
+        assertSame(names.get("x"), same.get("x"));
+        assertEquals(size, symbols.size());
+        //另一次编译有自己的符号表
+        var other = symbols(new CoolTokenizer("class Main { x : Int; };".toCharArray()));
+        assertEquals("x", other.get("x"));
+        assertNotSame(names.get("x"), other.get("x"));
+        assertSame(Constant.MAIN_CLASS, other.get("Main"));
+    }
+
+    private static Map<String, String> symbols(CoolTokenizer tokenizer) {
+        var names = new HashMap<String, String>();
+        for (var token = tokenizer.readToken(); token.kind != TokenKind.EOF; token = tokenizer.readToken()) {
+            if (token.kind != TokenKind.ID && token.kind != TokenKind.TYPE) continue;
+            var previous = names.putIfAbsent(token.name, token.name);
+            //同名的标识符是同一个引用
+            if (previous != null) assertSame(previous, token.name);
+        }
+        return names;
+    }
 }
@@ -0,0 +1,83 @@
+package com.leon.cool.lang.tree;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.ast.Branch;
+import com.leon.cool.lang.factory.TreeFactory;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.tokenizer.Token;
+import com.leon.cool.lang.tree.runtime.node.CaseTable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import java.util.List;
+
+import static com.leon.cool.lang.glossary.TokenKind.ID;
+import static com.leon.cool.lang.glossary.TokenKind.TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestCaseTable {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    private static final String PROGRAM = "class A { };\n" +
+            "class B inherits A { };\n" +
+            "class C inherits B { };\n" +
+            "class Main inherits IO {\n" +
+            "    name(o : Object) : String { case o of a : A => \"A\"; b : B => \"B\"; i : Int => \"Int\"; x : Object => \"Object\"; esac };\n" +
+            "    main() : Object { let i : Int <- 0 in while i < 2 loop {\n" +
+            "        out_string(name(new A)); out_string(name(new C)); out_string(name(new B));\n" +
+            "        out_string(name(i)); out_string(name(\"s\")); out_string(name(self));\n" +
+            "        i <- i + 1;\n" +
+            "    } pool };\n" +
+            "};\n";
+
+    @Test
+    public void testLookup() {
+        var f = new TreeFactory();
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(Bootstrap.parse(PROGRAM), treeSupport));
+            List<Branch> branches = List.of(
+                    f.branch(new Token("b", ID), new Token("B", TYPE), f.noExpression()),
+                    f.branch(new Token("a", ID), new Token("A", TYPE), f.noExpression()));
+            var table = new CaseTable(treeSupport, branches);
+            assertEquals(0, table.lookup(treeSupport.types.objectType("C")));
+            assertEquals(0, table.lookup(treeSupport.types.objectType("C")));
+            assertEquals(1, table.lookup(treeSupport.types.objectType("A")));
+            assertEquals(-1, table.lookup(treeSupport.types.objectType("Main")));
+            assertEquals(-1, table.lookup(treeSupport.types.objectType("Main")));
+            assertEquals(-1, table.lookup(treeSupport.types.objectType("Undefined")));
+        }
+    }
+
+    @Test
+    public void testInterpreter() {
+        Bootstrap.run(PROGRAM);
+        assertEquals("ABBIntObjectObjectABBIntObjectObject", systemOutRule.getLog());
+    }
+
+    @Test
+    public void testClosure() {
+        Bootstrap.run(PROGRAM, Backend.CLOSURE);
+        assertEquals("ABBIntObjectObjectABBIntObjectObject", systemOutRule.getLog());
+    }
+}
@@ -0,0 +1,89 @@
+package com.leon.cool.lang.tree;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.ast.ClassDef;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.support.TreeSupport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestLexicalAddress {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    /**
+     * f的形参x不能被g看到，g读到的是属性x
+     */
+    private static final String PROGRAM = "class Main inherits IO {\n" +
+            "    x : Int <- 1;\n" +
+            "    f(x : Int) : Int { x + g() };\n" +
+            "    g() : Int { x };\n" +
+            "    h(n : Int) : Int { if n = 0 then 0 else let y : Int <- n in { x <- x + 1; y + h(n - 1) + y; } fi };\n" +
+            "    main() : Object { {\n" +
+            "        out_int(f(10)); out_string(\" \");\n" +
+            "        out_int(h(3)); out_string(\" \");\n" +
+            "        out_int(x); out_string(\" \");\n" +
+            "        out_int(let a : Int <- 1 in let b : Int <- a + 1 in case b of i : Int => i + a; esac);\n" +
+            "    } };\n" +
+            "};\n";
+
+    private static final String OUTPUT = "11 12 4 3";
+
+    @Test
+    public void testSlots() {
+        try (var treeSupport = new TreeSupport()) {
+            var expr = Bootstrap.parse(PROGRAM);
+            assertTrue(Bootstrap.check(expr, treeSupport));
+            var main = expr.classDef.stream().filter(e -> e.type.name.equals("Main")).findFirst().get();
+            assertEquals(1, method(main, "f").frameSize);
+            assertEquals(0, method(main, "g").frameSize);
+            assertEquals(2, method(main, "h").frameSize);
+            //兄弟let复用槽位，嵌套let和case各占一个
+            assertEquals(3, method(main, "main").frameSize);
+        }
+    }
+
+    @Test
+    public void testInterpreter() {
+        Bootstrap.run(PROGRAM);
+        assertEquals(OUTPUT, systemOutRule.getLog());
+    }
+
+    @Test
+    public void testClosure() {
+        Bootstrap.run(PROGRAM, Backend.CLOSURE);
+        assertEquals(OUTPUT, systemOutRule.getLog());
+    }
+
+    @Test
+    public void testJvm() {
+        Bootstrap.run(PROGRAM, Backend.JVM);
+        assertEquals(OUTPUT, systemOutRule.getLog());
+    }
+
+    private static MethodDef method(ClassDef classDef, String name) {
+        return classDef.features.stream().filter(e -> e instanceof MethodDef).map(e -> (MethodDef) e).filter(e -> e.id.name.equals(name)).findFirst().get();
+    }
+}
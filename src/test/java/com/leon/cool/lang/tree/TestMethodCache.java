@@ -0,0 +1,113 @@
+package com.leon.cool.lang.tree;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.Configuration;
+import com.leon.cool.lang.glossary.Backend;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.tree.runtime.node.MethodCache;
+import com.leon.cool.lang.util.FileUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemErrRule;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestMethodCache {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Rule
+    public final SystemErrRule systemErrRule = new SystemErrRule().enableLog();
+
+    private static final String CLASSES = "class A { f() : Int { 1 }; };\n" +
+            "class B inherits A { f() : Int { 2 }; };\n" +
+            "class C inherits A { };\n" +
+            "class D inherits A { f() : Int { 4 }; };\n" +
+            "class E inherits A { f() : Int { 5 }; };\n" +
+            "class F inherits A { f() : Int { 6 }; };\n";
+
+    @Test
+    public void testTransitions() {
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(Bootstrap.parse(CLASSES + "class Main { main() : Int { 0 }; };"), treeSupport));
+            var cache = new MethodCache(treeSupport, treeSupport.signatureSlot("f", List.of()));
+            assertEquals(MethodCache.State.UNINITIALIZED, cache.state());
+            assertEquals("A", cache.lookup(treeSupport.types.objectType("A")).owner);
+            assertEquals("A", cache.lookup(treeSupport.types.objectType("A")).owner);
+            assertEquals(MethodCache.State.MONOMORPHIC, cache.state());
+            //继承来的方法
+            assertEquals("A", cache.lookup(treeSupport.types.objectType("C")).owner);
+            assertEquals("B", cache.lookup(treeSupport.types.objectType("B")).owner);
+            assertEquals("D", cache.lookup(treeSupport.types.objectType("D")).owner);
+            assertEquals(MethodCache.State.POLYMORPHIC, cache.state());
+            assertEquals("B", cache.lookup(treeSupport.types.objectType("B")).owner);
+            assertEquals(2, cache.hits);
+            assertEquals(2, cache.transitions);
+            assertEquals("E", cache.lookup(treeSupport.types.objectType("E")).owner);
+            assertEquals(MethodCache.State.MEGAMORPHIC, cache.state());
+            assertEquals("F", cache.lookup(treeSupport.types.objectType("F")).owner);
+            assertEquals("A", cache.lookup(treeSupport.types.objectType("A")).owner);
+            assertEquals(2, cache.hits);
+            assertEquals(7, cache.misses);
+            assertEquals(3, cache.transitions);
+            assertTrue(treeSupport.inlineCaches.contains(cache));
+        }
+    }
+
+    /**
+     * 重载的方法每个签名一个调用点缓存，只按receiver类型匹配
+     */
+    @Test
+    public void testOverload() {
+        try (var treeSupport = new TreeSupport()) {
+            assertTrue(Bootstrap.check(Bootstrap.parse(FileUtil.readJarFile("tree/specialize.cl")), treeSupport));
+            var showInt = new MethodCache(treeSupport, treeSupport.signatureSlot("show", List.of("Int")));
+            var showString = new MethodCache(treeSupport, treeSupport.signatureSlot("show", List.of("String")));
+            assertEquals("B", showInt.lookup(treeSupport.types.objectType("B")).owner);
+            assertEquals("A", showString.lookup(treeSupport.types.objectType("B")).owner);
+            assertEquals("A", showInt.lookup(treeSupport.types.objectType("A")).owner);
+            assertEquals("B", showInt.lookup(treeSupport.types.objectType("B")).owner);
+            assertEquals(MethodCache.State.POLYMORPHIC, showInt.state());
+            assertEquals(MethodCache.State.MONOMORPHIC, showString.state());
+            assertEquals(1, showInt.hits);
+            assertEquals(2, showInt.misses);
+        }
+    }
+
+    @Test
+    public void testStatistics() {
+        var configuration = new Configuration();
+        configuration.backend = Backend.CLOSURE;
+        configuration.inlineCacheStatistics = true;
+        Bootstrap.run(CLASSES + "class Main inherits IO {\n" +
+                "    main() : Object { {\n" +
+                "        out_int(new A.f() + new B.f() + new C.f() + new D.f() + new E.f() + new F.f());\n" +
+                "        out_int(new A.f() + new A.f());\n" +
+                "    } };\n" +
+                "};\n", configuration);
+        assertEquals("192", systemOutRule.getLog());
+        assertTrue(systemErrRule.getLog().startsWith("inline caches: "));
+        assertTrue(systemErrRule.getLog().contains("megamorphic 0"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.leon.cool.lang.tree;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.ast.Blocks;
+import com.leon.cool.lang.ast.MethodDef;
+import com.leon.cool.lang.ast.Plus;
+import com.leon.cool.lang.object.CoolObject;
+import com.leon.cool.lang.support.TreeSupport;
+import com.leon.cool.lang.support.infrastructure.Context;
+import com.leon.cool.lang.tree.runtime.impl.EvalTreeScanner;
+import com.leon.cool.lang.tree.runtime.node.ConstantNode;
+import com.leon.cool.lang.util.FileUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import static com.leon.cool.lang.factory.ObjectFactory.coolBool;
+import static com.leon.cool.lang.factory.ObjectFactory.coolBoolDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolInt;
+import static com.leon.cool.lang.factory.ObjectFactory.coolIntDefault;
+import static com.leon.cool.lang.factory.ObjectFactory.coolVoid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestSpecializedNode {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    /**
+     * 同一个比较节点先后看到Int,String,Bool和对象，同一个调用点看到不同receiver和实参类型，重载按实参的静态类型选择
+     */
+    @Test
+    public void test() {
+        String str = FileUtil.readJarFile("tree/specialize.cl");
+        Bootstrap.run(str);
+        assertEquals("same A.Object B.Int " +
+                "same A.Object B.Int " +
+                "same A.Object B.Int " +
+                "same A.Object B.Int " +
+                "8", systemOutRule.getLog());
+    }
+
+    /**
+     * 嵌套的Int运算在特化之后不装箱，大整数和除零仍然正确
+     */
+    @Test
+    public void testUnboxed() {
+        Bootstrap.run("class Main inherits IO {\n" +
+                "    main() : Object { let i : Int <- 0, s : Int <- 0 in {\n" +
+                "        while i < 3 loop { s <- s + (i * 1000000 - ~i) / 2; i <- i + 1; } pool;\n" +
+                "        out_int(s); out_string(\" \");\n" +
+                "        out_int(if s <= 2000000 then 1 else 2 fi);\n" +
+                "    } };\n" +
+                "};\n");
+        assertEquals("1500001 1", systemOutRule.getLog());
+    }
+
+    @Test
+    public void testCanonical() {
+        assertSame(coolInt(7), coolInt(7));
+        assertSame(coolIntDefault(), coolInt(0));
+        assertNotSame(coolInt(1 << 20), coolInt(1 << 20));
+        assertEquals(coolInt(1 << 20), coolInt(1 << 20));
+        assertSame(coolBool(true), coolBool(1 < 2));
+        assertSame(coolBoolDefault(), coolBool(false));
+        assertSame(coolVoid(), coolVoid());
+    }
+
+    /**
+     * 字面量第一次求值后换成ConstantNode，之后每次都返回同一个对象
+     */
+    @Test
+    public void testConstant() {
+        try (var treeSupport = new TreeSupport()) {
+            var expr = Bootstrap.parse("class Main { main() : Object { { 1 + 100000; \"s\"; } }; };");
+            assertTrue(Bootstrap.check(expr, treeSupport));
+            var main = (MethodDef) expr.classDef.stream().filter(e -> e.type.name.equals("Main")).findFirst().get().features.get(0);
+            var blocks = (Blocks) main.expr;
+            var evaluator = new EvalTreeScanner(treeSupport);
+            expr.accept(evaluator, new Context(null, null));
+            var plus = (Plus) blocks.exprs.get(0);
+            assertTrue(plus.left.specialized instanceof ConstantNode);
+            assertTrue(plus.right.specialized instanceof ConstantNode);
+            assertTrue(blocks.exprs.get(1).specialized instanceof ConstantNode);
+            var context = new Context(null, new CoolObject[0]);
+            assertSame(plus.right.accept(evaluator, context), plus.right.accept(evaluator, context));
+            assertSame(blocks.exprs.get(1).accept(evaluator, context), blocks.exprs.get(1).accept(evaluator, context));
+            assertEquals(100001, plus.acceptInt(evaluator, context));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.leon.cool.lang.tree;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.Configuration;
+import com.leon.cool.lang.util.FileUtil;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.contrib.java.lang.system.TextFromStandardInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+public class TestTieredCompiler {
+    @Rule
+    public final TextFromStandardInputStream systemInMock = TextFromStandardInputStream.emptyStandardInputStream();
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Test
+    public void testArith() {
+        assertTiered("arith.cl", "q");
+    }
+
+    @Test
+    public void testBookList() {
+        assertTiered("book_list.cl", "");
+    }
+
+    @Test
+    public void testCool() {
+        assertTiered("cool.cl", "");
+    }
+
+    @Test
+    public void testFactorial() {
+        assertTiered("factorial.cl", "10\n");
+    }
+
+    @Test
+    public void testHairyscary() {
+        assertTiered("hairyscary.cl", "");
+    }
+
+    @Test
+    public void testLam() {
+        assertTiered("lam.cl", "");
+    }
+
+    @Test
+    public void testList() {
+        assertTiered("list.cl", "");
+    }
+
+    @Test
+    public void testPalindrome() {
+        assertTiered("palindrome.cl", "aabaa");
+    }
+
+    @Test
+    public void testSortList() {
+        assertTiered("sort_list.cl", "5");
+    }
+
+    @Test
+    public void testBackground() {
+        var str = FileUtil.readJarFile("hairyscary.cl");
+        Bootstrap.run(str);
+        var expected = systemOutRule.getLog();
+        systemOutRule.clearLog();
+        var configuration = new Configuration();
+        configuration.tiered = true;
+        configuration.invocationThreshold = 2;
+        configuration.backEdgeThreshold = 2;
+        Bootstrap.run(str, configuration);
+        assertEquals(expected, systemOutRule.getLog());
+    }
+
+    /**
+     * 被调方法只能看到自己的形参和receiver的属性，看不到调用者的let变量，调用返回后调用者的变量不变
+     */
+    @Test
+    public void testDispatchScope() {
+        var str = "class Counter {\n" +
+                "    x : Int <- 10;\n" +
+                "    get(y : Int) : Int { x + y };\n" +
+                "};\n" +
+                "class Main inherits IO {\n" +
+                "    x : Int <- 1;\n" +
+                "    show(y : Int) : Object { { out_int(x); out_int(y); } };\n" +
+                "    depth(n : Int) : Int { if n = 0 then 0 else let m : Int <- n in depth(n - 1) + m fi };\n" +
+                "    main() : Object { let x : Int <- 2, y : Int <- 4 in {\n" +
+                "        show(3);\n" +
+                "        out_int(x);\n" +
+                "        out_int(y);\n" +
+                "        out_int((new Counter).get(x));\n" +
+                "        out_int(depth(3));\n" +
+                "    } };\n" +
+                "};\n";
+        Bootstrap.run(str);
+        assertEquals("1324126", systemOutRule.getLog());
+        systemOutRule.clearLog();
+        var configuration = new Configuration();
+        configuration.tiered = true;
+        configuration.backgroundCompilation = false;
+        configuration.invocationThreshold = 1;
+        configuration.backEdgeThreshold = 1;
+        Bootstrap.run(str, configuration);
+        assertEquals("1324126", systemOutRule.getLog());
+    }
+
+    /**
+     * 阈值为1并且同步编译，第一次调用或第一个回边之后就执行编译后的代码
+     */
+    private void assertTiered(String file, String input) {
+        var str = FileUtil.readJarFile(file);
+        systemInMock.provideText(input);
+        Bootstrap.run(str);
+        var expected = systemOutRule.getLog();
+        systemOutRule.clearLog();
+        var configuration = new Configuration();
+        configuration.tiered = true;
+        configuration.backgroundCompilation = false;
+        configuration.invocationThreshold = 1;
+        configuration.backEdgeThreshold = 1;
+        systemInMock.provideText(input);
+        Bootstrap.run(str, configuration);
+        assertEquals(expected, systemOutRule.getLog());
+    }
+}
@@ -0,0 +1,119 @@
+package com.leon.cool.lang.vm;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.util.FileUtil;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import org.junit.contrib.java.lang.system.TextFromStandardInputStream;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static com.leon.cool.lang.support.ErrorSupport.errorMsg;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+@NotThreadSafe
+public class TestProgramImage {
+    @Rule
+    public final TextFromStandardInputStream systemInMock = TextFromStandardInputStream.emptyStandardInputStream();
+
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testHello() throws IOException {
+        assertImage("hello.cl", "");
+    }
+
+    @Test
+    public void testBookList() throws IOException {
+        assertImage("book_list.cl", "");
+    }
+
+    @Test
+    public void testCool() throws IOException {
+        assertImage("cool.cl", "");
+    }
+
+    @Test
+    public void testHairyscary() throws IOException {
+        assertImage("hairyscary.cl", "");
+    }
+
+    @Test
+    public void testSortList() throws IOException {
+        assertImage("sort_list.cl", "5");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidImage() throws IOException {
+        var image = folder.newFile("invalid.coolc");
+        Files.write(image.toPath(), new byte[]{1, 2, 3});
+        Bootstrap.runImage(image.getPath());
+    }
+
+    /**
+     * 把任意位置的4个字节改成很大的数或者负数，只能读出程序或者报格式错误，不能内存溢出
+     */
+    @Test
+    public void testCorruptLength() throws IOException {
+        var image = folder.newFile("corrupt.coolc");
+        Bootstrap.compile(FileUtil.readJarFile("hello.cl"), image.getPath());
+        var bytes = Files.readAllBytes(image.toPath());
+        var message = errorMsg("image.error.format", image.toPath());
+        for (var value : new int[]{Integer.MAX_VALUE, -1}) {
+            for (var i = 6; i + 4 <= bytes.length; i++) {
+                var corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(i, value);
+                Files.write(image.toPath(), corrupt);
+                try {
+                    ProgramImage.read(image.toPath());
+                } catch (RuntimeException e) {
+                    assertEquals(message, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 先编译成.coolc文件再加载执行，输出必须和解释器一致
+     */
+    private void assertImage(String file, String input) throws IOException {
+        var str = FileUtil.readJarFile(file);
+        systemInMock.provideText(input);
+        Bootstrap.run(str);
+        var expected = systemOutRule.getLog();
+        systemOutRule.clearLog();
+        var image = folder.newFile(file.replace(".cl", ".coolc"));
+        Bootstrap.compile(str, image.getPath());
+        assertTrue(image.length() > 0);
+        systemInMock.provideText(input);
+        Bootstrap.runImage(image.getPath());
+        assertEquals(expected, systemOutRule.getLog());
+    }
+}
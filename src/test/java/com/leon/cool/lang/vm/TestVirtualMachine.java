@@ -0,0 +1,83 @@
+package com.leon.cool.lang.vm;
+
+import com.leon.cool.lang.Bootstrap;
+import com.leon.cool.lang.glossary.Backend;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Copyright leon
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * @author leon on 26-10-18
+ */
+public class TestVirtualMachine {
+    @Rule
+    public final SystemOutRule systemOutRule = new SystemOutRule().enableLog();
+
+    @Test
+    public void testDisassemble() {
+        var program = new VmProgram();
+        var object = new VmClass("Object", 0, null);
+        object.refDefaults = new Object[0];
+        program.classes.add(object);
+        var main = new VmMethod(0, "Object", "main", List.of(), "Int", new boolean[0], true);
+        program.methods.add(main);
+        var code = new CodeBuffer();
+        var l = code.newInt();
+        var r = code.newInt();
+        var end = code.newLabel();
+        code.emit(Opcodes.ICONST, l, 6);
+        code.emit(Opcodes.ICONST, r, 7);
+        code.emit(Opcodes.JMP);
+        code.label(end);
+        code.emit(Opcodes.ICONST, l, 0);
+        code.mark(end);
+        code.emit(Opcodes.IMUL, l, l, r);
+        code.emit(Opcodes.IRET, l);
+        code.build(main);
+        assertEquals("method #0 Object.main():Int ints=2 refs=1\n" +
+                "     0: ICONST i0, 6\n" +
+                "     3: ICONST i1, 7\n" +
+                "     6: JMP -> 11\n" +
+                "     8: ICONST i0, 0\n" +
+                "    11: IMUL i0, i0, i1\n" +
+                "    15: IRET i0\n", new Disassembler(program).disassemble(main));
+    }
+
+    /**
+     * COOL方法调用和属性初始化都在同一个解释循环里压栈，递归深度不受java栈限制
+     */
+    @Test
+    public void testDeepRecursion() {
+        Bootstrap.run("class Node {\n" +
+                "    next : Node;\n" +
+                "    depth : Int <- 1;\n" +
+                "    link(n : Node) : Node { { next <- n; depth <- n.depth() + 1; self; } };\n" +
+                "    depth() : Int { depth };\n" +
+                "};\n" +
+                "class Main inherits IO {\n" +
+                "    base : Int <- count(10);\n" +
+                "    count(n : Int) : Int { if n = 0 then 0 else 1 + count(n - 1) fi };\n" +
+                "    chain(n : Int) : Node { if n = 0 then new Node else (new Node).link(chain(n - 1)) fi };\n" +
+                "    main() : Object { { out_int(base); out_string(\" \"); out_int(count(200000)); out_string(\" \"); out_int(chain(100000).depth()); } };\n" +
+                "};\n", Backend.VM);
+        assertEquals("10 200000 100001", systemOutRule.getLog());
+    }
+}
@@ -0,0 +1,29 @@
+class A inherits IO {
+    show(x : Int) : Object { out_string("A.Int ") };
+    show(x : String) : Object { out_string("A.String ") };
+    show(x : Object) : Object { out_string("A.Object ") };
+};
+
+class B inherits A {
+    show(x : Int) : Object { out_string("B.Int ") };
+};
+
+class Main inherits IO {
+    same(x : Object, y : Object) : Bool { x = y };
+
+    main() : Object {
+        let a : A <- new A, b : A <- new B, i : Int <- 0, o : Object in {
+            while i < 4 loop {
+                if i = 0 then o <- 1 else
+                if i = 1 then o <- "s" else
+                if i = 2 then o <- true else
+                    o <- a fi fi fi;
+                (if same(o, o) then out_string("same ") else out_string("diff ") fi);
+                (if i < 2 then a else b fi).show(o);
+                b.show(i);
+                i <- i + 1;
+            } pool;
+            out_int(7 / 2 * 3 - 1);
+        }
+    };
+};